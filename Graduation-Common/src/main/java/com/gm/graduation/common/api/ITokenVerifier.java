@@ -0,0 +1,14 @@
+package com.gm.graduation.common.api;
+
+/**
+ * 暴露给Netty使用的token校验接口，websocket 握手时调用
+ */
+public interface ITokenVerifier {
+
+    /**
+     * 校验 token，可能访问 Redis 等外部存储，Netty 不会在 I/O 线程上调用
+     * @return token 对应的用户ID，token 无效或已过期时返回 null
+     * @throws RuntimeException 无法完成校验（如存储不可用）时抛出，握手回复 503 而不是 401，客户端不会因此重新登录
+     */
+    Long verify(String token);
+}
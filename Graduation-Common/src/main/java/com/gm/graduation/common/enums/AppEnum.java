@@ -22,12 +22,24 @@ public enum AppEnum {
         this.app = num;
     }
 
-    public static AppEnum fromApp(int type) {
+    /** 下标为 app 编号 **/
+    private static final AppEnum[] BY_APP;
+
+    static {
+        int max = 0;
+        for (AppEnum appEnum : values()) {
+            max = Math.max(max, appEnum.app);
+        }
+        BY_APP = new AppEnum[max + 1];
         for (AppEnum appEnum : values()) {
-            if (appEnum.getApp() == type) {
-                return appEnum;
-            }
+            BY_APP[appEnum.app] = appEnum;
+        }
+    }
+
+    public static AppEnum fromApp(Integer type) {
+        if (type == null || type < 0 || type >= BY_APP.length) {
+            return null;
         }
-        return null;
+        return BY_APP[type];
     }
 }
@@ -16,6 +16,10 @@ public enum MessageTypeEnum {
     LINK_DISCONNECT(AppEnum.LINK, 1),
     /** Link app: heartbeat. */
     LINK_HEARTBEAT(AppEnum.LINK, 2),
+    /** Link app: server asks the client to resync history after dropped pushes. */
+    LINK_RESYNC(AppEnum.LINK, 3),
+    /** Link app: server is draining, the client should reconnect after the given delay. */
+    LINK_RECONNECT(AppEnum.LINK, 4),
 
     /** Chat room app: join room. */
     CHAT_ROOM_JOIN(AppEnum.CHAT_ROOM, 0),
@@ -44,15 +48,34 @@ public enum MessageTypeEnum {
         this.type = type;
     }
 
-    public static MessageTypeEnum fromAppAndType(Integer app, Integer type) {
-        if (app == null || type == null) {
-            return null;
+    /** [app 编号][type] -> 消息类型 **/
+    private static final MessageTypeEnum[][] BY_APP_AND_TYPE;
+
+    static {
+        int maxApp = 0;
+        for (AppEnum app : AppEnum.values()) {
+            maxApp = Math.max(maxApp, app.getApp());
         }
-        for (MessageTypeEnum typeEnum : values()) {
-            if (typeEnum.getApp().getApp().equals(app) && typeEnum.getType() == type) {
-                return typeEnum;
+        BY_APP_AND_TYPE = new MessageTypeEnum[maxApp + 1][];
+        for (AppEnum app : AppEnum.values()) {
+            int maxType = -1;
+            for (MessageTypeEnum typeEnum : values()) {
+                if (typeEnum.app == app) {
+                    maxType = Math.max(maxType, typeEnum.type);
+                }
             }
+            BY_APP_AND_TYPE[app.getApp()] = new MessageTypeEnum[maxType + 1];
+        }
+        for (MessageTypeEnum typeEnum : values()) {
+            BY_APP_AND_TYPE[typeEnum.app.getApp()][typeEnum.type] = typeEnum;
+        }
+    }
+
+    public static MessageTypeEnum fromAppAndType(Integer app, Integer type) {
+        if (app == null || type == null || app < 0 || app >= BY_APP_AND_TYPE.length) {
+            return null;
         }
-        return null;
+        MessageTypeEnum[] types = BY_APP_AND_TYPE[app];
+        return types == null || type < 0 || type >= types.length ? null : types[type];
     }
 }
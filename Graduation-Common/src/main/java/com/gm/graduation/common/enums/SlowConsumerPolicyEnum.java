@@ -0,0 +1,24 @@
+package com.gm.graduation.common.enums;
+
+/**
+ * @author: xexgm
+ * desc: 慢消费者策略，连接写缓冲超过高水位（channel 不可写）时对下行业务消息的处理方式
+ */
+public enum SlowConsumerPolicyEnum {
+
+    /** 丢弃该消息，连接保持 **/
+    DROP,
+    /** 直接断开连接 **/
+    DISCONNECT,
+    /** 丢弃该消息并记下时间点，连接恢复可写后通知客户端拉取历史消息 **/
+    FETCH_HISTORY;
+
+    public static SlowConsumerPolicyEnum fromName(String name) {
+        for (SlowConsumerPolicyEnum policy : values()) {
+            if (policy.name().equalsIgnoreCase(name.trim())) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("未知的慢消费者策略: " + name);
+    }
+}
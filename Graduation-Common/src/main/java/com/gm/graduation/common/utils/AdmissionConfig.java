@@ -0,0 +1,48 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 新连接准入配置。故障恢复后大量客户端同时重连，按全局速率、单 IP 速率与握手中连接数限制接入，
+ * 超出的连接直接返回 503，避免 TLS 握手、HTTP 升级与 token 校验挤占已在线用户
+ */
+public class AdmissionConfig {
+
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_ADMISSION_ENABLED", "netty.admission.enabled", true);
+    }
+
+    /** 全局每秒接入的新连接数 **/
+    public static int ratePerSecond() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_RATE_PER_SECOND", "netty.admission.rate-per-second", 1000);
+    }
+
+    /** 全局允许的突发连接数 **/
+    public static int burst() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_BURST", "netty.admission.burst", 2000);
+    }
+
+    /** 单个 IP 每秒接入的新连接数，为 0 时不按 IP 限制（前面有 L4 代理、看不到客户端地址时应关闭） **/
+    public static int perIpRatePerSecond() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_PER_IP_RATE_PER_SECOND", "netty.admission.per-ip.rate-per-second", 10);
+    }
+
+    /** 单个 IP 允许的突发连接数 **/
+    public static int perIpBurst() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_PER_IP_BURST", "netty.admission.per-ip.burst", 20);
+    }
+
+    /** 已接入但 websocket 握手尚未完成的连接数上限 **/
+    public static int maxPendingHandshakes() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_MAX_PENDING_HANDSHAKES", "netty.admission.max-pending-handshakes", 5000);
+    }
+
+    /** 被拒绝的连接等待客户端发来请求的最长毫秒数，超时未发送则直接回复 503 并关闭，不让静默连接占着文件描述符 **/
+    public static int rejectedCloseMillis() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_REJECTED_CLOSE_MILLIS", "netty.admission.rejected-close-millis", 1000);
+    }
+
+    /** 503 响应 Retry-After 的基础秒数，实际值再加上 0 ~ 该值的随机抖动 **/
+    public static int retryAfterSeconds() {
+        return ConfigUtil.getInt("NETTY_ADMISSION_RETRY_AFTER_SECONDS", "netty.admission.retry-after-seconds", 2);
+    }
+}
@@ -0,0 +1,62 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: ByteBuf 分配器与泄漏检测配置。数值类配置为 0 或负数时沿用 Netty 的默认值（包括 -Dio.netty.allocator.* 的设置）
+ */
+public class AllocatorConfig {
+
+    /** pooled：池化分配器；unpooled：每次向系统申请，只用于排查池化相关问题 **/
+    public static String type() {
+        return ConfigUtil.getValue("NETTY_ALLOCATOR_TYPE", "netty.allocator.type", "pooled");
+    }
+
+    /** 优先分配直接内存，socket 读写少一次拷贝 **/
+    public static boolean preferDirect() {
+        return ConfigUtil.getBoolean("NETTY_ALLOCATOR_PREFER_DIRECT", "netty.allocator.prefer-direct", true);
+    }
+
+    /** 直接内存 arena 数，arena 越多线程间争用越少，占用的 chunk 也越多；Netty 默认为 2 * CPU 核数（受最大直接内存限制） **/
+    public static int directArenas() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_DIRECT_ARENAS", "netty.allocator.direct-arenas", 0);
+    }
+
+    public static int heapArenas() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_HEAP_ARENAS", "netty.allocator.heap-arenas", 0);
+    }
+
+    /** 每个 chunk 的字节数，须为页大小（默认 8KB）乘以 2 的幂；Netty 默认 4MB **/
+    public static int chunkSizeBytes() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_CHUNK_SIZE_BYTES", "netty.allocator.chunk-size-bytes", 0);
+    }
+
+    /** 线程本地缓存中 small / normal 规格的缓存条数，为 0 时沿用默认，不能通过这里关闭 **/
+    public static int smallCacheSize() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_SMALL_CACHE_SIZE", "netty.allocator.small-cache-size", 0);
+    }
+
+    public static int normalCacheSize() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_NORMAL_CACHE_SIZE", "netty.allocator.normal-cache-size", 0);
+    }
+
+    /**
+     * 是否给非 event loop 线程也建线程本地缓存，默认开启，与 Netty 一致。
+     * 业务执行器跑在大量短命的虚拟线程上、线程本地缓存难以复用时，可设为 false
+     */
+    public static boolean useCacheForAllThreads() {
+        return ConfigUtil.getBoolean("NETTY_ALLOCATOR_USE_CACHE_FOR_ALL_THREADS", "netty.allocator.use-cache-for-all-threads", true);
+    }
+
+    /**
+     * 泄漏检测级别：disabled / simple / advanced / paranoid 同 Netty；
+     * sampled 为 advanced 加较大的采样间隔，只跟踪少量 ByteBuf 并记录其访问路径，可在生产环境常开。为空时沿用 Netty 设置
+     */
+    public static String leakDetection() {
+        return ConfigUtil.getValue("NETTY_ALLOCATOR_LEAK_DETECTION", "netty.allocator.leak-detection", null);
+    }
+
+    /** 每多少个 ByteBuf 跟踪一个，为 0 时 sampled 取 4096，其余级别取 Netty 默认的 128 **/
+    public static int leakSamplingInterval() {
+        return ConfigUtil.getInt("NETTY_ALLOCATOR_LEAK_SAMPLING_INTERVAL", "netty.allocator.leak-sampling-interval", 0);
+    }
+}
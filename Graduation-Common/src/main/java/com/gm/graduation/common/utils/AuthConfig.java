@@ -0,0 +1,23 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: websocket 握手鉴权配置。握手请求须带 /ws?token=，校验通过后用户 id 绑定到连接上，之后的消息都以它为准
+ */
+public class AuthConfig {
+
+    /** 关闭后不校验 token，建连消息中的 uid 即为连接的用户，只用于本地调试与压测 **/
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_AUTH_ENABLED", "netty.auth.enabled", true);
+    }
+
+    /** token 校验线程数，校验要查 Redis，不占用 I/O 线程 **/
+    public static int threads() {
+        return ConfigUtil.getInt("NETTY_AUTH_THREADS", "netty.auth.threads", 4);
+    }
+
+    /** 等待校验的握手请求上限，满了之后新的握手直接回复 503；关闭准入限制时由它约束排队的请求数 **/
+    public static int queueCapacity() {
+        return ConfigUtil.getInt("NETTY_AUTH_QUEUE_CAPACITY", "netty.auth.queue-capacity", 1024);
+    }
+}
@@ -0,0 +1,40 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 业务线程池配置，处理器的阻塞工作（落库、加密）在此执行，不占用 Netty I/O 线程
+ */
+public class BusinessExecutorConfig {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    /** 关闭后处理器退回到 I/O 线程上同步执行 **/
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_BUSINESS_EXECUTOR_ENABLED", "netty.business.executor.enabled", true);
+    }
+
+    /** 有序队列（lane）数量，同一会话总是落在同一个 lane，lane 内串行执行 **/
+    public static int lanes() {
+        return ConfigUtil.getInt("NETTY_BUSINESS_EXECUTOR_LANES", "netty.business.executor.lanes", CORES * 2);
+    }
+
+    /** 单个 lane 的队列上限，满了之后新消息被拒绝 **/
+    public static int queueCapacity() {
+        return ConfigUtil.getInt("NETTY_BUSINESS_EXECUTOR_QUEUE_CAPACITY", "netty.business.executor.queue-capacity", 10000);
+    }
+
+    /** 运行时支持虚拟线程(JDK 21+)时是否使用 **/
+    public static boolean virtualThreads() {
+        return ConfigUtil.getBoolean("NETTY_BUSINESS_EXECUTOR_VIRTUAL_THREADS", "netty.business.executor.virtual-threads", true);
+    }
+
+    /** 不使用虚拟线程时的平台线程数 **/
+    public static int threads() {
+        return ConfigUtil.getInt("NETTY_BUSINESS_EXECUTOR_THREADS", "netty.business.executor.threads", lanes());
+    }
+
+    /** 关闭时等待队列中剩余任务执行完的最长时间 **/
+    public static long shutdownTimeoutMillis() {
+        return ConfigUtil.getLong("NETTY_BUSINESS_EXECUTOR_SHUTDOWN_TIMEOUT_MS", "netty.business.executor.shutdown-timeout-ms", 10000);
+    }
+}
@@ -0,0 +1,37 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: WebSocket permessage-deflate 压缩配置。
+ * 协商在握手时完成，连接是否真正压缩下行消息由客户端建连消息中的 compression 字段决定
+ */
+public class CompressionConfig {
+
+    /** 是否允许协商 permessage-deflate **/
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_COMPRESSION_ENABLED", "netty.compression.enabled", true);
+    }
+
+    /** 小于该字节数的下行帧不压缩，压缩收益抵不过 CPU 开销与帧头膨胀 **/
+    public static int thresholdBytes() {
+        return ConfigUtil.getInt("NETTY_COMPRESSION_THRESHOLD_BYTES", "netty.compression.threshold-bytes", 1024);
+    }
+
+    /** deflate 压缩级别，0-9 **/
+    public static int level() {
+        return ConfigUtil.getInt("NETTY_COMPRESSION_LEVEL", "netty.compression.level", 6);
+    }
+
+    /**
+     * 是否在消息之间保留服务端的压缩上下文。保留时压缩率更高，但每个连接常驻一个 deflate 窗口（约 256KB），
+     * 默认不保留，握手时声明 server_no_context_takeover，每条消息压缩完即释放
+     */
+    public static boolean serverContextTakeover() {
+        return ConfigUtil.getBoolean("NETTY_COMPRESSION_SERVER_CONTEXT_TAKEOVER", "netty.compression.server-context-takeover", false);
+    }
+
+    /** 建连消息未携带 compression 字段时，是否压缩该连接的下行消息 **/
+    public static boolean defaultOn() {
+        return ConfigUtil.getBoolean("NETTY_COMPRESSION_DEFAULT_ON", "netty.compression.default-on", false);
+    }
+}
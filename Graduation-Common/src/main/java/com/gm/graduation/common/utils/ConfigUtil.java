@@ -0,0 +1,51 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 读取配置项，优先级：JVM 参数(-Dxxx) > 环境变量 > 默认值
+ */
+public class ConfigUtil {
+
+    public static String getValue(String envKey, String propertyKey, String defaultValue) {
+        String propertyValue = System.getProperty(propertyKey);
+        if (propertyValue != null && !propertyValue.isBlank()) {
+            return propertyValue;
+        }
+
+        String envValue = System.getenv(envKey);
+        if (envValue != null && !envValue.isBlank()) {
+            return envValue;
+        }
+
+        return defaultValue;
+    }
+
+    public static int getInt(String envKey, String propertyKey, int defaultValue) {
+        String value = getValue(envKey, propertyKey, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("配置项 " + propertyKey + " 不是合法的整数: " + value, e);
+        }
+    }
+
+    public static long getLong(String envKey, String propertyKey, long defaultValue) {
+        String value = getValue(envKey, propertyKey, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("配置项 " + propertyKey + " 不是合法的整数: " + value, e);
+        }
+    }
+
+    public static boolean getBoolean(String envKey, String propertyKey, boolean defaultValue) {
+        String value = getValue(envKey, propertyKey, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+}
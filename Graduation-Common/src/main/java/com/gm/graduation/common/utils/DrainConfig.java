@@ -0,0 +1,18 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 平滑下线配置。停止接收新连接后，已有连接在窗口期内分批关闭，客户端按通知错峰重连到其它节点
+ */
+public class DrainConfig {
+
+    /** 分批关闭连接的总时长，为 0 时不做平滑下线，关闭服务即断开全部连接 **/
+    public static long windowMillis() {
+        return ConfigUtil.getLong("NETTY_DRAIN_WINDOW_MS", "netty.drain.window-ms", 20000);
+    }
+
+    /** 分批数，每批连接在各自的时间片内收到重连时间并在时间片结束时关闭 **/
+    public static int waves() {
+        return ConfigUtil.getInt("NETTY_DRAIN_WAVES", "netty.drain.waves", 10);
+    }
+}
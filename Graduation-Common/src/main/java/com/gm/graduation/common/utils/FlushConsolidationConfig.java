@@ -0,0 +1,28 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 下行 flush 合并配置。多次 flush 合并为一次真正写 socket 的系统调用
+ */
+public class FlushConsolidationConfig {
+
+    /** 是否在 pipeline 中启用 flush 合并 **/
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_FLUSH_CONSOLIDATION_ENABLED", "netty.flush-consolidation.enabled", true);
+    }
+
+    /** 累计多少次 flush 后即使仍在合并也强制写出一次，控制最大攒批量 **/
+    public static int explicitFlushAfterFlushes() {
+        return ConfigUtil.getInt("NETTY_FLUSH_CONSOLIDATION_EXPLICIT_FLUSH_AFTER_FLUSHES",
+            "netty.flush-consolidation.explicit-flush-after-flushes", 256);
+    }
+
+    /**
+     * 不在读批次中的 flush（业务线程回写、广播扇出）是否也合并：
+     * 为 true 时推迟到 event loop 的下一个任务统一 flush，同一轮中到达的多条消息只写一次 socket
+     */
+    public static boolean consolidateWhenNoReadInProgress() {
+        return ConfigUtil.getBoolean("NETTY_FLUSH_CONSOLIDATION_WHEN_NO_READ_IN_PROGRESS",
+            "netty.flush-consolidation.consolidate-when-no-read-in-progress", true);
+    }
+}
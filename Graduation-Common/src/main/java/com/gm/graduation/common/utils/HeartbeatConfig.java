@@ -0,0 +1,18 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 服务端心跳配置，客户端静默时服务端主动发送 WebSocket ping，读空闲超时后关闭连接
+ */
+public class HeartbeatConfig {
+
+    /** 客户端多久没有发送任何数据时发送一次 ping，与服务端是否在下行推送无关 **/
+    public static int pingIntervalSeconds() {
+        return ConfigUtil.getInt("NETTY_HEARTBEAT_PING_INTERVAL_SECONDS", "netty.heartbeat.ping-interval-seconds", 30);
+    }
+
+    /** 多久没有收到任何数据（包括 pong）视为死连接，应大于 ping 间隔的两倍 **/
+    public static int readerIdleSeconds() {
+        return ConfigUtil.getInt("NETTY_HEARTBEAT_READER_IDLE_SECONDS", "netty.heartbeat.reader-idle-seconds", 90);
+    }
+}
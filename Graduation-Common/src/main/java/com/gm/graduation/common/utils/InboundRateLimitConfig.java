@@ -0,0 +1,54 @@
+package com.gm.graduation.common.utils;
+
+import com.gm.graduation.common.enums.MessageTypeEnum;
+
+/**
+ * @author: xexgm
+ * desc: 上行消息限流配置。每个用户（userId）按消息类型各有一个令牌桶，断线重连不会重置配额，
+ * 文件、语音等开销大的消息限得更紧；超限的消息被拒绝，短时间内反复超限的用户连接被断开
+ */
+public class InboundRateLimitConfig {
+
+    public static boolean enabled() {
+        return ConfigUtil.getBoolean("NETTY_INBOUND_RATE_ENABLED", "netty.inbound-rate.enabled", true);
+    }
+
+    /**
+     * 该类消息每秒允许的条数，如 netty.inbound-rate.chat-room-text.rate-per-second=10，为 0 时不限制
+     * 连接类消息只操作内存，默认不限制
+     */
+    public static int ratePerSecond(MessageTypeEnum type) {
+        return ConfigUtil.getInt("NETTY_INBOUND_RATE_" + type.name() + "_RATE_PER_SECOND",
+            "netty.inbound-rate." + key(type) + ".rate-per-second", defaultRate(type));
+    }
+
+    /** 该类消息允许的突发条数 **/
+    public static int burst(MessageTypeEnum type) {
+        return ConfigUtil.getInt("NETTY_INBOUND_RATE_" + type.name() + "_BURST",
+            "netty.inbound-rate." + key(type) + ".burst", defaultRate(type) * 2);
+    }
+
+    /** 窗口期内允许的超限次数，超过后断开连接 **/
+    public static int maxViolations() {
+        return ConfigUtil.getInt("NETTY_INBOUND_RATE_MAX_VIOLATIONS", "netty.inbound-rate.max-violations", 20);
+    }
+
+    /** 超限次数的统计窗口 **/
+    public static int violationWindowSeconds() {
+        return ConfigUtil.getInt("NETTY_INBOUND_RATE_VIOLATION_WINDOW_SECONDS", "netty.inbound-rate.violation-window-seconds", 10);
+    }
+
+    private static int defaultRate(MessageTypeEnum type) {
+        return switch (type) {
+            case CHAT_ROOM_TEXT -> 10;
+            case PRIVATE_CHAT_TEXT -> 20;
+            case CHAT_ROOM_JOIN, CHAT_ROOM_LEAVE -> 5;
+            case CHAT_ROOM_FILE, CHAT_ROOM_AUDIO, PRIVATE_CHAT_FILE, PRIVATE_CHAT_AUDIO -> 1;
+            default -> 0;
+        };
+    }
+
+    private static String key(MessageTypeEnum type) {
+        return type.name().toLowerCase().replace('_', '-');
+    }
+}
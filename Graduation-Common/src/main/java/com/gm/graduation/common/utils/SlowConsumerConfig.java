@@ -0,0 +1,41 @@
+package com.gm.graduation.common.utils;
+
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.SlowConsumerPolicyEnum;
+
+/**
+ * @author: xexgm
+ * desc: 下行写缓冲水位与慢消费者策略配置。
+ * 待发送字节超过高水位时 channel 变为不可写，降回低水位以下恢复可写；不可写期间的业务消息按业务线的策略处理
+ */
+public class SlowConsumerConfig {
+
+    /** 低水位，待发送字节降到此值以下时 channel 恢复可写 **/
+    public static int lowWaterMarkBytes() {
+        return ConfigUtil.getInt("NETTY_WRITE_BUFFER_LOW_WATER_MARK", "netty.write-buffer.low-water-mark", 64 * 1024);
+    }
+
+    /** 高水位，待发送字节超过此值时 channel 变为不可写 **/
+    public static int highWaterMarkBytes() {
+        return ConfigUtil.getInt("NETTY_WRITE_BUFFER_HIGH_WATER_MARK", "netty.write-buffer.high-water-mark", 256 * 1024);
+    }
+
+    /** 待发送字节的硬上限，超过后无论策略如何都断开连接 **/
+    public static long maxPendingBytes() {
+        return ConfigUtil.getLong("NETTY_WRITE_BUFFER_MAX_PENDING_BYTES", "netty.write-buffer.max-pending-bytes", 4L * 1024 * 1024);
+    }
+
+    /**
+     * 各业务线的慢消费者策略，如 netty.slow-consumer.policy.chat-room=DROP
+     * 聊天室消息默认直接丢弃；私聊默认丢弃后提示客户端拉取历史（消息已落库且记为未读）
+     */
+    public static SlowConsumerPolicyEnum policy(AppEnum app) {
+        String key = app.name().toLowerCase().replace('_', '-');
+        String value = ConfigUtil.getValue("NETTY_SLOW_CONSUMER_POLICY_" + app.name(),
+            "netty.slow-consumer.policy." + key, null);
+        if (value == null) {
+            return app == AppEnum.PRIVATE_CHAT ? SlowConsumerPolicyEnum.FETCH_HISTORY : SlowConsumerPolicyEnum.DROP;
+        }
+        return SlowConsumerPolicyEnum.fromName(value);
+    }
+}
@@ -0,0 +1,52 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: 监听 socket 与连接 socket 的 TCP 参数
+ */
+public class SocketConfig {
+
+    /** 全连接队列长度 **/
+    public static int soBacklog() {
+        return ConfigUtil.getInt("NETTY_SO_BACKLOG", "netty.socket.so-backlog", 1024);
+    }
+
+    /**
+     * epoll / io_uring 下用 SO_REUSEPORT 绑定的监听 socket 数量，每个监听 socket 各有一个 boss 线程和一条全连接队列，
+     * 由内核把新连接分散到各队列；为 1 时只绑定一次，nio 下忽略
+     */
+    public static int reusePortListeners() {
+        return ConfigUtil.getInt("NETTY_SOCKET_REUSE_PORT_LISTENERS", "netty.socket.reuse-port-listeners", 1);
+    }
+
+    /** 关闭 Nagle，小消息立即发出 **/
+    public static boolean tcpNoDelay() {
+        return ConfigUtil.getBoolean("NETTY_SOCKET_TCP_NODELAY", "netty.socket.tcp-nodelay", true);
+    }
+
+    /** TCP Fast Open 队列长度，为 0 时不开启，仅 epoll / io_uring 生效 **/
+    public static int tcpFastOpen() {
+        return ConfigUtil.getInt("NETTY_SOCKET_TCP_FASTOPEN", "netty.socket.tcp-fastopen", 0);
+    }
+
+    /** TCP_DEFER_ACCEPT 秒数，连接有数据到达后才交给 boss 线程，为 0 时不开启，仅 epoll / io_uring 生效 **/
+    public static int tcpDeferAcceptSeconds() {
+        return ConfigUtil.getInt("NETTY_SOCKET_TCP_DEFER_ACCEPT_SECONDS", "netty.socket.tcp-defer-accept-seconds", 0);
+    }
+
+    /**
+     * 连接读缓冲按最近读到的字节数自适应伸缩，初始值、下限、上限（字节）。
+     * IM 消息与握手请求都只有几百字节，初始值取小，读到大消息或 TLS 记录时自动扩大
+     */
+    public static int recvBufInitialBytes() {
+        return ConfigUtil.getInt("NETTY_SOCKET_RECV_BUF_INITIAL_BYTES", "netty.socket.recv-buf-initial-bytes", 512);
+    }
+
+    public static int recvBufMinBytes() {
+        return ConfigUtil.getInt("NETTY_SOCKET_RECV_BUF_MIN_BYTES", "netty.socket.recv-buf-min-bytes", 64);
+    }
+
+    public static int recvBufMaxBytes() {
+        return ConfigUtil.getInt("NETTY_SOCKET_RECV_BUF_MAX_BYTES", "netty.socket.recv-buf-max-bytes", 65536);
+    }
+}
@@ -0,0 +1,16 @@
+package com.gm.graduation.common.utils;
+
+/**
+ * @author: xexgm
+ * desc: Netty 服务端 I/O 传输实现
+ */
+public class TransportConfig {
+
+    /**
+     * auto | io_uring | epoll | nio。auto 在 Linux 上用 epoll，其余平台用 nio；
+     * 指定的实现在当前内核或平台上不可用时回退：io_uring -> epoll -> nio
+     */
+    public static String transport() {
+        return ConfigUtil.getValue("NETTY_TRANSPORT", "netty.transport", "auto");
+    }
+}
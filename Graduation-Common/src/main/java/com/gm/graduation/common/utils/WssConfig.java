@@ -25,17 +25,43 @@ public class WssConfig {
         return getValue("NETTY_SSL_KEY_STORE_TYPE", "netty.ssl.key-store-type", DEFAULT_KEY_STORE_TYPE);
     }
 
-    private static String getValue(String envKey, String propertyKey, String defaultValue) {
-        String propertyValue = System.getProperty(propertyKey);
-        if (propertyValue != null && !propertyValue.isBlank()) {
-            return propertyValue;
-        }
+    /** TLS 实现：auto 优先使用 OpenSSL(BoringSSL)，不可用时回退 JDK；openssl / jdk 强制指定 **/
+    public static String provider() {
+        return getValue("NETTY_SSL_PROVIDER", "netty.ssl.provider", "auto");
+    }
+
+    /** 服务端会话缓存条数，断线重连的客户端可凭 session id 复用会话，跳过完整握手 **/
+    public static long sessionCacheSize() {
+        return ConfigUtil.getLong("NETTY_SSL_SESSION_CACHE_SIZE", "netty.ssl.session-cache-size", 20480);
+    }
+
+    /** 会话缓存与会话票据的有效期 **/
+    public static long sessionTimeoutSeconds() {
+        return ConfigUtil.getLong("NETTY_SSL_SESSION_TIMEOUT_SECONDS", "netty.ssl.session-timeout-seconds", 3600);
+    }
 
-        String envValue = System.getenv(envKey);
-        if (envValue != null && !envValue.isBlank()) {
-            return envValue;
-        }
+    /**
+     * 会话票据密钥，Base64 编码的 48 字节（名称 16 + HMAC 16 + AES 16），仅 OpenSSL 生效；
+     * 多实例部署时配置为相同值，客户端重连到任一实例都能复用会话，由运维自行轮换。
+     * 未配置时使用进程内随机密钥，并按 {@link #sessionTicketKeyRotationSeconds()} 定期轮换
+     */
+    public static String sessionTicketKey() {
+        return getValue("NETTY_SSL_SESSION_TICKET_KEY", "netty.ssl.session-ticket-key", null);
+    }
+
+    /** 随机票据密钥的轮换间隔，上一个密钥保留用于解密，票据最长可用两个间隔；为 0 时不轮换 **/
+    public static long sessionTicketKeyRotationSeconds() {
+        return ConfigUtil.getLong("NETTY_SSL_SESSION_TICKET_KEY_ROTATION_SECONDS",
+            "netty.ssl.session-ticket-key-rotation-seconds", sessionTimeoutSeconds());
+    }
 
-        return defaultValue;
+    /** 执行握手中耗时计算（签名、证书校验）的线程数，仅 OpenSSL 生效，为 0 时在 I/O 线程上执行 **/
+    public static int handshakeThreads() {
+        return ConfigUtil.getInt("NETTY_SSL_HANDSHAKE_THREADS", "netty.ssl.handshake-threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    private static String getValue(String envKey, String propertyKey, String defaultValue) {
+        return ConfigUtil.getValue(envKey, propertyKey, defaultValue);
     }
 }
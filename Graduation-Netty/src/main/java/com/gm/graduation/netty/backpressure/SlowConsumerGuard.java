@@ -0,0 +1,173 @@
+package com.gm.graduation.netty.backpressure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.common.enums.SlowConsumerPolicyEnum;
+import com.gm.graduation.common.utils.SlowConsumerConfig;
+import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 慢消费者保护。下行业务消息写出前检查 channel 是否可写：
+ * 可写直接放行；不可写时按业务线配置的策略丢弃、断开或丢弃后通知客户端拉取历史；
+ * 待发送字节超过硬上限时无论策略如何都断开。连接类控制消息不经过这里，不会被丢弃。
+ */
+@Slf4j
+public final class SlowConsumerGuard {
+
+    /** 下标为 AppEnum.ordinal() **/
+    private static final SlowConsumerPolicyEnum[] POLICIES = new SlowConsumerPolicyEnum[AppEnum.values().length];
+    private static final long MAX_PENDING_BYTES = SlowConsumerConfig.maxPendingBytes();
+    /** 指标中列出的待发送字节最多的连接数 **/
+    private static final int TOP_PENDING = 10;
+
+    private static final LongAdder dropped = new LongAdder();
+    private static final LongAdder disconnected = new LongAdder();
+    private static final LongAdder resyncRequested = new LongAdder();
+    private static final LongAdder resyncSent = new LongAdder();
+
+    static {
+        for (AppEnum app : AppEnum.values()) {
+            POLICIES[app.ordinal()] = SlowConsumerConfig.policy(app);
+        }
+        NettyMetrics.register("outbound.droppedMessages", dropped::sum);
+        NettyMetrics.register("outbound.slowConsumerDisconnects", disconnected::sum);
+        NettyMetrics.register("outbound.resyncRequested", resyncRequested::sum);
+        NettyMetrics.register("outbound.resyncSent", resyncSent::sum);
+        NettyMetrics.register("outbound.pendingBytes", SlowConsumerGuard::pendingBytesSnapshot);
+    }
+
+    private SlowConsumerGuard() {}
+
+    /**
+     * 判断是否可以向该连接写出一条 app 业务线的下行消息
+     * @return false 表示消息应被丢弃，连接可能已按策略关闭
+     */
+    public static boolean admit(ChannelHandlerContext ctx, AppEnum app) {
+        return admit(ctx, POLICIES[app.ordinal()]);
+    }
+
+    static boolean admit(ChannelHandlerContext ctx, SlowConsumerPolicyEnum policy) {
+        Channel channel = ctx.channel();
+        if (channel.isWritable()) {
+            return true;
+        }
+
+        long pending = pendingBytes(channel);
+        if (pending >= MAX_PENDING_BYTES) {
+            disconnect(ctx, pending);
+            return false;
+        }
+
+        switch (policy) {
+            case DISCONNECT:
+                disconnect(ctx, pending);
+                break;
+            case FETCH_HISTORY:
+                dropped.increment();
+                requestResync(ctx);
+                break;
+            default:
+                dropped.increment();
+        }
+        return false;
+    }
+
+    /** 连接恢复可写，若期间有消息按 FETCH_HISTORY 被丢弃，通知客户端拉取历史消息；需在 event loop 上调用 **/
+    public static void onWritable(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        if (!channel.isActive() || !channel.isWritable() || !channel.hasAttr(ChannelAttributes.RESYNC_SINCE)) {
+            return;
+        }
+        Long since = channel.attr(ChannelAttributes.RESYNC_SINCE).getAndSet(null);
+        if (since == null) {
+            return;
+        }
+
+        CompleteMessage resync = new CompleteMessage();
+        resync.setAppId(AppEnum.LINK.getApp());
+        resync.setUid(UserLinkManager.getUserId(channel));
+        resync.setMessageType(MessageTypeEnum.LINK_RESYNC.getType());
+        resync.setContent("resync");
+        resync.setTimeStamp(since);
+        ctx.writeAndFlush(resync);
+        resyncSent.increment();
+    }
+
+    /** 连接写缓冲中尚未写入 socket 的字节数 **/
+    public static long pendingBytes(Channel channel) {
+        Channel.Unsafe unsafe = channel.unsafe();
+        ChannelOutboundBuffer buffer = unsafe == null ? null : unsafe.outboundBuffer();
+        return buffer == null ? 0L : buffer.totalPendingWriteBytes();
+    }
+
+    private static void requestResync(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        // 只记第一条被丢弃消息的时间，客户端从该时间点起补齐
+        if (channel.attr(ChannelAttributes.RESYNC_SINCE).setIfAbsent(System.currentTimeMillis()) == null) {
+            resyncRequested.increment();
+            // 标记与恢复可写可能交错，补一次检查，避免错过可写事件
+            if (channel.isWritable()) {
+                channel.eventLoop().execute(() -> onWritable(ctx));
+            }
+        }
+    }
+
+    private static void disconnect(ChannelHandlerContext ctx, long pending) {
+        disconnected.increment();
+        log.warn("连接 {} 消费过慢，待发送 {} 字节，断开连接, userId: {}",
+            ctx.channel().id().asShortText(), pending, UserLinkManager.getUserId(ctx.channel()));
+        ctx.close();
+    }
+
+    /** 汇总在线连接的待发送字节，并列出最多的若干连接 **/
+    private static Map<String, Object> pendingBytesSnapshot() {
+        long[] total = new long[1];
+        long[] max = new long[1];
+        int[] unwritable = new int[1];
+        PriorityQueue<long[]> top = new PriorityQueue<>(TOP_PENDING + 1, (a, b) -> Long.compare(a[1], b[1]));
+        UserLinkManager.forEachOnlineUser((userId, ctx) -> {
+            Channel channel = ctx.channel();
+            long pending = pendingBytes(channel);
+            total[0] += pending;
+            max[0] = Math.max(max[0], pending);
+            if (!channel.isWritable()) {
+                unwritable[0]++;
+            }
+            if (pending > 0) {
+                top.offer(new long[]{userId, pending});
+                if (top.size() > TOP_PENDING) {
+                    top.poll();
+                }
+            }
+        });
+
+        List<long[]> sorted = new ArrayList<>(top);
+        sorted.sort((a, b) -> Long.compare(b[1], a[1]));
+        Map<String, Long> topUsers = new LinkedHashMap<>();
+        for (long[] entry : sorted) {
+            topUsers.put(String.valueOf(entry[0]), entry[1]);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("total", total[0]);
+        snapshot.put("max", max[0]);
+        snapshot.put("unwritableChannels", unwritable[0]);
+        snapshot.put("topUsers", topUsers);
+        return snapshot;
+    }
+}
@@ -0,0 +1,137 @@
+package com.gm.graduation.netty.broadcast;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.netty.backpressure.SlowConsumerGuard;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 按 event loop 分组的广播扇出。
+ * 消息每种帧协议只编码一次；接收者按所属 event loop 分组，每个 event loop 只提交一个任务，
+ * 任务内先对本组所有 channel write，再逐个 flush。调用方本身就在目标 event loop 上时直接执行。
+ * 写出前经过慢消费者检查，不可写的 channel 按消息所属业务线的策略处理。
+ */
+@Slf4j
+public final class EventLoopFanOut {
+
+    private static final WireProtocol[] PROTOCOLS = WireProtocol.values();
+
+    private static final LongAdder tasks = new LongAdder();
+    private static final LongAdder recipients = new LongAdder();
+
+    static {
+        NettyMetrics.register("broadcast.eventLoopTasks", tasks::sum);
+        NettyMetrics.register("broadcast.recipients", recipients::sum);
+    }
+
+    private EventLoopFanOut() {}
+
+    /**
+     * 把消息广播给 targets
+     * @return 实际提交发送的接收者数量
+     */
+    public static int send(ByteBufAllocator alloc, CompleteMessage msg, List<ChannelHandlerContext> targets) throws Exception {
+        PooledMessage pooled = PooledMessage.copyOf(msg);
+        try {
+            return send(alloc, pooled, targets);
+        } finally {
+            pooled.recycle();
+        }
+    }
+
+    /** 同上，消息只用于编码，返回后由调用方回收 **/
+    public static int send(ByteBufAllocator alloc, PooledMessage msg, List<ChannelHandlerContext> targets) throws Exception {
+        if (targets.isEmpty()) {
+            return 0;
+        }
+
+        AppEnum app = AppEnum.fromApp(msg.getAppId());
+        Map<EventLoop, List<ChannelHandlerContext>> groups = new IdentityHashMap<>();
+        WebSocketFrame[] frames = new WebSocketFrame[PROTOCOLS.length];
+        int submitted = 0;
+        try {
+            for (ChannelHandlerContext target : targets) {
+                WireProtocol protocol = WireProtocol.of(target.channel());
+                if (frames[protocol.ordinal()] == null) {
+                    frames[protocol.ordinal()] = MessageToWebSocketFrameEncoder.encodeFrame(alloc, msg, protocol);
+                }
+                groups.computeIfAbsent(target.channel().eventLoop(), k -> new ArrayList<>()).add(target);
+            }
+
+            for (Map.Entry<EventLoop, List<ChannelHandlerContext>> group : groups.entrySet()) {
+                EventLoop eventLoop = group.getKey();
+                List<ChannelHandlerContext> members = group.getValue();
+                // 每个任务各自持有一份帧引用，任务结束时释放
+                WebSocketFrame[] taskFrames = retainAll(frames);
+                Runnable task = () -> writeGroup(members, taskFrames, app);
+                try {
+                    if (eventLoop.inEventLoop()) {
+                        task.run();
+                    } else {
+                        eventLoop.execute(task);
+                    }
+                } catch (Exception e) {
+                    releaseAll(taskFrames);
+                    log.warn("广播任务提交失败，event loop 可能已关闭: {}", e.getMessage());
+                    continue;
+                }
+                tasks.increment();
+                submitted += members.size();
+            }
+        } finally {
+            // 释放编码时持有的那一份引用
+            releaseAll(frames);
+        }
+        recipients.add(submitted);
+        return submitted;
+    }
+
+    private static void writeGroup(List<ChannelHandlerContext> members, WebSocketFrame[] frames, AppEnum app) {
+        try {
+            for (ChannelHandlerContext ctx : members) {
+                if (ctx.channel().isActive() && (app == null || SlowConsumerGuard.admit(ctx, app))) {
+                    WebSocketFrame frame = frames[WireProtocol.of(ctx.channel()).ordinal()];
+                    ctx.write(frame.retainedDuplicate(), ctx.voidPromise());
+                }
+            }
+            for (ChannelHandlerContext ctx : members) {
+                ctx.flush();
+            }
+        } finally {
+            releaseAll(frames);
+        }
+    }
+
+    private static WebSocketFrame[] retainAll(WebSocketFrame[] frames) {
+        WebSocketFrame[] retained = new WebSocketFrame[frames.length];
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] != null) {
+                retained[i] = frames[i].retain();
+            }
+        }
+        return retained;
+    }
+
+    private static void releaseAll(WebSocketFrame[] frames) {
+        for (WebSocketFrame frame : frames) {
+            if (frame != null) {
+                frame.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.gm.graduation.netty.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import io.netty.util.collection.LongObjectHashMap;
+import io.netty.util.collection.LongObjectMap;
+
+/**
+ * @author: xexgm
+ * desc: 以原始 long 为 key 的并发 map。按 key 散列到若干段，每段一个 LongObjectHashMap（开放寻址，key 不装箱、无 Entry 对象）
+ * 加一把 StampedLock，查找走乐观读。遍历为弱一致：逐段复制后在锁外回调，回调中可以安全地读写本 map。
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    /** 原子更新函数，返回 null 表示删除 **/
+    @FunctionalInterface
+    public interface LongObjectRemapping<V> {
+        V apply(long key, V oldValue);
+    }
+
+    /** 遍历回调，避免 BiConsumer<Long, V> 的装箱 **/
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentLongObjectMap() {
+        this(64, 1024);
+    }
+
+    public ConcurrentLongObjectMap(int concurrencyLevel, int initialCapacity) {
+        this(concurrencyLevel, initialCapacity, LongObjectHashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /** loadFactor 越高越省内存，探测链越长 **/
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongObjectMap(int concurrencyLevel, int initialCapacity, float loadFactor) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, concurrencyLevel - 1) << 1);
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        int perSegment = Math.max(8, initialCapacity / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment, loadFactor);
+        }
+    }
+
+    public V get(long key) {
+        Segment<V> segment = segmentFor(key);
+        // 先乐观读，不写共享状态；期间有写入（含扩容导致的越界等不一致）则退回读锁
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                V value = segment.map.get(key);
+                if (segment.lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException ignored) {
+                // 与扩容并发时可能读到不一致的数组，交给下面的读锁重读
+            }
+        }
+        stamp = segment.lock.readLock();
+        try {
+            return segment.map.get(key);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /** @return 之前的值 **/
+    public V put(long key, V value) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            V previous = segment.map.put(key, value);
+            if (previous == null) {
+                size.incrementAndGet();
+            }
+            return previous;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /** @return 被移除的值 **/
+    public V remove(long key) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            V removed = segment.map.remove(key);
+            if (removed != null) {
+                size.decrementAndGet();
+            }
+            return removed;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /** 仅当 key 当前映射到同一个对象时才移除，map 中不存 null，expected 为 null 时直接返回 false **/
+    public boolean remove(long key, V expected) {
+        if (expected == null) {
+            return false;
+        }
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.map.get(key) != expected) {
+                return false;
+            }
+            segment.map.remove(key);
+            size.decrementAndGet();
+            return true;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /** 在段写锁内原子地计算新值，函数内不能再访问本 map **/
+    public V compute(long key, LongObjectRemapping<V> remapping) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            V oldValue = segment.map.get(key);
+            V newValue = remapping.apply(key, oldValue);
+            if (newValue == null) {
+                if (oldValue != null) {
+                    segment.map.remove(key);
+                    size.decrementAndGet();
+                }
+            } else if (newValue != oldValue) {
+                segment.map.put(key, newValue);
+                if (oldValue == null) {
+                    size.incrementAndGet();
+                }
+            }
+            return newValue;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /** 弱一致遍历：每段在读锁下复制，锁外回调 **/
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectConsumer<? super V> consumer) {
+        for (Segment<V> segment : segments) {
+            long[] keys;
+            Object[] values;
+            long stamp = segment.lock.readLock();
+            try {
+                int n = segment.map.size();
+                if (n == 0) {
+                    continue;
+                }
+                keys = new long[n];
+                values = new Object[n];
+                int i = 0;
+                for (LongObjectMap.PrimitiveEntry<V> entry : segment.map.entries()) {
+                    keys[i] = entry.key();
+                    values[i] = entry.value();
+                    i++;
+                }
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /** 当前所有 key 的快照 **/
+    public long[] keys() {
+        long[] keys = new long[size()];
+        int[] index = {0};
+        forEach((key, value) -> {
+            if (index[0] == keys.length) {
+                return;
+            }
+            keys[index[0]++] = key;
+        });
+        return index[0] == keys.length ? keys : Arrays.copyOf(keys, index[0]);
+    }
+
+    private Segment<V> segmentFor(long key) {
+        // 段号取打散后的高位；LongObjectHashMap 用低位定位槽，若段号也取低位，同段 key 的低位全相同，会严重聚集
+        if (segmentShift == 64) {
+            return segments[0];
+        }
+        long h = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (h >>> segmentShift)];
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private final LongObjectHashMap<V> map;
+
+        private Segment(int initialCapacity, float loadFactor) {
+            this.map = new LongObjectHashMap<>(initialCapacity, loadFactor);
+        }
+    }
+}
@@ -1,39 +1,224 @@
 package com.gm.graduation.netty.cache;
 
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
 
-import io.netty.channel.ChannelHandlerContext;
-import io.netty.util.AttributeKey;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
 
 /**
  * @author: xexgm
  * @date: 2025/9/30
  * desc: 管理各个聊天室所属的成员
+ * 正向索引 chatRoom -> 成员，成员存放在压缩位图中，每个聊天室一把读写锁；
+ * 反向索引 user -> 所在聊天室，断线时据此一次性退出所有聊天室。聊天室变空后立即移除。
+ * 同一用户的正向与反向索引在反向索引该用户的 compute 内一起更新，加入、退出与断线清理按用户互斥，两边不会不一致
  */
 public class UserChatRoomManager {
 
-    /** chatRoom -> Set<User> **/
-    private static ConcurrentHashMap<Long, Set<Long>> chatRoom2User = new ConcurrentHashMap<>();
+    private static final long[] EMPTY = new long[0];
 
-    /** 用户加入聊天室 **/
-    public static boolean addChatRoomUser(Long roomId, Long userId) {
-        return chatRoom2User.computeIfAbsent(roomId, k -> new HashSet<>()).add(userId);
+    /** chatRoom -> members **/
+    private static final ConcurrentLongObjectMap<Room> chatRoom2User = new ConcurrentLongObjectMap<>();
+
+    /**
+     * user -> rooms。用户通常只在一个聊天室，此时值直接引用共享的 Room 对象，不为每个用户分配数组；
+     * 在多个聊天室时值为写时复制的 long[]
+     */
+    private static final ConcurrentLongObjectMap<Object> user2ChatRoom = new ConcurrentLongObjectMap<>(64, 1024, 0.75f);
+
+    static {
+        NettyMetrics.register("chatroom.rooms", chatRoom2User::size);
+        NettyMetrics.register("chatroom.usersInRooms", user2ChatRoom::size);
     }
 
-    /** 拿到聊天室的用户列表 **/
-    public static Set<Long> getChatRoomUserSet(Long roomId) {
-        return chatRoom2User.get(roomId);
+    /** 用户加入聊天室 **/
+    public static boolean addChatRoomUser(Long roomId, Long userId) {
+        if (roomId == null || userId == null) {
+            return false;
+        }
+        boolean[] added = new boolean[1];
+        user2ChatRoom.compute(userId, (id, rooms) -> {
+            Room joined = addMember(roomId, id);
+            if (joined == null) {
+                return rooms;
+            }
+            added[0] = true;
+            return addRoom(rooms, joined);
+        });
+        return added[0];
     }
 
     /** 用户退出聊天室 **/
     public static boolean removeChatRoomUser(Long roomId, Long userId) {
-        return Optional.ofNullable(chatRoom2User.get(roomId))
-            .map(userSet -> userSet.remove(userId))
-            .orElse(false);
+        if (roomId == null || userId == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        user2ChatRoom.compute(userId, (id, rooms) -> {
+            if (!removeMember(roomId, id)) {
+                return rooms;
+            }
+            removed[0] = true;
+            return removeRoom(rooms, roomId);
+        });
+        return removed[0];
+    }
+
+    /** 用户退出所在的所有聊天室（断线清理） **/
+    public static int removeUserFromAllChatRooms(Long userId) {
+        if (userId == null) {
+            return 0;
+        }
+        int[] removed = new int[1];
+        user2ChatRoom.compute(userId, (id, rooms) -> {
+            if (rooms != null) {
+                for (long roomId : toRoomIds(rooms)) {
+                    if (removeMember(roomId, id)) {
+                        removed[0]++;
+                    }
+                }
+            }
+            return null;
+        });
+        return removed[0];
+    }
+
+    /** 聊天室成员快照，聊天室不存在时返回空数组 **/
+    public static long[] getChatRoomUsers(Long roomId) {
+        Room room = roomId == null ? null : chatRoom2User.get(roomId);
+        if (room == null) {
+            return EMPTY;
+        }
+        room.lock.readLock().lock();
+        try {
+            return room.members.toArray();
+        } finally {
+            room.lock.readLock().unlock();
+        }
     }
 
+    /** 遍历聊天室成员，遍历的是快照，回调中可以增删成员 **/
+    public static void forEachChatRoomUser(Long roomId, LongConsumer consumer) {
+        for (long userId : getChatRoomUsers(roomId)) {
+            consumer.accept(userId);
+        }
+    }
 
+    /** 聊天室当前成员数 **/
+    public static int getChatRoomUserCount(Long roomId) {
+        Room room = roomId == null ? null : chatRoom2User.get(roomId);
+        if (room == null) {
+            return 0;
+        }
+        room.lock.readLock().lock();
+        try {
+            return (int) room.members.getLongCardinality();
+        } finally {
+            room.lock.readLock().unlock();
+        }
+    }
+
+    /** 用户当前所在的聊天室 **/
+    public static long[] getUserChatRooms(Long userId) {
+        Object rooms = userId == null ? null : user2ChatRoom.get(userId);
+        return rooms == null ? EMPTY : toRoomIds(rooms).clone();
+    }
+
+    /** 向正向索引加入成员，返回加入的聊天室；已是成员时返回 null **/
+    private static Room addMember(long roomId, long userId) {
+        for (;;) {
+            Room room = chatRoom2User.compute(roomId, (id, existing) -> existing == null ? new Room(id) : existing);
+            room.lock.writeLock().lock();
+            try {
+                // 与移除空聊天室并发时，拿到的可能是已被摘掉的实例，重新获取
+                if (room.dead) {
+                    continue;
+                }
+                if (room.members.contains(userId)) {
+                    return null;
+                }
+                room.members.addLong(userId);
+                return room;
+            } finally {
+                room.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** 从正向索引中移除成员，聊天室变空则摘除 **/
+    private static boolean removeMember(long roomId, long userId) {
+        Room room = chatRoom2User.get(roomId);
+        if (room == null) {
+            return false;
+        }
+        room.lock.writeLock().lock();
+        try {
+            if (room.dead || !room.members.contains(userId)) {
+                return false;
+            }
+            room.members.removeLong(userId);
+            if (room.members.isEmpty()) {
+                room.dead = true;
+                chatRoom2User.remove(roomId, room);
+            }
+            return true;
+        } finally {
+            room.lock.writeLock().unlock();
+        }
+    }
+
+    private static Object addRoom(Object rooms, Room room) {
+        if (rooms == null) {
+            return room;
+        }
+        long[] roomIds = toRoomIds(rooms);
+        for (long roomId : roomIds) {
+            if (roomId == room.id) {
+                return rooms;
+            }
+        }
+        long[] copy = Arrays.copyOf(roomIds, roomIds.length + 1);
+        copy[roomIds.length] = room.id;
+        return copy;
+    }
+
+    private static Object removeRoom(Object rooms, long roomId) {
+        if (rooms == null) {
+            return null;
+        }
+        if (rooms instanceof Room room) {
+            return room.id == roomId ? null : room;
+        }
+        long[] roomIds = (long[]) rooms;
+        for (int i = 0; i < roomIds.length; i++) {
+            if (roomIds[i] == roomId) {
+                if (roomIds.length == 1) {
+                    return null;
+                }
+                long[] copy = new long[roomIds.length - 1];
+                System.arraycopy(roomIds, 0, copy, 0, i);
+                System.arraycopy(roomIds, i + 1, copy, i, roomIds.length - i - 1);
+                return copy;
+            }
+        }
+        return rooms;
+    }
+
+    private static long[] toRoomIds(Object rooms) {
+        return rooms instanceof Room room ? new long[]{room.id} : (long[]) rooms;
+    }
+
+    private static final class Room {
+        private final long id;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Roaring64Bitmap members = new Roaring64Bitmap();
+        /** 已变空并被摘除，之后的加入需要新建实例 **/
+        private boolean dead;
+
+        private Room(long id) {
+            this.id = id;
+        }
+    }
 }
@@ -1,27 +1,43 @@
 package com.gm.graduation.netty.cache;
 
-import java.util.concurrent.ConcurrentHashMap;
-
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * @author: xexgm
  * @date: 2025/10/1
+ * desc: 在线连接登记处。user -> channelCtx 以原始 long 为 key 存放；
+ * 反向关系 channel -> userId 记在 channel 属性上，断线清理无需遍历
  */
 @Slf4j
 public class UserLinkManager {
 
     /** user -> channel **/
-    private static ConcurrentHashMap<Long, ChannelHandlerContext> user2Channel = new ConcurrentHashMap<>();
+    private static final ConcurrentLongObjectMap<ChannelHandlerContext> user2Channel = new ConcurrentLongObjectMap<>(256, 1 << 16);
+
+    static {
+        NettyMetrics.register("link.onlineUsers", UserLinkManager::getOnlineUserCount);
+    }
 
-    /** 添加 user -> channelCtx **/
+    /** 添加 user -> channelCtx，并在 channel 上记下 userId **/
     public static void addUserChannel(Long userId, ChannelHandlerContext channelHandlerContext) {
         if (userId == null || channelHandlerContext == null) {
             return;
         }
 
         user2Channel.put(userId, channelHandlerContext);
+        Attribute<Long> attr = userIdAttr(channelHandlerContext);
+        if (attr != null) {
+            Long previous = attr.getAndSet(userId);
+            // 同一连接换了身份，解除旧身份的绑定
+            if (previous != null && !previous.equals(userId)) {
+                user2Channel.remove(previous, channelHandlerContext);
+            }
+        }
     }
 
     /** 删除 user -> channelCtx **/
@@ -31,27 +47,53 @@ public class UserLinkManager {
         }
     }
 
+    /** 仅当 user 当前绑定的就是该 channelCtx 时才删除，避免误删同一用户的新连接 **/
+    public static boolean removeUserChannel(Long userId, ChannelHandlerContext channelHandlerContext) {
+        if (userId == null || channelHandlerContext == null) {
+            return false;
+        }
+        return user2Channel.remove(userId, channelHandlerContext);
+    }
+
     /** 获取 user -> channelCtx **/
     public static ChannelHandlerContext getUserChannelCtx(Long userId) {
-        return user2Channel.get(userId);
+        return userId == null ? null : user2Channel.get(userId);
     }
 
-    /** 根据channel移除对应的用户连接 **/
-    public static void removeChannelFromAllUsers(ChannelHandlerContext ctx) {
+    /**
+     * 根据 channel 上记录的 userId 移除对应的用户连接
+     * @return 被移除的 userId；该 channel 未登记或用户已在新连接上登录时返回 null
+     */
+    public static Long removeChannel(ChannelHandlerContext ctx) {
         if (ctx == null) {
-            return;
+            return null;
         }
 
-        // 遍历所有用户连接，找到对应的channel并移除
-        user2Channel.entrySet().removeIf(entry -> {
-            ChannelHandlerContext userCtx = entry.getValue();
-            if (userCtx != null && userCtx.equals(ctx)) {
-                Long userId = entry.getKey();
-                log.info("检测到用户 {} 的连接已断开，从连接管理器中移除", userId);
-                return true;
-            }
-            return false;
-        });
+        Attribute<Long> attr = userIdAttr(ctx);
+        Long userId = attr == null ? null : attr.get();
+        if (userId != null && user2Channel.remove(userId, ctx)) {
+            log.info("检测到用户 {} 的连接已断开，从连接管理器中移除", userId);
+            return userId;
+        }
+        return null;
+    }
+
+    /** 获取 channel 上绑定的 userId，握手鉴权未通过（关闭鉴权时为未建连）时返回 null **/
+    public static Long getUserId(Channel channel) {
+        if (channel == null || !channel.hasAttr(ChannelAttributes.USER_ID)) {
+            return null;
+        }
+        return channel.attr(ChannelAttributes.USER_ID).get();
+    }
+
+    /** 弱一致地遍历所有在线用户，遍历期间的增删不一定可见 **/
+    public static void forEachOnlineUser(ConcurrentLongObjectMap.LongObjectConsumer<ChannelHandlerContext> consumer) {
+        user2Channel.forEach(consumer);
+    }
+
+    /** 在线用户 id 快照 **/
+    public static long[] getOnlineUserIds() {
+        return user2Channel.keys();
     }
 
     /** 获取当前在线用户数量 **/
@@ -61,14 +103,15 @@ public class UserLinkManager {
 
     /** 清理所有无效连接 **/
     public static void cleanInactiveConnections() {
-        user2Channel.entrySet().removeIf(entry -> {
-            ChannelHandlerContext ctx = entry.getValue();
-            if (ctx == null || !ctx.channel().isActive()) {
-                Long userId = entry.getKey();
+        user2Channel.forEach((userId, ctx) -> {
+            if (!ctx.channel().isActive() && user2Channel.remove(userId, ctx)) {
                 log.info("清理用户 {} 的无效连接", userId);
-                return true;
             }
-            return false;
         });
     }
+
+    private static Attribute<Long> userIdAttr(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        return channel == null ? null : channel.attr(ChannelAttributes.USER_ID);
+    }
 }
@@ -0,0 +1,110 @@
+package com.gm.graduation.netty.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+
+/**
+ * @author: xexgm
+ * desc: CompleteMessage 的紧凑二进制编码，承载在 BinaryWebSocketFrame 中
+ *
+ * <pre>
+ * +---------+-----------------+--------------------------------------+
+ * | version | presence varint | 依次写入 presence 中置位的字段          |
+ * +---------+-----------------+--------------------------------------+
+ * </pre>
+ * 字段顺序与位序号（同 PooledMessage 的 presence 位图）：appId(0) uid(1) token(2) compression(3) encryption(4)
+ * messageType(5) toId(6) content(7) timeStamp(8)。
+ * 整数字段均为无符号 varint（appId、messageType 这类枚举值通常只占 1 字节），
+ * 字符串字段为 varint 长度前缀 + UTF-8 字节。
+ */
+public final class BinaryMessageCodec {
+
+    public static final int VERSION = 1;
+
+    private BinaryMessageCodec() {}
+
+    /** 将消息编码写入 out，presence 位图直接沿用消息中的字段设置情况 **/
+    public static void encode(PooledMessage msg, ByteBuf out) {
+        int presence = msg.presence();
+        out.writeByte(VERSION);
+        writeVarLong(out, presence);
+        if ((presence & PooledMessage.APP_ID) != 0) writeVarInt(out, msg.getAppId());
+        if ((presence & PooledMessage.UID) != 0) writeVarLong(out, msg.getUid());
+        if ((presence & PooledMessage.TOKEN) != 0) writeString(out, msg.getToken());
+        if ((presence & PooledMessage.COMPRESSION) != 0) writeVarInt(out, msg.getCompression());
+        if ((presence & PooledMessage.ENCRYPTION) != 0) writeVarInt(out, msg.getEncryption());
+        if ((presence & PooledMessage.MESSAGE_TYPE) != 0) writeVarInt(out, msg.getMessageType());
+        if ((presence & PooledMessage.TO_ID) != 0) writeVarLong(out, msg.getToId());
+        if ((presence & PooledMessage.CONTENT) != 0) writeString(out, msg.getContent());
+        if ((presence & PooledMessage.TIME_STAMP) != 0) writeVarLong(out, msg.getTimeStamp());
+    }
+
+    /** 从 in 的可读区域解码一条消息 **/
+    public static CompleteMessage decode(ByteBuf in) {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new CorruptedFrameException("不支持的二进制协议版本: " + version);
+        }
+
+        int presence = (int) readVarLong(in);
+        CompleteMessage msg = new CompleteMessage();
+        if ((presence & PooledMessage.APP_ID) != 0) msg.setAppId(readVarInt(in));
+        if ((presence & PooledMessage.UID) != 0) msg.setUid(readVarLong(in));
+        if ((presence & PooledMessage.TOKEN) != 0) msg.setToken(readString(in));
+        if ((presence & PooledMessage.COMPRESSION) != 0) msg.setCompression(readVarInt(in));
+        if ((presence & PooledMessage.ENCRYPTION) != 0) msg.setEncryption(readVarInt(in));
+        if ((presence & PooledMessage.MESSAGE_TYPE) != 0) msg.setMessageType(readVarInt(in));
+        if ((presence & PooledMessage.TO_ID) != 0) msg.setToId(readVarLong(in));
+        if ((presence & PooledMessage.CONTENT) != 0) msg.setContent(readString(in));
+        if ((presence & PooledMessage.TIME_STAMP) != 0) msg.setTimeStamp(readVarLong(in));
+        return msg;
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        return (int) readVarLong(in);
+    }
+
+    static long readVarLong(ByteBuf in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("varint 超过 10 字节");
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        int length = ByteBufUtil.utf8Bytes(value);
+        writeVarInt(out, length);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    private static String readString(ByteBuf in) {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.readableBytes()) {
+            throw new CorruptedFrameException("字符串长度越界: " + length);
+        }
+        String value = in.toString(in.readerIndex(), (int) length, StandardCharsets.UTF_8);
+        in.skipBytes((int) length);
+        return value;
+    }
+}
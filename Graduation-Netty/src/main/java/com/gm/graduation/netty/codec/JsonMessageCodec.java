@@ -0,0 +1,181 @@
+package com.gm.graduation.netty.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.exc.InputCoercionException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.utils.JsonUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.handler.codec.CorruptedFrameException;
+
+/**
+ * @author: xexgm
+ * desc: 基于 Jackson streaming API 的 CompleteMessage json 编解码，直接读写 ByteBuf，
+ * 不再经过 frame.text() / writeValueAsString 产生的中间 String。
+ * 输出时跳过值为 null 的字段；输入时忽略未知字段。
+ */
+public final class JsonMessageCodec {
+
+    private static final JsonFactory FACTORY = JsonUtil.getObjectMapper().getFactory();
+
+    /** 预先编码好的字段名，写出时无需再做字符转义与编码 **/
+    private static final SerializedString APP_ID = new SerializedString("appId");
+    private static final SerializedString UID = new SerializedString("uid");
+    private static final SerializedString TOKEN = new SerializedString("token");
+    private static final SerializedString COMPRESSION = new SerializedString("compression");
+    private static final SerializedString ENCRYPTION = new SerializedString("encryption");
+    private static final SerializedString MESSAGE_TYPE = new SerializedString("messageType");
+    private static final SerializedString TO_ID = new SerializedString("toId");
+    private static final SerializedString CONTENT = new SerializedString("content");
+    private static final SerializedString TIME_STAMP = new SerializedString("timeStamp");
+
+    private JsonMessageCodec() {}
+
+    /** 将消息以 UTF-8 json 写入 out，未设置的字段不输出 **/
+    public static void encode(PooledMessage msg, ByteBuf out) throws IOException {
+        try (JsonGenerator gen = FACTORY.createGenerator((OutputStream) new ByteBufOutputStream(out), JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            if (msg.has(PooledMessage.APP_ID)) {
+                gen.writeFieldName(APP_ID);
+                gen.writeNumber(msg.getAppId());
+            }
+            if (msg.has(PooledMessage.UID)) {
+                gen.writeFieldName(UID);
+                gen.writeNumber(msg.getUid());
+            }
+            if (msg.has(PooledMessage.TOKEN)) {
+                gen.writeFieldName(TOKEN);
+                gen.writeString(msg.getToken());
+            }
+            if (msg.has(PooledMessage.COMPRESSION)) {
+                gen.writeFieldName(COMPRESSION);
+                gen.writeNumber(msg.getCompression());
+            }
+            if (msg.has(PooledMessage.ENCRYPTION)) {
+                gen.writeFieldName(ENCRYPTION);
+                gen.writeNumber(msg.getEncryption());
+            }
+            if (msg.has(PooledMessage.MESSAGE_TYPE)) {
+                gen.writeFieldName(MESSAGE_TYPE);
+                gen.writeNumber(msg.getMessageType());
+            }
+            if (msg.has(PooledMessage.TO_ID)) {
+                gen.writeFieldName(TO_ID);
+                gen.writeNumber(msg.getToId());
+            }
+            if (msg.has(PooledMessage.CONTENT)) {
+                gen.writeFieldName(CONTENT);
+                gen.writeString(msg.getContent());
+            }
+            if (msg.has(PooledMessage.TIME_STAMP)) {
+                gen.writeFieldName(TIME_STAMP);
+                gen.writeNumber(msg.getTimeStamp());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /** 从 in 的可读区域解析一条消息，顶层为 null 时返回 null **/
+    public static CompleteMessage decode(ByteBuf in) throws IOException {
+        try (JsonParser parser = createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new CorruptedFrameException("消息必须是 json 对象, 实际为: " + token);
+            }
+
+            CompleteMessage msg = new CompleteMessage();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                // 字段名由 Jackson 的符号表规范化，可直接 switch
+                switch (field) {
+                    case "appId" -> msg.setAppId(readInt(parser, value));
+                    case "uid" -> msg.setUid(readLong(parser, value));
+                    case "token" -> msg.setToken(readString(parser, value));
+                    case "compression" -> msg.setCompression(readInt(parser, value));
+                    case "encryption" -> msg.setEncryption(readInt(parser, value));
+                    case "messageType" -> msg.setMessageType(readInt(parser, value));
+                    case "toId" -> msg.setToId(readLong(parser, value));
+                    case "content" -> msg.setContent(readString(parser, value));
+                    case "timeStamp" -> msg.setTimeStamp(readLong(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+            return msg;
+        }
+    }
+
+    private static JsonParser createParser(ByteBuf in) throws IOException {
+        // 堆内存直接基于底层数组解析，直接内存走流式读取
+        if (in.hasArray()) {
+            return FACTORY.createParser(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        }
+        return FACTORY.createParser((InputStream) new ByteBufInputStream(in));
+    }
+
+    private static Integer readInt(JsonParser parser, JsonToken value) throws IOException {
+        if (skipIfNotScalar(parser, value)) {
+            return null;
+        }
+        long result = readLongValue(parser, value);
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw new CorruptedFrameException("字段 " + parser.currentName() + " 超出 int 范围: " + result);
+        }
+        return (int) result;
+    }
+
+    private static Long readLong(JsonParser parser, JsonToken value) throws IOException {
+        return skipIfNotScalar(parser, value) ? null : readLongValue(parser, value);
+    }
+
+    /**
+     * 数字字段只接受 json 整数，兼容 "123" 这种十进制字符串写法；
+     * 小数、布尔值、非数字字符串与超出范围的值都视为非法帧，不再像 getValueAsInt 那样静默转成 0
+     */
+    private static long readLongValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            try {
+                return parser.getLongValue();
+            } catch (InputCoercionException e) {
+                throw new CorruptedFrameException("字段 " + parser.currentName() + " 超出 long 范围: " + parser.getText());
+            }
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText());
+            } catch (NumberFormatException e) {
+                throw new CorruptedFrameException("字段 " + parser.currentName() + " 不是整数: " + parser.getText());
+            }
+        }
+        throw new CorruptedFrameException("字段 " + parser.currentName() + " 应为整数, 实际为: " + value);
+    }
+
+    private static String readString(JsonParser parser, JsonToken value) throws IOException {
+        return skipIfNotScalar(parser, value) ? null : parser.getValueAsString();
+    }
+
+    /** null、对象、数组都视为缺省值，对象与数组需要整体跳过 **/
+    private static boolean skipIfNotScalar(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return true;
+        }
+        if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,189 @@
+package com.gm.graduation.netty.codec;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import io.netty.util.Recycler;
+
+/**
+ * @author: xexgm
+ * desc: 下行消息的池化表示，字段为基本类型，实例由 Netty Recycler 回收复用，用于处理器回复、推送与广播。
+ * 字段是否设置记在 presence 位图中，未设置的字段编码时不输出，与 CompleteMessage 的 null 字段一致。
+ * JSON 与二进制编码都只接受本类，CompleteMessage 在编码前经 copyOf() 转换。
+ * 通过 newInstance() 获取；交给 writeAndFlush 后由 MessageToWebSocketFrameEncoder 编码完即回收，之后不能再访问，
+ * 因此一个实例只能写出一次。广播交给 EventLoopFanOut 编码，由调用方 recycle()
+ */
+public final class PooledMessage {
+
+    private static final Recycler<PooledMessage> RECYCLER = new Recycler<>() {
+        @Override
+        protected PooledMessage newObject(Handle<PooledMessage> handle) {
+            return new PooledMessage(handle);
+        }
+    };
+
+    /** presence 位图中各字段的位，二进制协议的 presence 字段直接沿用该位序 **/
+    static final int APP_ID = 1;
+    static final int UID = 1 << 1;
+    static final int TOKEN = 1 << 2;
+    static final int COMPRESSION = 1 << 3;
+    static final int ENCRYPTION = 1 << 4;
+    static final int MESSAGE_TYPE = 1 << 5;
+    static final int TO_ID = 1 << 6;
+    static final int CONTENT = 1 << 7;
+    static final int TIME_STAMP = 1 << 8;
+
+    private final Recycler.Handle<PooledMessage> handle;
+
+    private int presence;
+    private int appId;
+    private long uid;
+    private String token;
+    private int compression;
+    private int encryption;
+    private int messageType;
+    private long toId;
+    private String content;
+    private long timeStamp;
+
+    private PooledMessage(Recycler.Handle<PooledMessage> handle) {
+        this.handle = handle;
+    }
+
+    public static PooledMessage newInstance() {
+        return RECYCLER.get();
+    }
+
+    /** 复制 CompleteMessage 的全部非 null 字段，CompleteMessage 经此转换后交给编码器 **/
+    public static PooledMessage copyOf(CompleteMessage msg) {
+        PooledMessage copy = newInstance();
+        if (msg.getAppId() != null) copy.setAppId(msg.getAppId());
+        if (msg.getUid() != null) copy.setUid(msg.getUid());
+        if (msg.getToken() != null) copy.setToken(msg.getToken());
+        if (msg.getCompression() != null) copy.setCompression(msg.getCompression());
+        if (msg.getEncryption() != null) copy.setEncryption(msg.getEncryption());
+        if (msg.getMessageType() != null) copy.setMessageType(msg.getMessageType());
+        if (msg.getToId() != null) copy.setToId(msg.getToId());
+        if (msg.getContent() != null) copy.setContent(msg.getContent());
+        if (msg.getTimeStamp() != null) copy.setTimeStamp(msg.getTimeStamp());
+        return copy;
+    }
+
+    /** 清空字段并放回对象池，之后不能再访问该实例 **/
+    public void recycle() {
+        presence = 0;
+        appId = 0;
+        uid = 0L;
+        token = null;
+        compression = 0;
+        encryption = 0;
+        messageType = 0;
+        toId = 0L;
+        content = null;
+        timeStamp = 0L;
+        handle.recycle(this);
+    }
+
+    /** 转为 CompleteMessage，未设置的字段为 null **/
+    public CompleteMessage toCompleteMessage() {
+        CompleteMessage msg = new CompleteMessage();
+        if (has(APP_ID)) msg.setAppId(appId);
+        if (has(UID)) msg.setUid(uid);
+        if (has(TOKEN)) msg.setToken(token);
+        if (has(COMPRESSION)) msg.setCompression(compression);
+        if (has(ENCRYPTION)) msg.setEncryption(encryption);
+        if (has(MESSAGE_TYPE)) msg.setMessageType(messageType);
+        if (has(TO_ID)) msg.setToId(toId);
+        if (has(CONTENT)) msg.setContent(content);
+        if (has(TIME_STAMP)) msg.setTimeStamp(timeStamp);
+        return msg;
+    }
+
+    /** 已设置字段的位图 **/
+    int presence() {
+        return presence;
+    }
+
+    boolean has(int field) {
+        return (presence & field) != 0;
+    }
+
+    public void setAppId(int appId) {
+        this.appId = appId;
+        presence |= APP_ID;
+    }
+
+    public void setUid(long uid) {
+        this.uid = uid;
+        presence |= UID;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+        presence = token == null ? presence & ~TOKEN : presence | TOKEN;
+    }
+
+    public void setCompression(int compression) {
+        this.compression = compression;
+        presence |= COMPRESSION;
+    }
+
+    public void setEncryption(int encryption) {
+        this.encryption = encryption;
+        presence |= ENCRYPTION;
+    }
+
+    public void setMessageType(int messageType) {
+        this.messageType = messageType;
+        presence |= MESSAGE_TYPE;
+    }
+
+    public void setToId(long toId) {
+        this.toId = toId;
+        presence |= TO_ID;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+        presence = content == null ? presence & ~CONTENT : presence | CONTENT;
+    }
+
+    public void setTimeStamp(long timeStamp) {
+        this.timeStamp = timeStamp;
+        presence |= TIME_STAMP;
+    }
+
+    public int getAppId() {
+        return appId;
+    }
+
+    public long getUid() {
+        return uid;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getCompression() {
+        return compression;
+    }
+
+    public int getEncryption() {
+        return encryption;
+    }
+
+    public int getMessageType() {
+        return messageType;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+}
@@ -0,0 +1,49 @@
+package com.gm.graduation.netty.codec;
+
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.channel.Channel;
+
+/**
+ * @author: xexgm
+ * desc: 连接使用的帧协议，客户端在 WebSocket 握手时通过 Sec-WebSocket-Protocol 选择，未选择时默认 json
+ */
+public enum WireProtocol {
+
+    /** json 文本帧，默认协议 **/
+    JSON("im.json"),
+    /** 紧凑二进制帧，见 BinaryMessageCodec **/
+    BINARY("im.binary");
+
+    /** 握手时服务端支持的子协议列表 **/
+    public static final String SUBPROTOCOLS = "im.json,im.binary";
+
+    private static final WireProtocol[] VALUES = values();
+
+    private final String subprotocol;
+
+    WireProtocol(String subprotocol) {
+        this.subprotocol = subprotocol;
+    }
+
+    public String getSubprotocol() {
+        return subprotocol;
+    }
+
+    /** 根据握手选中的子协议解析，未知或为空时返回 json **/
+    public static WireProtocol fromSubprotocol(String subprotocol) {
+        if (subprotocol != null) {
+            for (WireProtocol protocol : VALUES) {
+                if (protocol.subprotocol.equals(subprotocol)) {
+                    return protocol;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /** 获取连接上协商好的协议 **/
+    public static WireProtocol of(Channel channel) {
+        WireProtocol protocol = channel.attr(ChannelAttributes.WIRE_PROTOCOL).get();
+        return protocol == null ? JSON : protocol;
+    }
+}
@@ -0,0 +1,198 @@
+package com.gm.graduation.netty.executor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 保序的业务执行器。任务按会话 key 散列到固定的 lane，lane 内严格按提交顺序串行执行，
+ * 不同 lane 之间并行。lane 本身不占线程，有任务时才向底层线程池（虚拟线程或平台线程）提交一次排空任务。
+ */
+@Slf4j
+public class OrderedBusinessExecutor {
+
+    private static final String METRIC_PREFIX = "business.executor.";
+
+    /** 一次排空最多执行的任务数，之后让出线程，避免单个热点 lane 长期霸占 **/
+    private static final int MAX_DRAIN_BATCH = 256;
+
+    private final Lane[] lanes;
+    private final ExecutorService workers;
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public OrderedBusinessExecutor(int laneCount, int queueCapacity, boolean preferVirtualThreads, int platformThreads) {
+        if (laneCount <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("lane 数量与队列容量必须大于 0");
+        }
+        this.workers = createWorkers(preferVirtualThreads, platformThreads);
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(queueCapacity);
+        }
+        registerMetrics();
+        log.info("[OrderedBusinessExecutor] lanes: {}, queueCapacity: {}, workers: {}",
+            laneCount, queueCapacity, workers.getClass().getSimpleName());
+    }
+
+    /**
+     * 按会话 key 提交任务
+     * @return 队列已满或执行器已关闭时返回 false，调用方负责给客户端反馈
+     */
+    public boolean execute(long key, Runnable task) {
+        if (shutdown.get()) {
+            rejected.increment();
+            return false;
+        }
+        Lane lane = lanes[(int) Math.floorMod(mix(key), (long) lanes.length)];
+        if (!lane.offer(new Task(task, System.nanoTime()))) {
+            rejected.increment();
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    /** 所有 lane 中排队的任务数 **/
+    public int queueDepth() {
+        int depth = 0;
+        for (Lane lane : lanes) {
+            depth += lane.queue.size();
+        }
+        return depth;
+    }
+
+    /** 停止接收新任务，并在超时时间内等待已入队的任务执行完 **/
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        if (!shutdown.compareAndSet(false, true)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (queueDepth() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            workers.shutdown();
+            boolean terminated = workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!terminated) {
+                log.warn("业务执行器关闭超时，仍有 {} 个任务未执行", queueDepth());
+            }
+            return terminated;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            NettyMetrics.unregister(METRIC_PREFIX);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown.get();
+    }
+
+    private void registerMetrics() {
+        NettyMetrics.register(METRIC_PREFIX + "queueDepth", this::queueDepth);
+        NettyMetrics.register(METRIC_PREFIX + "submitted", submitted::sum);
+        NettyMetrics.register(METRIC_PREFIX + "rejected", rejected::sum);
+        NettyMetrics.register(METRIC_PREFIX + "completed", completed::sum);
+        NettyMetrics.register(METRIC_PREFIX + "failed", failed::sum);
+        NettyMetrics.register(METRIC_PREFIX + "waitTimeAvgMicros", () -> {
+            long count = completed.sum() + failed.sum();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.sum() / count);
+        });
+        NettyMetrics.register(METRIC_PREFIX + "waitTimeMaxMicros", () -> TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+    }
+
+    /** 运行时支持时使用虚拟线程（每次排空一个虚拟线程），否则退回固定大小的平台线程池 **/
+    private static ExecutorService createWorkers(boolean preferVirtualThreads, int platformThreads) {
+        if (preferVirtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.info("当前运行时不支持虚拟线程，业务执行器使用平台线程: {}", platformThreads);
+            }
+        }
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), new DefaultThreadFactory("netty-business"));
+    }
+
+    /** 打散 key，避免连续的 roomId / userId 聚集在相邻 lane **/
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private record Task(Runnable runnable, long enqueuedAt) {}
+
+    private final class Lane implements Runnable {
+
+        private final ArrayBlockingQueue<Task> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private boolean offer(Task task) {
+            if (!queue.offer(task)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this);
+                } catch (Exception e) {
+                    scheduled.set(false);
+                    log.error("业务执行器提交 lane 失败", e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Task task;
+                int drained = 0;
+                while (drained < MAX_DRAIN_BATCH && (task = queue.poll()) != null) {
+                    drained++;
+                    long waitNanos = System.nanoTime() - task.enqueuedAt();
+                    totalWaitNanos.add(waitNanos);
+                    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+                    try {
+                        task.runnable().run();
+                        completed.increment();
+                    } catch (Throwable t) {
+                        failed.increment();
+                        log.error("业务任务执行异常", t);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // 释放标记后再检查一次，防止与并发 offer 之间丢失唤醒
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
@@ -2,31 +2,131 @@ package com.gm.graduation.netty.handler;
 
 import com.gm.graduation.common.domain.CompleteMessage;
 import com.gm.graduation.common.enums.AppEnum;
-import com.gm.graduation.netty.processor.AbstractMessageProcessor;
-import com.gm.graduation.netty.processor.ProcessorFactory;
+import com.gm.graduation.netty.backpressure.SlowConsumerGuard;
+import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.executor.OrderedBusinessExecutor;
+import com.gm.graduation.netty.limit.AdmissionHandler;
+import com.gm.graduation.netty.limit.InboundRateLimiter;
+import com.gm.graduation.netty.processor.LinkProcessor;
+import com.gm.graduation.netty.processor.ProcessorRegistry;
+import com.gm.graduation.netty.processor.RegisteredHandler;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.util.ReferenceCountUtil;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * @author: xexgm
  * @date: 2025/9/29
+ * desc: 按消息类型分发给处理器；连接相关的状态都挂在 channel 上，所有连接共用一个实例
  */
+@Slf4j
+@ChannelHandler.Sharable
 public class BusinessHandler extends SimpleChannelInboundHandler<CompleteMessage> {
 
+    /** 业务执行器，为 null 时处理器直接在 I/O 线程上执行 **/
+    private final OrderedBusinessExecutor businessExecutor;
+
+    public BusinessHandler() {
+        this(null);
+    }
+
+    public BusinessHandler(OrderedBusinessExecutor businessExecutor) {
+        this.businessExecutor = businessExecutor;
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext channelHandlerContext, CompleteMessage completeMessage) throws Exception {
-        // 根据 appid 划分业务处理器
-        // 再根据 messageType 划分具体处理场景
-        AppEnum app = AppEnum.fromApp(completeMessage.getAppId());
+        // 发送者以握手时绑定到 channel 上的用户为准，不信任消息中的 uid
+        Long userId = UserLinkManager.getUserId(channelHandlerContext.channel());
+        // 按 [appId][messageType] 查表定位处理方法
+        RegisteredHandler handler = ProcessorRegistry.lookup(completeMessage.getAppId(), completeMessage.getMessageType());
+        if (handler == null) {
+            log.warn("未登记的消息类型: appId={}, messageType={}, userId: {}",
+                completeMessage.getAppId(), completeMessage.getMessageType(), userId);
+            return;
+        }
 
-        if (app == null) {
-            // 在读的中途停止了传递，手动释放 ByteBuf，避免内存泄漏
-            ReferenceCountUtil.release(completeMessage);
+        // 按用户（userId）与消息类型限流，超限直接回复错误，反复超限的用户连接被断开
+        if (!InboundRateLimiter.tryAcquire(channelHandlerContext, handler.type())) {
+            if (channelHandlerContext.channel().isActive()) {
+                sendErrorResponse(channelHandlerContext, userId, completeMessage, "ERROR: 发送过于频繁，请稍后重试");
+            }
             return;
         }
 
-        AbstractMessageProcessor<CompleteMessage> processor = ProcessorFactory.getProcessor(app);
-        processor.process(channelHandlerContext, completeMessage);
+        AppEnum app = handler.type().getApp();
+        // 连接类消息只操作内存，留在 I/O 线程；其余业务涉及落库与加密，交给业务执行器
+        if (businessExecutor == null || app == AppEnum.LINK) {
+            handler.invoke(channelHandlerContext, completeMessage);
+            return;
+        }
+
+        boolean accepted = businessExecutor.execute(conversationKey(app, userId, completeMessage),
+            () -> handler.invoke(channelHandlerContext, completeMessage));
+        if (!accepted) {
+            log.warn("业务队列已满，拒绝消息: appId={}, uid={}, toId={}",
+                completeMessage.getAppId(), userId, completeMessage.getToId());
+            sendErrorResponse(channelHandlerContext, userId, completeMessage, "ERROR: 服务繁忙，请稍后重试");
+        }
+    }
+
+    /**
+     * 会话 key，同一会话的消息总是按到达顺序执行
+     * 私聊：发送方 -> 接收方；聊天室：roomId
+     */
+    static long conversationKey(AppEnum app, Long userId, CompleteMessage msg) {
+        long uid = userId == null ? 0L : userId;
+        long toId = msg.getToId() == null ? 0L : msg.getToId();
+        if (app == AppEnum.CHAT_ROOM) {
+            return toId;
+        }
+        return uid * 31 + toId;
+    }
+
+    private static void sendErrorResponse(ChannelHandlerContext ctx, Long userId, CompleteMessage originalMsg, String content) {
+        PooledMessage response = PooledMessage.newInstance();
+        response.setAppId(originalMsg.getAppId());
+        if (userId != null) {
+            response.setUid(userId);
+        }
+        response.setMessageType(originalMsg.getMessageType());
+        if (originalMsg.getToId() != null) {
+            response.setToId(originalMsg.getToId());
+        }
+        response.setContent(content);
+        response.setTimeStamp(System.currentTimeMillis());
+        ctx.writeAndFlush(response);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 连接断开（主动断开、读空闲超时、网络异常）后清理会话
+        LinkProcessor.getInstance().handleChannelInactive(ctx);
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 写缓冲降回低水位以下，若期间丢弃过消息则通知客户端拉取历史
+        if (ctx.channel().isWritable()) {
+            SlowConsumerGuard.onWritable(ctx);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete handshake) {
+            // 记录握手时客户端选择的帧协议，后续编码按此协议输出
+            ctx.channel().attr(ChannelAttributes.WIRE_PROTOCOL)
+                .set(WireProtocol.fromSubprotocol(handshake.selectedSubprotocol()));
+            // 握手完成，释放准入时占用的握手中名额
+            AdmissionHandler.handshakeCompleted(ctx.channel());
+        }
+        super.userEventTriggered(ctx, evt);
     }
 }
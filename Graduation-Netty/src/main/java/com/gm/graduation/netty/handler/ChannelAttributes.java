@@ -0,0 +1,25 @@
+package com.gm.graduation.netty.handler;
+
+import com.gm.graduation.netty.codec.WireProtocol;
+import io.netty.util.AttributeKey;
+
+/**
+ * @author: xexgm
+ * desc: 挂在 Channel 上的属性
+ */
+public final class ChannelAttributes {
+
+    /** 握手阶段协商出的帧协议 **/
+    public static final AttributeKey<WireProtocol> WIRE_PROTOCOL = AttributeKey.valueOf("im.wireProtocol");
+
+    /** 握手鉴权通过后绑定的用户 id，所有消息的发送者以它为准；断线时据此 O(1) 清理会话 **/
+    public static final AttributeKey<Long> USER_ID = AttributeKey.valueOf("im.userId");
+
+    /** 慢消费者策略为 FETCH_HISTORY 时，第一条被丢弃消息的时间戳；恢复可写后据此通知客户端拉取历史 **/
+    public static final AttributeKey<Long> RESYNC_SINCE = AttributeKey.valueOf("im.resyncSince");
+
+    /** 客户端在建连消息中选择是否压缩下行消息，未设置时取配置默认值 **/
+    public static final AttributeKey<Boolean> COMPRESSION = AttributeKey.valueOf("im.compression");
+
+    private ChannelAttributes() {}
+}
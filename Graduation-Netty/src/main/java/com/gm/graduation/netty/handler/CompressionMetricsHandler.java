@@ -0,0 +1,54 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+
+/**
+ * @author: xexgm
+ * desc: 压缩指标，放在压缩处理器靠近网络的一侧，统计压缩后实际发出的字节数。
+ * 压缩前的原始字节数由压缩过滤器在决定压缩时记录，两者之差即节省的出口带宽
+ */
+@ChannelHandler.Sharable
+public class CompressionMetricsHandler extends ChannelOutboundHandlerAdapter {
+
+    public static final CompressionMetricsHandler INSTANCE = new CompressionMetricsHandler();
+
+    private static final LongAdder rawBytes = new LongAdder();
+    private static final LongAdder wireBytes = new LongAdder();
+    private static final LongAdder compressedFrames = new LongAdder();
+    private static final LongAdder skippedFrames = new LongAdder();
+
+    static {
+        NettyMetrics.register("compression.rawBytes", rawBytes::sum);
+        NettyMetrics.register("compression.wireBytes", wireBytes::sum);
+        NettyMetrics.register("compression.compressedFrames", compressedFrames::sum);
+        NettyMetrics.register("compression.skippedFrames", skippedFrames::sum);
+    }
+
+    private CompressionMetricsHandler() {}
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // RSV1 置位的数据帧即经过 permessage-deflate 压缩的帧
+        if (msg instanceof WebSocketFrame frame && (frame.rsv() & WebSocketExtension.RSV1) != 0) {
+            wireBytes.add(frame.content().readableBytes());
+            compressedFrames.increment();
+        }
+        ctx.write(msg, promise);
+    }
+
+    static void recordRaw(int bytes) {
+        rawBytes.add(bytes);
+    }
+
+    static void recordSkipped() {
+        skippedFrames.increment();
+    }
+}
@@ -0,0 +1,162 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.api.ITokenVerifier;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: websocket 握手鉴权，放在 HttpObjectAggregator 之后、WebSocketServerProtocolHandler 之前。
+ * 取握手请求 /ws?token= 中的 token，在鉴权线程池中校验（校验要查 Redis，不占用 I/O 线程），校验期间暂停读取；
+ * 通过后把用户 id 绑定到 channel 上，移除本处理器，请求继续交给 websocket 握手；不通过时回复 401 并关闭连接，
+ * 校验服务异常或线程池队列已满时回复 503。
+ * 之后所有消息的发送者都取 channel 上绑定的用户 id，不再信任消息中的 uid 与 token
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class HandshakeAuthHandler extends ChannelInboundHandlerAdapter {
+
+    private static final String TOKEN_PARAM = "token";
+
+    private static volatile ITokenVerifier tokenVerifier;
+
+    /** 执行 token 校验的线程池，排队的请求数受准入限制中的握手中连接数约束 **/
+    private final Executor verifyExecutor;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public HandshakeAuthHandler(Executor verifyExecutor) {
+        this.verifyExecutor = verifyExecutor;
+        NettyMetrics.register("auth.accepted", accepted::sum);
+        NettyMetrics.register("auth.rejected", rejected::sum);
+        NettyMetrics.register("auth.failed", failed::sum);
+        NettyMetrics.register("auth.dropped", dropped::sum);
+    }
+
+    public static void setTokenVerifier(ITokenVerifier verifier) {
+        tokenVerifier = verifier;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof FullHttpRequest request)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        Channel channel = ctx.channel();
+        // 暂停读取期间，同一批已读入的数据里还有请求：握手结果出来之前一律丢弃
+        if (!channel.config().isAutoRead()) {
+            dropped.increment();
+            log.debug("握手校验期间收到流水线请求，丢弃: {}, channel: {}", request.uri(), channel.id().asShortText());
+            request.release();
+            return;
+        }
+
+        String token = token(request.uri());
+        if (token == null) {
+            rejected.increment();
+            reply(ctx, request, HttpResponseStatus.UNAUTHORIZED);
+            return;
+        }
+        ITokenVerifier verifier = tokenVerifier;
+        if (verifier == null) {
+            log.warn("token 校验服务未注入，拒绝握手, channel: {}", channel.id().asShortText());
+            failed.increment();
+            reply(ctx, request, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        channel.config().setAutoRead(false);
+        try {
+            verifyExecutor.execute(() -> {
+                Long userId = null;
+                boolean error = false;
+                try {
+                    userId = verifier.verify(token);
+                } catch (Exception e) {
+                    log.error("token 校验异常, channel: {}", channel.id().asShortText(), e);
+                    error = true;
+                }
+                Long verified = userId;
+                boolean verifyFailed = error;
+                try {
+                    ctx.executor().execute(() -> complete(ctx, request, verified, verifyFailed));
+                } catch (RejectedExecutionException e) {
+                    // I/O 线程已关闭，连接随之关闭，这里只负责释放请求
+                    failed.increment();
+                    log.warn("I/O 线程已关闭，丢弃握手请求, channel: {}", channel.id().asShortText());
+                    request.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            failed.increment();
+            channel.config().setAutoRead(true);
+            reply(ctx, request, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /** 回到 channel 所在的 I/O 线程处理校验结果 **/
+    private void complete(ChannelHandlerContext ctx, FullHttpRequest request, Long userId, boolean verifyFailed) {
+        Channel channel = ctx.channel();
+        if (!channel.isActive()) {
+            request.release();
+            return;
+        }
+        channel.config().setAutoRead(true);
+        if (verifyFailed) {
+            failed.increment();
+            reply(ctx, request, HttpResponseStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
+        if (userId == null) {
+            rejected.increment();
+            reply(ctx, request, HttpResponseStatus.UNAUTHORIZED);
+            return;
+        }
+
+        accepted.increment();
+        channel.attr(ChannelAttributes.USER_ID).set(userId);
+        ctx.pipeline().remove(this);
+        ctx.fireChannelRead(request);
+    }
+
+    /** 取 uri 中的 token 参数，缺失或为空时返回 null **/
+    static String token(String uri) {
+        List<String> values = new QueryStringDecoder(uri).parameters().get(TOKEN_PARAM);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        String token = values.get(0).trim();
+        return token.isEmpty() ? null : token;
+    }
+
+    private static void reply(ChannelHandlerContext ctx, FullHttpRequest request, HttpResponseStatus status) {
+        request.release();
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+        response.headers()
+            .set(HttpHeaderNames.CONTENT_LENGTH, 0)
+            .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+}
@@ -0,0 +1,102 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.codec.BinaryMessageCodec;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 服务端心跳，配合 HeartbeatTimerHandler 使用
+ * 客户端静默满一个 ping 周期(PING_DUE)：握手完成的连接发送 WebSocket ping，客户端自动回 pong
+ * 读空闲(READER_IDLE)：超时未收到任何数据，关闭连接，由 channelInactive 清理会话
+ * 另外提供预编码好的 json/二进制 pong 帧，用于回复客户端仍在发送的应用层心跳
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class HeartbeatHandler extends ChannelInboundHandlerAdapter {
+
+    public static final HeartbeatHandler INSTANCE = new HeartbeatHandler();
+
+    /** 预编码的应用层 pong，只读且不可释放，每次发送时包一层 duplicate **/
+    private static final ByteBuf JSON_PONG = preEncode(WireProtocol.JSON);
+    private static final ByteBuf BINARY_PONG = preEncode(WireProtocol.BINARY);
+
+    private static final LongAdder pingsSent = new LongAdder();
+    private static final LongAdder idleClosed = new LongAdder();
+
+    static {
+        NettyMetrics.register("heartbeat.pingsSent", pingsSent::sum);
+        NettyMetrics.register("heartbeat.idleClosed", idleClosed::sum);
+    }
+
+    private HeartbeatHandler() {}
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt == HeartbeatTimerHandler.Event.PING_DUE) {
+            // 握手之前还是 http 连接，不能写 websocket 帧
+            if (ctx.channel().hasAttr(ChannelAttributes.WIRE_PROTOCOL)) {
+                pingsSent.increment();
+                ctx.writeAndFlush(new PingWebSocketFrame(Unpooled.EMPTY_BUFFER))
+                    .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            }
+            return;
+        }
+        if (evt instanceof IdleStateEvent idle && idle.state() == IdleState.READER_IDLE) {
+            idleClosed.increment();
+            log.debug("连接读空闲超时，关闭: {}", ctx.channel().id().asShortText());
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    /** 按连接协议返回应用层 pong 帧，内容为 {"appId":0,"messageType":2,"content":"pong"} **/
+    public static WebSocketFrame pongFrame(Channel channel) {
+        if (WireProtocol.of(channel) == WireProtocol.BINARY) {
+            return new BinaryWebSocketFrame(BINARY_PONG.duplicate());
+        }
+        return new TextWebSocketFrame(JSON_PONG.duplicate());
+    }
+
+    private static ByteBuf preEncode(WireProtocol protocol) {
+        PooledMessage pong = PooledMessage.newInstance();
+        pong.setAppId(AppEnum.LINK.getApp());
+        pong.setMessageType(MessageTypeEnum.LINK_HEARTBEAT.getType());
+        pong.setContent("pong");
+
+        ByteBuf buf = Unpooled.directBuffer();
+        try {
+            if (protocol == WireProtocol.BINARY) {
+                BinaryMessageCodec.encode(pong, buf);
+            } else {
+                JsonMessageCodec.encode(pong, buf);
+            }
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        } finally {
+            pong.recycle();
+        }
+        return Unpooled.unreleasableBuffer(buf.asReadOnly());
+    }
+}
@@ -0,0 +1,98 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * @author: xexgm
+ * desc: 心跳计时，每个连接一个，放在 pipeline 靠前的位置。按 ping 间隔固定频率检查，只看这段时间内是否读到客户端的数据，
+ * 与服务端是否在写无关：只收不发的客户端（如热闹聊天室的旁听者）同样会收到 ping，回复 pong 后即不会被当作死连接。
+ * 客户端静默满一个周期时触发 PING_DUE，累计静默达到读空闲超时时触发 READER_IDLE，两者都由 HeartbeatHandler 处理
+ */
+public class HeartbeatTimerHandler extends ChannelInboundHandlerAdapter {
+
+    public enum Event {
+        /** 客户端一个周期内没有发送任何数据，需要发送 ping **/
+        PING_DUE
+    }
+
+    private final long intervalNanos;
+    /** 连续静默多少个周期视为读空闲超时，读空闲时长不是 ping 间隔的整数倍时向上取整 **/
+    private final int maxSilentTicks;
+
+    private boolean readSinceTick;
+    private int silentTicks;
+    private ScheduledFuture<?> ticker;
+
+    public HeartbeatTimerHandler(int pingIntervalSeconds, int readerIdleSeconds) {
+        this(pingIntervalSeconds, readerIdleSeconds, TimeUnit.SECONDS);
+    }
+
+    HeartbeatTimerHandler(long pingInterval, long readerIdle, TimeUnit unit) {
+        if (pingInterval <= 0 || readerIdle <= 0) {
+            throw new IllegalArgumentException("ping 间隔与读空闲超时须大于 0");
+        }
+        this.intervalNanos = unit.toNanos(pingInterval);
+        this.maxSilentTicks = (int) Math.max(1, (readerIdle + pingInterval - 1) / pingInterval);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        if (ctx.channel().isActive() && ctx.channel().isRegistered()) {
+            start(ctx);
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        start(ctx);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stop();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        stop();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readSinceTick = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    private void start(ChannelHandlerContext ctx) {
+        if (ticker == null) {
+            ticker = ctx.executor().scheduleAtFixedRate(() -> tick(ctx), intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+    }
+
+    private void tick(ChannelHandlerContext ctx) {
+        if (readSinceTick) {
+            readSinceTick = false;
+            silentTicks = 0;
+            return;
+        }
+        if (++silentTicks >= maxSilentTicks) {
+            stop();
+            ctx.fireUserEventTriggered(IdleStateEvent.READER_IDLE_STATE_EVENT);
+        } else {
+            ctx.fireUserEventTriggered(Event.PING_DUE);
+        }
+    }
+}
@@ -1,31 +1,85 @@
 package com.gm.graduation.netty.handler;
 
+import java.io.IOException;
 import java.util.List;
 
 import com.gm.graduation.common.domain.CompleteMessage;
-import com.gm.graduation.common.utils.JsonUtil;
+import com.gm.graduation.netty.codec.BinaryMessageCodec;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 
 /**
  * @author: xexgm
  * @date: 2025/9/30
+ * desc: 按连接协商的协议把 CompleteMessage 或 PooledMessage 编码为帧。CompleteMessage 先转为 PooledMessage，
+ * 两者走同一条编码路径，编码完即放回对象池；
+ * 无状态，所有连接共用一个实例
  */
-public class MessageToWebSocketFrameEncoder extends MessageToMessageEncoder<CompleteMessage> {
+@ChannelHandler.Sharable
+public class MessageToWebSocketFrameEncoder extends MessageToMessageEncoder<Object> {
 
     @Override
-    protected void encode(ChannelHandlerContext ctx, CompleteMessage completeMessage, List<Object> out) throws Exception {
-        if (completeMessage == null) {
-            return;
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof PooledMessage || msg instanceof CompleteMessage;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        PooledMessage pooled = msg instanceof PooledMessage p ? p : PooledMessage.copyOf((CompleteMessage) msg);
+        try {
+            out.add(encodeFrame(ctx.alloc(), pooled, WireProtocol.of(ctx.channel())));
+        } finally {
+            pooled.recycle();
         }
+    }
 
-        // 序列化为 json
-        String json = JsonUtil.getObjectMapper().writeValueAsString(completeMessage);
+    /** 按连接协商的协议把消息编码为对应的帧，消息由调用方回收 **/
+    public static WebSocketFrame encodeFrame(ByteBufAllocator alloc, PooledMessage msg, WireProtocol protocol) throws IOException {
+        if (protocol == WireProtocol.BINARY) {
+            return encodeBinaryFrame(alloc, msg);
+        }
+        return encodeTextFrame(alloc, msg);
+    }
 
-        // 包装为帧
-        TextWebSocketFrame frame = new TextWebSocketFrame(json);
+    /**
+     * 将消息序列化为 json 并直接写入池化的 ByteBuf（null 字段不输出），再包装为文本帧
+     * 广播场景下只需调用一次，之后对每个接收者发送 frame.retainedDuplicate() 即可共享同一份字节
+     */
+    public static TextWebSocketFrame encodeTextFrame(ByteBufAllocator alloc, PooledMessage msg) throws IOException {
+        ByteBuf buf = alloc.buffer();
+        boolean success = false;
+        try {
+            JsonMessageCodec.encode(msg, buf);
+            success = true;
+        } finally {
+            if (!success) {
+                buf.release();
+            }
+        }
+        return new TextWebSocketFrame(buf);
+    }
 
-        out.add(frame);
+    /** 二进制协议编码，格式见 BinaryMessageCodec **/
+    public static BinaryWebSocketFrame encodeBinaryFrame(ByteBufAllocator alloc, PooledMessage msg) {
+        ByteBuf buf = alloc.buffer();
+        boolean success = false;
+        try {
+            BinaryMessageCodec.encode(msg, buf);
+            success = true;
+        } finally {
+            if (!success) {
+                buf.release();
+            }
+        }
+        return new BinaryWebSocketFrame(buf);
     }
 }
@@ -0,0 +1,117 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gm.graduation.common.utils.CompressionConfig;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+/**
+ * @author: xexgm
+ * desc: permessage-deflate 协商处理器，放在 WebSocketServerProtocolHandler 之前。
+ * 客户端握手时带上 permessage-deflate 即完成协商，之后：
+ * 上行：客户端压缩过的帧一律解压，解压后大小受最大帧长度限制；
+ * 下行：仅当该连接选择了压缩且帧内容不小于阈值时才压缩，其余帧原样发送（协议允许逐帧决定）。
+ * 每个连接一个实例，过滤器据此读取所属连接的选择。
+ * 压缩上下文默认不跨消息保留：服务端总是声明 server_no_context_takeover，客户端提出 client_no_context_takeover 时接受，
+ * 压缩与解压状态只在一条消息内存在，空闲连接不常驻 deflate / inflate 窗口。
+ */
+public class WebSocketCompressionHandler extends WebSocketServerExtensionHandler {
+
+    private static final int LEVEL = CompressionConfig.level();
+    private static final int THRESHOLD_BYTES = CompressionConfig.thresholdBytes();
+    private static final boolean DEFAULT_ON = CompressionConfig.defaultOn();
+    private static final boolean SERVER_CONTEXT_TAKEOVER = CompressionConfig.serverContextTakeover();
+
+    private static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+
+    public WebSocketCompressionHandler(Channel channel, int maxFrameSize) {
+        super(handshaker(channel, maxFrameSize));
+    }
+
+    static WebSocketServerExtensionHandshaker handshaker(Channel channel, int maxFrameSize) {
+        PerMessageDeflateServerExtensionHandshaker deflate = new PerMessageDeflateServerExtensionHandshaker(LEVEL, false,
+            PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE, true, true,
+            new ChannelFilterProvider(channel), maxFrameSize);
+        if (SERVER_CONTEXT_TAKEOVER) {
+            return deflate;
+        }
+        return data -> deflate.handshakeExtension(withServerNoContextTakeover(data));
+    }
+
+    /**
+     * Netty 只在客户端提出时才设置 server_no_context_takeover，这里替客户端补上；
+     * 协议允许服务端在客户端未提出时也声明该参数（RFC 7692 7.1.1.1）
+     */
+    private static WebSocketExtensionData withServerNoContextTakeover(WebSocketExtensionData data) {
+        if (!PERMESSAGE_DEFLATE.equals(data.name()) || data.parameters().containsKey(SERVER_NO_CONTEXT_TAKEOVER)) {
+            return data;
+        }
+        Map<String, String> parameters = new HashMap<>(data.parameters());
+        parameters.put(SERVER_NO_CONTEXT_TAKEOVER, null);
+        return new WebSocketExtensionData(data.name(), parameters);
+    }
+
+    /** 该连接的下行消息是否压缩 **/
+    static boolean compressionOn(Channel channel) {
+        if (!channel.hasAttr(ChannelAttributes.COMPRESSION)) {
+            return DEFAULT_ON;
+        }
+        Boolean on = channel.attr(ChannelAttributes.COMPRESSION).get();
+        return on == null ? DEFAULT_ON : on;
+    }
+
+    private static final class ChannelFilterProvider implements WebSocketExtensionFilterProvider {
+
+        private final WebSocketExtensionFilter encoderFilter;
+
+        ChannelFilterProvider(Channel channel) {
+            this.encoderFilter = new OutboundFilter(channel);
+        }
+
+        @Override
+        public WebSocketExtensionFilter encoderFilter() {
+            return encoderFilter;
+        }
+
+        @Override
+        public WebSocketExtensionFilter decoderFilter() {
+            return WebSocketExtensionFilter.NEVER_SKIP;
+        }
+    }
+
+    /** 决定下行帧是否跳过压缩，并记录参与压缩的原始字节数 **/
+    private static final class OutboundFilter implements WebSocketExtensionFilter {
+
+        private final Channel channel;
+
+        OutboundFilter(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean mustSkip(WebSocketFrame frame) {
+            // 控制帧不参与压缩
+            if (!(frame instanceof TextWebSocketFrame) && !(frame instanceof BinaryWebSocketFrame)) {
+                return true;
+            }
+            int size = frame.content().readableBytes();
+            if (size < THRESHOLD_BYTES || !compressionOn(channel)) {
+                CompressionMetricsHandler.recordSkipped();
+                return true;
+            }
+            CompressionMetricsHandler.recordRaw(size);
+            return false;
+        }
+    }
+}
@@ -2,29 +2,38 @@ package com.gm.graduation.netty.handler;
 
 import java.util.List;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gm.graduation.common.domain.CompleteMessage;
-import com.gm.graduation.common.utils.JsonUtil;
-import com.google.gson.Gson;
+import com.gm.graduation.netty.codec.BinaryMessageCodec;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 
 /**
  * @author: xexgm
  * @date: 2025/9/30
+ * desc: 文本帧按 json 解码，二进制帧按 BinaryMessageCodec 解码，其余帧直接丢弃；
+ * 两种协议都直接从帧的 ByteBuf 读取，不经过中间 String；无状态，所有连接共用一个实例
  */
-public class WebSocketFrameToMessageDecoder extends MessageToMessageDecoder<TextWebSocketFrame> {
+@ChannelHandler.Sharable
+public class WebSocketFrameToMessageDecoder extends MessageToMessageDecoder<WebSocketFrame> {
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, TextWebSocketFrame msg, List<Object> out) throws Exception {
-        String json = msg.text();
-
-        if (json == null || json.isEmpty()) {
+    protected void decode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) throws Exception {
+        if (!msg.content().isReadable()) {
             return;
         }
 
-        CompleteMessage completeMessage = JsonUtil.getObjectMapper().readValue(json, CompleteMessage.class);
+        CompleteMessage completeMessage = null;
+
+        if (msg instanceof TextWebSocketFrame) {
+            completeMessage = JsonMessageCodec.decode(msg.content());
+        } else if (msg instanceof BinaryWebSocketFrame) {
+            completeMessage = BinaryMessageCodec.decode(msg.content());
+        }
 
         if (completeMessage != null) {
             out.add(completeMessage);
@@ -0,0 +1,199 @@
+package com.gm.graduation.netty.limit;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.utils.AdmissionConfig;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * @author: xexgm
+ * desc: 新连接准入，放在 HttpServerCodec 之前。连接建立时依次检查握手中连接数上限、单 IP 令牌桶、全局令牌桶，
+ * 后面的检查不通过时退还前面占用的名额与令牌：
+ * 通过的连接移除本处理器，记为握手中，直到 websocket 握手完成或连接关闭；
+ * 被拒绝的连接不再进入 HTTP 解析，收到请求后直接回复 503 与 Retry-After 并关闭，迟迟不发请求的连接到时直接回复并关闭
+ */
+@ChannelHandler.Sharable
+public class AdmissionHandler extends ChannelInboundHandlerAdapter {
+
+    /** 通过准入、websocket 握手尚未完成的连接记下放行它的处理器，握手完成时据此释放名额 **/
+    private static final AttributeKey<AdmissionHandler> PENDING_HANDSHAKE = AttributeKey.valueOf("im.admission.pendingHandshake");
+    /** 被拒绝连接的 Retry-After 秒数 **/
+    private static final AttributeKey<Integer> RETRY_AFTER = AttributeKey.valueOf("im.admission.retryAfter");
+
+    /** 单 IP 令牌桶的清理间隔，桶满（一段时间没有新连接）的 IP 被移除 **/
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final TokenBucket global;
+    private final int perIpRate;
+    private final int perIpBurst;
+    private final int maxPendingHandshakes;
+    private final int retryAfterSeconds;
+    private final long rejectedCloseMillis;
+    private final ConcurrentHashMap<InetAddress, TokenBucket> perIp = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger pendingHandshakes = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder rejectedPerIp = new LongAdder();
+    private final LongAdder rejectedPending = new LongAdder();
+
+    public AdmissionHandler() {
+        this(AdmissionConfig.ratePerSecond(), AdmissionConfig.burst(), AdmissionConfig.perIpRatePerSecond(),
+            AdmissionConfig.perIpBurst(), AdmissionConfig.maxPendingHandshakes(), AdmissionConfig.retryAfterSeconds(),
+            AdmissionConfig.rejectedCloseMillis());
+    }
+
+    AdmissionHandler(int ratePerSecond, int burst, int perIpRate, int perIpBurst,
+                     int maxPendingHandshakes, int retryAfterSeconds, long rejectedCloseMillis) {
+        this.global = new TokenBucket(ratePerSecond, burst);
+        this.perIpRate = perIpRate;
+        this.perIpBurst = perIpBurst;
+        this.maxPendingHandshakes = maxPendingHandshakes;
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        this.rejectedCloseMillis = Math.max(0L, rejectedCloseMillis);
+        NettyMetrics.register("admission.accepted", accepted::sum);
+        NettyMetrics.register("admission.rejectedGlobalRate", rejectedGlobal::sum);
+        NettyMetrics.register("admission.rejectedPerIpRate", rejectedPerIp::sum);
+        NettyMetrics.register("admission.rejectedPendingHandshakes", rejectedPending::sum);
+        NettyMetrics.register("admission.pendingHandshakes", pendingHandshakes::get);
+        NettyMetrics.register("admission.trackedIps", perIp::size);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        int retryAfter = admit(channel.remoteAddress());
+        if (retryAfter > 0) {
+            // 等客户端发来请求再回复，避免未读数据导致关闭时发送 RST 丢掉响应；
+            // 静默或慢速发送的客户端不能一直占着连接，到时不论是否收到请求都回复并关闭
+            channel.attr(RETRY_AFTER).set(retryAfter);
+            ctx.executor().schedule(() -> rejectAndClose(ctx), rejectedCloseMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        accepted.increment();
+        channel.attr(PENDING_HANDSHAKE).set(this);
+        channel.closeFuture().addListener(f -> handshakeCompleted(channel));
+        ctx.pipeline().remove(this);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ReferenceCountUtil.release(msg);
+        rejectAndClose(ctx);
+    }
+
+    /** 回复 503 后关闭，收到请求与关闭计时到期两条路径只回复一次 **/
+    private static void rejectAndClose(ChannelHandlerContext ctx) {
+        Integer retryAfter = ctx.channel().attr(RETRY_AFTER).getAndSet(null);
+        if (retryAfter != null) {
+            ctx.writeAndFlush(Unpooled.wrappedBuffer(serviceUnavailable(retryAfter)))
+                .addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /** websocket 握手完成或连接关闭时调用，释放握手中名额，同一连接只释放一次 **/
+    public static void handshakeCompleted(Channel channel) {
+        if (!channel.hasAttr(PENDING_HANDSHAKE)) {
+            return;
+        }
+        AdmissionHandler admittedBy = channel.attr(PENDING_HANDSHAKE).getAndSet(null);
+        if (admittedBy != null) {
+            admittedBy.pendingHandshakes.decrementAndGet();
+        }
+    }
+
+    /** @return 0 表示准入（已占用一个握手中名额），否则为建议客户端等待的秒数 **/
+    int admit(SocketAddress remoteAddress) {
+        if (!tryReservePending()) {
+            rejectedPending.increment();
+            return retryAfter(0L);
+        }
+
+        InetAddress ip = remoteAddress instanceof InetSocketAddress inet ? inet.getAddress() : null;
+        TokenBucket ipBucket = null;
+        if (perIpRate > 0 && ip != null) {
+            sweepIdleBuckets();
+            ipBucket = perIp.computeIfAbsent(ip, k -> new TokenBucket(perIpRate, perIpBurst));
+            if (!ipBucket.tryAcquire()) {
+                pendingHandshakes.decrementAndGet();
+                rejectedPerIp.increment();
+                return retryAfter(ipBucket.nanosUntilAvailable());
+            }
+        }
+
+        if (!global.tryAcquire()) {
+            // 全局限流不算该 IP 的连接，退还它的令牌
+            if (ipBucket != null) {
+                ipBucket.refund();
+            }
+            pendingHandshakes.decrementAndGet();
+            rejectedGlobal.increment();
+            return retryAfter(global.nanosUntilAvailable());
+        }
+        return 0;
+    }
+
+    /** 握手中连接数未达上限时占用一个名额，检查与占用一次 CAS 完成，并发接入不会超出上限 **/
+    private boolean tryReservePending() {
+        while (true) {
+            int current = pendingHandshakes.get();
+            if (current >= maxPendingHandshakes) {
+                return false;
+            }
+            if (pendingHandshakes.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    int pendingHandshakes() {
+        return pendingHandshakes.get();
+    }
+
+    TokenBucket ipBucket(InetSocketAddress remoteAddress) {
+        return perIp.get(remoteAddress.getAddress());
+    }
+
+    /** 不少于基础秒数与令牌可用时间，再加随机抖动，避免被拒绝的客户端在同一时刻重试 **/
+    private int retryAfter(long waitNanos) {
+        long waitSeconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        return (int) Math.max(retryAfterSeconds, waitSeconds) + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+    }
+
+    /** 定期移除空闲 IP 的令牌桶，由抢到清理权的 I/O 线程执行 **/
+    private void sweepIdleBuckets() {
+        long now = System.nanoTime();
+        long last = lastSweepNanos.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(last, now)) {
+            return;
+        }
+        perIp.values().removeIf(TokenBucket::isIdle);
+    }
+
+    private static byte[] serviceUnavailable(int retryAfterSeconds) {
+        return ("HTTP/1.1 503 Service Unavailable\r\n"
+            + "Retry-After: " + retryAfterSeconds + "\r\n"
+            + "Content-Length: 0\r\n"
+            + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,146 @@
+package com.gm.graduation.netty.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.common.utils.InboundRateLimitConfig;
+import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 上行消息限流。令牌桶按认证后的 userId 保存，每种消息类型各一个，断线重连拿不到新的配额；
+ * 未认证的连接（没有 userId）退回到挂在连接上的状态。
+ * 超限次数同样用令牌桶计：窗口期内超限次数用完即断开连接。
+ * 所有令牌桶都已回满的用户状态与新建无异，定期清理，表的大小受活跃用户数约束
+ */
+@Slf4j
+public final class InboundRateLimiter {
+
+    private static final AttributeKey<State> STATE = AttributeKey.valueOf("im.inboundRateLimit");
+
+    /** 用户状态的清理间隔，令牌桶全部回满的用户被移除 **/
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final boolean ENABLED = InboundRateLimitConfig.enabled();
+    /** 下标为 MessageTypeEnum.ordinal() **/
+    private static final int[] RATES = new int[MessageTypeEnum.values().length];
+    private static final int[] BURSTS = new int[MessageTypeEnum.values().length];
+    private static final int MAX_VIOLATIONS = InboundRateLimitConfig.maxViolations();
+    private static final int VIOLATION_WINDOW_SECONDS = Math.max(1, InboundRateLimitConfig.violationWindowSeconds());
+
+    private static final ConcurrentHashMap<Long, State> states = new ConcurrentHashMap<>();
+    private static final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime());
+
+    private static final LongAdder throttled = new LongAdder();
+    private static final LongAdder disconnected = new LongAdder();
+
+    static {
+        for (MessageTypeEnum type : MessageTypeEnum.values()) {
+            RATES[type.ordinal()] = InboundRateLimitConfig.ratePerSecond(type);
+            BURSTS[type.ordinal()] = Math.max(1, InboundRateLimitConfig.burst(type));
+        }
+        NettyMetrics.register("inbound.throttledMessages", throttled::sum);
+        NettyMetrics.register("inbound.throttleDisconnects", disconnected::sum);
+        NettyMetrics.register("inbound.trackedUsers", states::size);
+    }
+
+    private InboundRateLimiter() {}
+
+    /**
+     * 判断该连接的这条上行消息是否放行
+     * @return false 表示消息应被拒绝，连接可能已因反复超限被关闭
+     */
+    public static boolean tryAcquire(ChannelHandlerContext ctx, MessageTypeEnum type) {
+        return tryAcquire(ctx, type, System.nanoTime());
+    }
+
+    static boolean tryAcquire(ChannelHandlerContext ctx, MessageTypeEnum type, long nowNanos) {
+        if (!ENABLED || RATES[type.ordinal()] <= 0) {
+            return true;
+        }
+        Channel channel = ctx.channel();
+        State state = state(channel, nowNanos);
+        if (state.bucket(type).tryAcquire(nowNanos)) {
+            return true;
+        }
+
+        throttled.increment();
+        if (MAX_VIOLATIONS > 0 && !state.violations().tryAcquire(nowNanos)) {
+            disconnected.increment();
+            log.warn("连接 {} 上行消息反复超限，断开连接, userId: {}, messageType: {}",
+                channel.id().asShortText(), UserLinkManager.getUserId(channel), type);
+            ctx.close();
+        }
+        return false;
+    }
+
+    private static State state(Channel channel, long nowNanos) {
+        Long userId = channel.attr(ChannelAttributes.USER_ID).get();
+        if (userId != null) {
+            sweepIdleStates(nowNanos);
+            return states.computeIfAbsent(userId, k -> new State());
+        }
+        State state = channel.attr(STATE).get();
+        if (state == null) {
+            state = new State();
+            channel.attr(STATE).set(state);
+        }
+        return state;
+    }
+
+    /** 定期移除令牌桶全部回满的用户，由抢到清理权的 I/O 线程执行 **/
+    private static void sweepIdleStates(long nowNanos) {
+        long last = lastSweepNanos.get();
+        if (nowNanos - last < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(last, nowNanos)) {
+            return;
+        }
+        states.values().removeIf(state -> state.isIdle(nowNanos));
+    }
+
+    static boolean isTracked(long userId) {
+        return states.containsKey(userId);
+    }
+
+    /** 单个用户（或未认证连接）的限流状态。同一用户的新旧连接可能在不同 event loop 上同时访问，令牌桶在创建时一次建好 **/
+    private static final class State {
+        private final TokenBucket[] buckets = new TokenBucket[MessageTypeEnum.values().length];
+        private final TokenBucket violations;
+
+        State() {
+            for (int i = 0; i < buckets.length; i++) {
+                if (RATES[i] > 0) {
+                    buckets[i] = new TokenBucket(RATES[i], BURSTS[i]);
+                }
+            }
+            violations = MAX_VIOLATIONS > 0
+                ? new TokenBucket((double) MAX_VIOLATIONS / VIOLATION_WINDOW_SECONDS, MAX_VIOLATIONS)
+                : null;
+        }
+
+        TokenBucket bucket(MessageTypeEnum type) {
+            return buckets[type.ordinal()];
+        }
+
+        TokenBucket violations() {
+            return violations;
+        }
+
+        boolean isIdle(long nowNanos) {
+            for (TokenBucket bucket : buckets) {
+                if (bucket != null && !bucket.isIdle(nowNanos)) {
+                    return false;
+                }
+            }
+            return violations == null || violations.isIdle(nowNanos);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gm.graduation.netty.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author: xexgm
+ * desc: 无锁令牌桶。按 GCRA 实现：只记录下一个令牌的理论发放时间，取令牌即把该时间后推一个发放间隔，
+ * 后推后超出当前时间不多于 burst 个间隔即成功。多线程并发获取时用 CAS 更新，不加锁
+ */
+public final class TokenBucket {
+
+    /** 发放一个令牌的间隔 **/
+    private final long intervalNanos;
+    /** 桶满时可以提前消耗的时长，即 burst 个令牌 **/
+    private final long burstNanos;
+    /** 下一个令牌的理论发放时间 **/
+    private final AtomicLong nextTokenNanos;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("ratePerSecond 与 burst 必须大于 0");
+        }
+        this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.nextTokenNanos = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long next = nextTokenNanos.get();
+            // 空闲期间攒下的令牌不超过 burst
+            long base = Math.max(next, nowNanos - burstNanos);
+            long updated = base + intervalNanos;
+            if (updated - nowNanos > 0) {
+                return false;
+            }
+            if (nextTokenNanos.compareAndSet(next, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /** 退还一个已取得的令牌，用于取得后又因其它限制放弃的情况 **/
+    public void refund() {
+        nextTokenNanos.addAndGet(-intervalNanos);
+    }
+
+    /** 距离下一个令牌可用还要等待的纳秒数，为 0 表示当前可用 **/
+    public long nanosUntilAvailable() {
+        return nanosUntilAvailable(System.nanoTime());
+    }
+
+    long nanosUntilAvailable(long nowNanos) {
+        return Math.max(0L, nextTokenNanos.get() + intervalNanos - nowNanos);
+    }
+
+    /** 桶已满，即一段时间内没有人取令牌 **/
+    public boolean isIdle() {
+        return isIdle(System.nanoTime());
+    }
+
+    boolean isIdle(long nowNanos) {
+        return nextTokenNanos.get() <= nowNanos - burstNanos;
+    }
+}
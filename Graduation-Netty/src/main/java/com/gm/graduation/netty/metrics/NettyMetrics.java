@@ -0,0 +1,45 @@
+package com.gm.graduation.netty.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: Netty 侧的指标登记处，各组件以 gauge 的形式登记自己的指标，按名称排序输出快照
+ */
+@Slf4j
+public class NettyMetrics {
+
+    /** metric name -> gauge **/
+    private static final ConcurrentSkipListMap<String, Supplier<?>> gauges = new ConcurrentSkipListMap<>();
+
+    /** 登记指标，同名覆盖 **/
+    public static void register(String name, Supplier<?> gauge) {
+        if (name == null || gauge == null) {
+            return;
+        }
+        gauges.put(name, gauge);
+    }
+
+    /** 移除指定前缀下的所有指标 **/
+    public static void unregister(String prefix) {
+        gauges.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    /** 当前所有指标的快照 **/
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        gauges.forEach((name, gauge) -> {
+            try {
+                snapshot.put(name, gauge.get());
+            } catch (Exception e) {
+                log.warn("读取指标 {} 失败: {}", name, e.getMessage());
+            }
+        });
+        return snapshot;
+    }
+}
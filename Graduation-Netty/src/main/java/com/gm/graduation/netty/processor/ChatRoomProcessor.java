@@ -3,13 +3,18 @@ package com.gm.graduation.netty.processor;
 import com.gm.graduation.common.api.IChatRoomMessageService;
 import com.gm.graduation.common.domain.ChatRoomMessage;
 import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.broadcast.EventLoopFanOut;
 import com.gm.graduation.netty.cache.UserChatRoomManager;
 import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.codec.PooledMessage;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Set;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author: xexgm
@@ -17,7 +22,7 @@ import java.time.LocalDateTime;
  * desc: 聊天室处理器，包含 进入聊天室，发送聊天室消息，退出聊天室 等能力
  */
 @Slf4j
-public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>{
+public class ChatRoomProcessor {
 
     private static IChatRoomMessageService chatRoomMessageService;
 
@@ -31,34 +36,21 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
 
     public static ChatRoomProcessor getInstance() {return INSTANCE;}
 
-    /** 聊天室业务线处理方法，根据 msg的type，进行具体处理 **/
-    public void process(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Integer messageType = msg.getMessageType();
-
-        switch (messageType) {
-            case 0:
-                joinChatRoom(ctx, msg);
-                break;
-            case 1:
-                sendChatRoomMessage(ctx, msg);
-                break;
-            case 2:
-                leaveChatRoom(ctx, msg);
-                break;
-            case 3:
-                sendChatRoomMessage(ctx, msg);
-                break;
-            case 4:
-                sendChatRoomMessage(ctx, msg);
-                break;
-            default:
-                log.warn("未知的聊天室消息类型: {}, userId: {}", messageType, msg.getUid());
+    /** 由 ServiceLoader 发现，登记聊天室各消息类型的处理方法 **/
+    public static final class Registration implements ProcessorRegistration {
+        @Override
+        public void register(ProcessorRegistry.Registrar registrar) {
+            registrar.register(MessageTypeEnum.CHAT_ROOM_JOIN, INSTANCE::joinChatRoom);
+            registrar.register(MessageTypeEnum.CHAT_ROOM_TEXT, INSTANCE::sendChatRoomMessage);
+            registrar.register(MessageTypeEnum.CHAT_ROOM_LEAVE, INSTANCE::leaveChatRoom);
+            registrar.register(MessageTypeEnum.CHAT_ROOM_FILE, INSTANCE::sendChatRoomMessage);
+            registrar.register(MessageTypeEnum.CHAT_ROOM_AUDIO, INSTANCE::sendChatRoomMessage);
         }
     }
 
     /** messageType为0，进入聊天室 **/
     private void joinChatRoom(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long userId = msg.getUid();
+        Long userId = UserLinkManager.getUserId(ctx.channel());
         Long roomId = msg.getToId(); // 使用toId作为聊天室ID
 
         if (userId == null || roomId == null) {
@@ -66,20 +58,24 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
             return;
         }
 
-        // 将用户添加到聊天室
+        // 将用户添加到聊天室；用户与连接的绑定在握手认证时已完成
         boolean success = UserChatRoomManager.addChatRoomUser(roomId, userId);
-        
-        // 确保用户的channel连接被管理
-        UserLinkManager.addUserChannel(userId, ctx);
+
+        // 在业务线程上执行，连接可能已断开且断线清理已经跑完，此时撤销本次加入，避免留下失效成员
+        if (success && !ctx.channel().isActive()) {
+            UserChatRoomManager.removeChatRoomUser(roomId, userId);
+            log.info("用户 {} 进入聊天室 {} 时连接已断开，撤销加入", userId, roomId);
+            return;
+        }
 
         if (success) {
             log.info("用户 {} 成功进入聊天室 {}", userId, roomId);
             
             // 可以向用户发送进入成功的确认消息
-            CompleteMessage response = new CompleteMessage();
-            response.setAppId(msg.getAppId());
+            PooledMessage response = PooledMessage.newInstance();
+            response.setAppId(AppEnum.CHAT_ROOM.getApp());
             response.setUid(userId);
-            response.setMessageType(0);
+            response.setMessageType(MessageTypeEnum.CHAT_ROOM_JOIN.getType());
             response.setToId(roomId);
             response.setContent("成功进入聊天室: " + roomId);
             response.setTimeStamp(System.currentTimeMillis());
@@ -92,7 +88,7 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
 
     /** messageType为1，发送聊天室文本消息；messageType为3，发送聊天室文件消息；messageType为4，发送聊天室语音消息 **/
     private void sendChatRoomMessage(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long senderId = msg.getUid();
+        Long senderId = UserLinkManager.getUserId(ctx.channel());
         Long roomId = msg.getToId(); // 使用toId作为聊天室ID
         String content = msg.getContent();
 
@@ -101,51 +97,55 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
             return;
         }
 
-        // 获取聊天室中的所有用户
-        Set<Long> userSet = UserChatRoomManager.getChatRoomUserSet(roomId);
-        
-        if (userSet == null || userSet.isEmpty()) {
+        // 获取聊天室中所有用户的快照，遍历过程中移除失效用户不影响本次广播
+        long[] userIds = UserChatRoomManager.getChatRoomUsers(roomId);
+
+        if (userIds.length == 0) {
             log.warn("聊天室 {} 中没有用户", roomId);
             return;
         }
 
-        log.info("向聊天室 {} 中的 {} 个用户广播消息，发送者: {}", roomId, userSet.size(), senderId);
+        log.info("向聊天室 {} 中的 {} 个用户广播消息，发送者: {}", roomId, userIds.length, senderId);
 
         saveChatRoomMessage(senderId, roomId, content);
 
-        // 构建要广播的消息
-        CompleteMessage broadcastMsg = new CompleteMessage();
-        broadcastMsg.setAppId(msg.getAppId());
+        // 构建要广播的消息，只用于编码，广播结束后放回对象池
+        PooledMessage broadcastMsg = PooledMessage.newInstance();
+        broadcastMsg.setAppId(AppEnum.CHAT_ROOM.getApp());
         broadcastMsg.setUid(senderId);
         broadcastMsg.setMessageType(msg.getMessageType());
         broadcastMsg.setToId(roomId);
         broadcastMsg.setContent(content);
         broadcastMsg.setTimeStamp(System.currentTimeMillis());
 
-        // 向聊天室中的每个用户发送消息
-        int successCount = 0;
-        for (Long userId : userSet) {
+        // 收集在线接收者，失效的顺便移出聊天室
+        List<ChannelHandlerContext> targets = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
             // 排除发送者自己
-            if (userId.equals(senderId)) {
+            if (userId == senderId) {
                 continue;
             }
 
             ChannelHandlerContext userCtx = UserLinkManager.getUserChannelCtx(userId);
             if (userCtx != null && userCtx.channel().isActive()) {
-                try {
-                    userCtx.writeAndFlush(broadcastMsg);
-                    successCount++;
-                } catch (Exception e) {
-                    log.error("向用户 {} 发送消息失败", userId, e);
-                }
+                targets.add(userCtx);
             } else {
                 log.warn("用户 {} 的连接已断开或不可用", userId);
-                // 可以考虑从聊天室中移除该用户
                 UserChatRoomManager.removeChatRoomUser(roomId, userId);
             }
         }
 
-        log.info("聊天室 {} 消息广播完成，成功发送给 {} 个用户", roomId, successCount);
+        // 按接收者所在 event loop 分组，每组一个任务批量写出、各 flush 一次
+        int successCount = 0;
+        try {
+            successCount = EventLoopFanOut.send(ctx.alloc(), broadcastMsg, targets);
+        } catch (Exception e) {
+            log.error("聊天室 {} 消息广播失败", roomId, e);
+        } finally {
+            broadcastMsg.recycle();
+        }
+
+        log.info("聊天室 {} 消息广播完成，提交发送给 {} 个用户", roomId, successCount);
     }
 
     private void saveChatRoomMessage(Long senderId, Long roomId, String content) {
@@ -169,7 +169,7 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
 
     /** messageType为2，退出聊天室 **/
     private void leaveChatRoom(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long userId = msg.getUid();
+        Long userId = UserLinkManager.getUserId(ctx.channel());
         Long roomId = msg.getToId(); // 使用toId作为聊天室ID
 
         if (userId == null || roomId == null) {
@@ -184,10 +184,10 @@ public class ChatRoomProcessor extends AbstractMessageProcessor<CompleteMessage>
             log.info("用户 {} 成功退出聊天室 {}", userId, roomId);
             
             // 向用户发送退出成功的确认消息
-            CompleteMessage response = new CompleteMessage();
-            response.setAppId(msg.getAppId());
+            PooledMessage response = PooledMessage.newInstance();
+            response.setAppId(AppEnum.CHAT_ROOM.getApp());
             response.setUid(userId);
-            response.setMessageType(2);
+            response.setMessageType(MessageTypeEnum.CHAT_ROOM_LEAVE.getType());
             response.setToId(roomId);
             response.setContent("成功退出聊天室: " + roomId);
             response.setTimeStamp(System.currentTimeMillis());
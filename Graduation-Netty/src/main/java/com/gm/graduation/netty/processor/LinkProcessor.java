@@ -1,7 +1,14 @@
 package com.gm.graduation.netty.processor;
 
 import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.common.utils.AuthConfig;
+import com.gm.graduation.netty.cache.UserChatRoomManager;
 import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.handler.HeartbeatHandler;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 
@@ -11,7 +18,7 @@ import lombok.extern.slf4j.Slf4j;
  * desc: 长连接处理器，包含 建连(0)、断线(1)、心跳(2)
  */
 @Slf4j
-public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
+public class LinkProcessor {
 
     private LinkProcessor(){}
 
@@ -19,46 +26,36 @@ public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
 
     public static LinkProcessor getInstance() {return INSTANCE;}
 
-    @Override
-    public void process(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Integer messageType = msg.getMessageType();
-
-        switch (messageType) {
-            case 0:
-                establishConnection(ctx, msg);
-                break;
-            case 1:
-                disconnectConnection(ctx, msg);
-                break;
-            case 2:
-                handleHeartbeat(ctx, msg);
-                break;
-            default:
-                log.warn("未知的连接消息类型: {}, userId: {}", messageType, msg.getUid());
+    /** 由 ServiceLoader 发现，登记连接类各消息类型的处理方法 **/
+    public static final class Registration implements ProcessorRegistration {
+        @Override
+        public void register(ProcessorRegistry.Registrar registrar) {
+            registrar.register(MessageTypeEnum.LINK_CONNECT, INSTANCE::establishConnection);
+            registrar.register(MessageTypeEnum.LINK_DISCONNECT, INSTANCE::disconnectConnection);
+            registrar.register(MessageTypeEnum.LINK_HEARTBEAT, INSTANCE::handleHeartbeat);
         }
     }
 
-    /** messageType为0，建立连接 **/
+    /**
+     * messageType为0，建立连接
+     * 用户身份在 websocket 握手时已由 token 校验并绑定到 channel 上，这里只登记 user -> channel；
+     * 关闭握手鉴权时（本地调试）才使用消息中的 uid
+     */
     private void establishConnection(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long userId = msg.getUid();
-        String token = msg.getToken();
-
-        if (userId == null) {
-            log.warn("建立连接参数不完整: userId={}", userId);
-            sendErrorResponse(ctx, msg, "用户ID不能为空");
-            return;
+        Long userId = UserLinkManager.getUserId(ctx.channel());
+        if (userId == null && !AuthConfig.enabled()) {
+            userId = msg.getUid();
         }
 
-        // TODO: 这里可以添加token验证逻辑
-        if (token == null || token.trim().isEmpty()) {
-            log.warn("建立连接失败，token为空: userId={}", userId);
-            sendErrorResponse(ctx, msg, "token不能为空");
+        if (userId == null) {
+            log.warn("建立连接失败，连接未通过鉴权, channel: {}", ctx.channel().id().asShortText());
+            sendErrorResponse(ctx, msg, "连接未通过鉴权");
             return;
         }
 
         // 检查用户是否已经连接
         ChannelHandlerContext existingCtx = UserLinkManager.getUserChannelCtx(userId);
-        if (existingCtx != null && existingCtx.channel().isActive()) {
+        if (existingCtx != null && existingCtx.channel() != ctx.channel() && existingCtx.channel().isActive()) {
             log.warn("用户 {} 已经存在活跃连接，将断开旧连接", userId);
             // 断开旧连接
             existingCtx.close();
@@ -66,14 +63,18 @@ public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
 
         // 建立新连接
         UserLinkManager.addUserChannel(userId, ctx);
+        // 客户端选择是否压缩下行消息，握手时已协商 permessage-deflate 才会生效
+        if (msg.getCompression() != null) {
+            ctx.channel().attr(ChannelAttributes.COMPRESSION).set(msg.getCompression() == 1);
+        }
         
         log.info("用户 {} 成功建立连接, channel: {}", userId, ctx.channel().id().asShortText());
 
         // 发送连接成功响应
-        CompleteMessage response = new CompleteMessage();
-        response.setAppId(msg.getAppId());
+        PooledMessage response = PooledMessage.newInstance();
+        response.setAppId(AppEnum.LINK.getApp());
         response.setUid(userId);
-        response.setMessageType(0);
+        response.setMessageType(MessageTypeEnum.LINK_CONNECT.getType());
         response.setContent("连接建立成功");
         response.setTimeStamp(System.currentTimeMillis());
         
@@ -82,23 +83,25 @@ public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
 
     /** messageType为1，断开连接 **/
     private void disconnectConnection(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long userId = msg.getUid();
+        Long userId = UserLinkManager.getUserId(ctx.channel());
 
         if (userId == null) {
             log.warn("断开连接参数不完整: userId={}", userId);
             return;
         }
 
-        // 从连接管理器中移除用户
-        UserLinkManager.removeUserChannel(userId);
+        // 从连接管理器中移除用户，只移除本连接的绑定，并退出所有聊天室
+        if (UserLinkManager.removeUserChannel(userId, ctx)) {
+            UserChatRoomManager.removeUserFromAllChatRooms(userId);
+        }
         
         log.info("用户 {} 主动断开连接, channel: {}", userId, ctx.channel().id().asShortText());
 
         // 发送断开连接确认响应
-        CompleteMessage response = new CompleteMessage();
-        response.setAppId(msg.getAppId());
+        PooledMessage response = PooledMessage.newInstance();
+        response.setAppId(AppEnum.LINK.getApp());
         response.setUid(userId);
-        response.setMessageType(1);
+        response.setMessageType(MessageTypeEnum.LINK_DISCONNECT.getType());
         response.setContent("连接已断开");
         response.setTimeStamp(System.currentTimeMillis());
         
@@ -109,41 +112,22 @@ public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
         });
     }
 
-    /** messageType为2，心跳保活 **/
+    /**
+     * messageType为2，心跳保活
+     * 连接存活已由服务端 ping/pong 与读空闲检测保证，这里只为兼容旧客户端，直接回复预编码的 pong 帧
+     */
     private void handleHeartbeat(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long userId = msg.getUid();
-
-        if (userId == null) {
-            log.warn("心跳消息参数不完整: userId={}", userId);
-            return;
-        }
-
-        // 验证用户连接是否存在且活跃
-        ChannelHandlerContext userCtx = UserLinkManager.getUserChannelCtx(userId);
-        if (userCtx == null || !userCtx.channel().isActive()) {
-            log.warn("用户 {} 心跳检测失败，连接不存在或已断开", userId);
-            // 如果连接不存在，重新建立连接映射
-            UserLinkManager.addUserChannel(userId, ctx);
-        }
-
-        log.debug("收到用户 {} 的心跳消息, channel: {}", userId, ctx.channel().id().asShortText());
-
-        // 发送心跳响应
-        CompleteMessage response = new CompleteMessage();
-        response.setAppId(msg.getAppId());
-        response.setUid(userId);
-        response.setMessageType(2);
-        response.setContent("pong");
-        response.setTimeStamp(System.currentTimeMillis());
-        
-        ctx.writeAndFlush(response);
+        ctx.writeAndFlush(HeartbeatHandler.pongFrame(ctx.channel()));
     }
 
     /** 发送错误响应 **/
     private void sendErrorResponse(ChannelHandlerContext ctx, CompleteMessage originalMsg, String errorMsg) {
-        CompleteMessage response = new CompleteMessage();
-        response.setAppId(originalMsg.getAppId());
-        response.setUid(originalMsg.getUid());
+        PooledMessage response = PooledMessage.newInstance();
+        response.setAppId(AppEnum.LINK.getApp());
+        Long userId = UserLinkManager.getUserId(ctx.channel());
+        if (userId != null) {
+            response.setUid(userId);
+        }
         response.setMessageType(originalMsg.getMessageType());
         response.setContent("ERROR: " + errorMsg);
         response.setTimeStamp(System.currentTimeMillis());
@@ -157,8 +141,10 @@ public class LinkProcessor extends AbstractMessageProcessor<CompleteMessage>{
         String channelId = ctx.channel().id().asShortText();
         log.info("检测到连接断开, channel: {}", channelId);
         
-        // 遍历查找并移除对应的用户连接
-        // 注意：这种方式效率不高，如果用户量大可以考虑维护channel到userId的反向映射
-        UserLinkManager.removeChannelFromAllUsers(ctx);
+        // 按 channel 上记录的 userId 直接移除；用户已在新连接上登录时不动其聊天室
+        Long userId = UserLinkManager.removeChannel(ctx);
+        if (userId != null) {
+            UserChatRoomManager.removeUserFromAllChatRooms(userId);
+        }
     }
 }
@@ -0,0 +1,14 @@
+package com.gm.graduation.netty.processor;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * @author: xexgm
+ * desc: 单个消息类型的处理方法
+ */
+@FunctionalInterface
+public interface MessageHandler {
+
+    void handle(ChannelHandlerContext ctx, CompleteMessage msg);
+}
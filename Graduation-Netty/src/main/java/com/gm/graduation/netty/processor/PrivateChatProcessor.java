@@ -3,7 +3,11 @@ package com.gm.graduation.netty.processor;
 import com.gm.graduation.common.api.IPrivateMessageService;
 import com.gm.graduation.common.domain.CompleteMessage;
 import com.gm.graduation.common.domain.PrivateMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.backpressure.SlowConsumerGuard;
 import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.codec.PooledMessage;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 
@@ -14,7 +18,7 @@ import java.time.LocalDateTime;
  * desc: 私聊消息处理器
  */
 @Slf4j
-public class PrivateChatProcessor extends AbstractMessageProcessor<CompleteMessage> {
+public class PrivateChatProcessor {
 
     private static IPrivateMessageService privateMessageService;
 
@@ -30,9 +34,19 @@ public class PrivateChatProcessor extends AbstractMessageProcessor<CompleteMessa
         return INSTANCE;
     }
 
-    @Override
-    public void process(ChannelHandlerContext ctx, CompleteMessage msg) {
-        Long senderId = msg.getUid();
+    /** 由 ServiceLoader 发现，私聊的文本、文件、语音消息处理方式相同 **/
+    public static final class Registration implements ProcessorRegistration {
+        @Override
+        public void register(ProcessorRegistry.Registrar registrar) {
+            registrar.register(MessageTypeEnum.PRIVATE_CHAT_TEXT, INSTANCE::handlePrivateMessage);
+            registrar.register(MessageTypeEnum.PRIVATE_CHAT_FILE, INSTANCE::handlePrivateMessage);
+            registrar.register(MessageTypeEnum.PRIVATE_CHAT_AUDIO, INSTANCE::handlePrivateMessage);
+        }
+    }
+
+    /** 私聊消息落库并尝试在线推送，不区分消息类型 **/
+    public void handlePrivateMessage(ChannelHandlerContext ctx, CompleteMessage msg) {
+        Long senderId = UserLinkManager.getUserId(ctx.channel());
         Long receiverId = msg.getToId();
         String content = msg.getContent();
 
@@ -48,8 +62,11 @@ public class PrivateChatProcessor extends AbstractMessageProcessor<CompleteMessa
         privateMessage.setContent(content);
         privateMessage.setCreateTime(LocalDateTime.now());
         
+        // 接收方在线且未积压时才实时推送；消费过慢被丢弃的消息记为未读，由客户端拉取历史补齐
         ChannelHandlerContext receiverCtx = UserLinkManager.getUserChannelCtx(receiverId);
-        if (receiverCtx != null && receiverCtx.channel().isActive()) {
+        boolean push = receiverCtx != null && receiverCtx.channel().isActive()
+            && SlowConsumerGuard.admit(receiverCtx, AppEnum.PRIVATE_CHAT);
+        if (push) {
             privateMessage.setIsRead(1); // 标记为已读（或者由前端后续ACK，这里简单处理）
         } else {
             privateMessage.setIsRead(0); // 标记为未读（离线消息）
@@ -66,9 +83,9 @@ public class PrivateChatProcessor extends AbstractMessageProcessor<CompleteMessa
         }
 
         // 2. 尝试在线推送
-        if (receiverCtx != null && receiverCtx.channel().isActive()) {
-            CompleteMessage pushMsg = new CompleteMessage();
-            pushMsg.setAppId(msg.getAppId());
+        if (push) {
+            PooledMessage pushMsg = PooledMessage.newInstance();
+            pushMsg.setAppId(AppEnum.PRIVATE_CHAT.getApp());
             pushMsg.setUid(senderId);
             pushMsg.setToId(receiverId);
             pushMsg.setMessageType(msg.getMessageType());
@@ -78,7 +95,7 @@ public class PrivateChatProcessor extends AbstractMessageProcessor<CompleteMessa
             receiverCtx.writeAndFlush(pushMsg);
             log.info("用户 {} 向 用户 {} 发送私聊消息，已实时推送", senderId, receiverId);
         } else {
-            log.info("用户 {} 向 用户 {} 发送私聊消息，对方离线，已转为离线消息", senderId, receiverId);
+            log.info("用户 {} 向 用户 {} 发送私聊消息，对方离线或消费过慢，已转为离线消息", senderId, receiverId);
         }
     }
 }
@@ -1,20 +0,0 @@
-package com.gm.graduation.netty.processor;
-
-import com.gm.graduation.common.domain.CompleteMessage;
-import com.gm.graduation.common.enums.AppEnum;
-
-/**
- * @author: xexgm
- * @date: 2025/10/1
- */
-public class ProcessorFactory {
-
-    public static AbstractMessageProcessor<CompleteMessage> getProcessor(AppEnum app) {
-        return switch (app) {
-            case LINK -> LinkProcessor.getInstance();
-            case CHAT_ROOM -> ChatRoomProcessor.getInstance();
-            case PRIVATE_CHAT -> PrivateChatProcessor.getInstance();
-            default -> throw new IllegalArgumentException("不支持的消息类型");
-        };
-    }
-}
@@ -0,0 +1,12 @@
+package com.gm.graduation.netty.processor;
+
+/**
+ * @author: xexgm
+ * desc: 处理器登记入口，由 ServiceLoader 从 META-INF/services 中发现。
+ * 新增业务线时实现本接口并在 services 文件中登记，无需改动分发代码
+ */
+public interface ProcessorRegistration {
+
+    /** 把各消息类型的处理方法登记到 registrar **/
+    void register(ProcessorRegistry.Registrar registrar);
+}
@@ -0,0 +1,83 @@
+package com.gm.graduation.netty.processor;
+
+import java.util.Arrays;
+import java.util.ServiceLoader;
+
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 处理器注册表。类加载时通过 ServiceLoader 收集各 ProcessorRegistration 登记的处理方法，
+ * 建成 [appId][messageType] 二维表，分发时两次数组下标即可定位，不再逐层 switch
+ */
+@Slf4j
+public final class ProcessorRegistry {
+
+    private static final RegisteredHandler[][] TABLE = build();
+
+    private ProcessorRegistry() {}
+
+    /** 按 appId / messageType 查表，未登记的组合返回 null **/
+    public static RegisteredHandler lookup(Integer appId, Integer messageType) {
+        if (appId == null || messageType == null || appId < 0 || appId >= TABLE.length) {
+            return null;
+        }
+        RegisteredHandler[] handlers = TABLE[appId];
+        return messageType < 0 || messageType >= handlers.length ? null : handlers[messageType];
+    }
+
+    private static RegisteredHandler[][] build() {
+        Registrar registrar = new Registrar();
+        for (ProcessorRegistration registration
+            : ServiceLoader.load(ProcessorRegistration.class, ProcessorRegistry.class.getClassLoader())) {
+            registration.register(registrar);
+        }
+
+        RegisteredHandler[][] table = registrar.table;
+        int count = 0;
+        for (RegisteredHandler[] handlers : table) {
+            for (RegisteredHandler handler : handlers) {
+                if (handler != null) {
+                    NettyMetrics.register("processor." + handler.type().name(), handler::stats);
+                    count++;
+                }
+            }
+        }
+        log.info("[ProcessorRegistry] 已登记 {} 个消息处理方法", count);
+        return table;
+    }
+
+    /** 登记时使用，同一消息类型只能登记一次 **/
+    public static final class Registrar {
+
+        private final RegisteredHandler[][] table;
+
+        private Registrar() {
+            int maxApp = 0;
+            for (AppEnum app : AppEnum.values()) {
+                maxApp = Math.max(maxApp, app.getApp());
+            }
+            int[] maxType = new int[maxApp + 1];
+            Arrays.fill(maxType, -1);
+            for (MessageTypeEnum type : MessageTypeEnum.values()) {
+                int app = type.getApp().getApp();
+                maxType[app] = Math.max(maxType[app], type.getType());
+            }
+            table = new RegisteredHandler[maxApp + 1][];
+            for (int app = 0; app <= maxApp; app++) {
+                table[app] = new RegisteredHandler[maxType[app] + 1];
+            }
+        }
+
+        public void register(MessageTypeEnum type, MessageHandler handler) {
+            int app = type.getApp().getApp();
+            if (table[app][type.getType()] != null) {
+                throw new IllegalStateException("消息类型 " + type + " 重复登记处理方法");
+            }
+            table[app][type.getType()] = new RegisteredHandler(type, handler);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.gm.graduation.netty.processor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * @author: xexgm
+ * desc: 处理器表中的一项，调用登记的处理方法并记录调用次数、失败次数与耗时
+ */
+public final class RegisteredHandler {
+
+    private final MessageTypeEnum type;
+    private final MessageHandler handler;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    RegisteredHandler(MessageTypeEnum type, MessageHandler handler) {
+        this.type = type;
+        this.handler = handler;
+    }
+
+    public MessageTypeEnum type() {
+        return type;
+    }
+
+    public void invoke(ChannelHandlerContext ctx, CompleteMessage msg) {
+        long start = System.nanoTime();
+        try {
+            handler.handle(ctx, msg);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            invocations.increment();
+            totalNanos.add(elapsed);
+            if (elapsed > maxNanos.get()) {
+                maxNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+    }
+
+    /** 调用次数、失败次数、平均与最大耗时（微秒） **/
+    Map<String, Object> stats() {
+        long count = invocations.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invocations", count);
+        stats.put("failures", failures.sum());
+        stats.put("avgMicros", count == 0 ? 0L : totalNanos.sum() / count / 1000);
+        stats.put("maxMicros", maxNanos.get() / 1000);
+        return stats;
+    }
+}
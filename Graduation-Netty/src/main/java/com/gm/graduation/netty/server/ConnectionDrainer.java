@@ -0,0 +1,145 @@
+package com.gm.graduation.netty.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.AppEnum;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 平滑下线时分批关闭连接。窗口期按批数切成等长时间片，连接随机分到各时间片：
+ * 开始时给每个连接下发重连通知，重连时间在所属时间片内随机；时间片结束时关闭该批中仍未断开的连接。
+ * 客户端的重连由此均匀分散在整个窗口期内，不会在同一时刻涌向其它节点。
+ */
+@Slf4j
+final class ConnectionDrainer {
+
+    /** 等待连接关闭，超时返回 false；测试中替换为不真正等待的实现 **/
+    interface Waiter {
+        boolean await(CountDownLatch allClosed, long timeoutNanos) throws InterruptedException;
+    }
+
+    private final long windowMillis;
+    private final int waves;
+    private final LongSupplier nanoClock;
+    private final Waiter waiter;
+
+    ConnectionDrainer(long windowMillis, int waves) {
+        this(windowMillis, waves, System::nanoTime, (allClosed, timeoutNanos) -> allClosed.await(timeoutNanos, TimeUnit.NANOSECONDS));
+    }
+
+    ConnectionDrainer(long windowMillis, int waves, LongSupplier nanoClock, Waiter waiter) {
+        if (windowMillis <= 0 || waves <= 0) {
+            throw new IllegalArgumentException("windowMillis 与 waves 必须大于 0");
+        }
+        this.windowMillis = windowMillis;
+        this.waves = waves;
+        this.nanoClock = nanoClock;
+        this.waiter = waiter;
+    }
+
+    /** 阻塞调用线程直到最后一批连接关闭；没有连接，或剩余连接都已自行断开（客户端收到通知后提前重连）时立即返回 **/
+    void drain(Collection<Channel> connections) {
+        List<Channel> channels = new ArrayList<>();
+        for (Channel channel : connections) {
+            if (channel.isActive()) {
+                channels.add(channel);
+            }
+        }
+        if (channels.isEmpty()) {
+            return;
+        }
+        Collections.shuffle(channels);
+        long sliceMillis = Math.max(1, windowMillis / waves);
+        log.info("[ConnectionDrainer] 开始分批关闭连接: connections: {}, waves: {}, windowMs: {}",
+            channels.size(), waves, windowMillis);
+
+        CountDownLatch allClosed = new CountDownLatch(channels.size());
+        for (Channel channel : channels) {
+            channel.closeFuture().addListener(f -> allClosed.countDown());
+        }
+
+        long start = nanoClock.getAsLong();
+        for (int i = 0; i < channels.size(); i++) {
+            int wave = wave(i, channels.size());
+            long delay = wave * sliceMillis + ThreadLocalRandom.current().nextLong(sliceMillis);
+            sendReconnect(channels.get(i), delay);
+        }
+
+        boolean waiting = true;
+        for (int wave = 0; wave < waves; wave++) {
+            if (waiting) {
+                long timeoutNanos = start + TimeUnit.MILLISECONDS.toNanos((wave + 1) * sliceMillis) - nanoClock.getAsLong();
+                try {
+                    if (timeoutNanos > 0 && waiter.await(allClosed, timeoutNanos)) {
+                        log.info("[ConnectionDrainer] 剩余连接均已断开，第 {}/{} 批起不再等待", wave + 1, waves);
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    // 关闭流程被打断时不再等待，剩余批次立即关闭
+                    Thread.currentThread().interrupt();
+                    waiting = false;
+                }
+            }
+            int closed = 0;
+            for (int i = 0; i < channels.size(); i++) {
+                if (wave(i, channels.size()) == wave && close(channels.get(i))) {
+                    closed++;
+                }
+            }
+            log.info("[ConnectionDrainer] 第 {}/{} 批关闭 {} 个连接", wave + 1, waves, closed);
+        }
+    }
+
+    /** 第 index 个连接所属的批次，各批数量相差不超过 1 **/
+    private int wave(int index, int total) {
+        return (int) ((long) index * waves / total);
+    }
+
+    /** 握手完成的连接才能收到 websocket 消息 **/
+    private static void sendReconnect(Channel channel, long delayMillis) {
+        if (!channel.isActive() || !handshakeComplete(channel)) {
+            return;
+        }
+        CompleteMessage reconnect = new CompleteMessage();
+        reconnect.setAppId(AppEnum.LINK.getApp());
+        reconnect.setUid(UserLinkManager.getUserId(channel));
+        reconnect.setMessageType(MessageTypeEnum.LINK_RECONNECT.getType());
+        reconnect.setContent(String.valueOf(delayMillis));
+        reconnect.setTimeStamp(System.currentTimeMillis());
+        channel.writeAndFlush(reconnect);
+    }
+
+    /** 已握手的连接先发 1001 关闭帧，写缓冲中的消息随之写出后再关闭 **/
+    private static boolean close(Channel channel) {
+        if (!channel.isActive()) {
+            return false;
+        }
+        if (handshakeComplete(channel)) {
+            channel.writeAndFlush(new CloseWebSocketFrame(WebSocketCloseStatus.ENDPOINT_UNAVAILABLE))
+                .addListener(ChannelFutureListener.CLOSE);
+        } else {
+            channel.close();
+        }
+        return true;
+    }
+
+    private static boolean handshakeComplete(Channel channel) {
+        return channel.hasAttr(ChannelAttributes.WIRE_PROTOCOL) && channel.attr(ChannelAttributes.WIRE_PROTOCOL).get() != null;
+    }
+}
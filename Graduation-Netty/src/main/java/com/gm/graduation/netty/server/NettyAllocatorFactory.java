@@ -0,0 +1,163 @@
+package com.gm.graduation.netty.server;
+
+import com.gm.graduation.common.utils.AllocatorConfig;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author: xexgm
+ * desc: 按 AllocatorConfig 创建服务端连接使用的 ByteBuf 分配器，并把分配器的内存占用发布到 /netty/metrics；
+ * 同时负责安装泄漏检测，泄漏次数计入 allocator.leaksDetected
+ */
+@Slf4j
+public class NettyAllocatorFactory {
+
+    /** sampled 模式的默认采样间隔：每 4096 个 ByteBuf 跟踪一个 **/
+    static final int SAMPLED_INTERVAL = 4096;
+
+    private static final AtomicBoolean LEAK_DETECTION_INSTALLED = new AtomicBoolean(false);
+    private static final LongAdder LEAKS = new LongAdder();
+
+    public static ByteBufAllocator buildAllocator() {
+        ByteBufAllocator allocator = newAllocator(AllocatorConfig.type(), AllocatorConfig.preferDirect());
+        registerMetrics(allocator);
+        return allocator;
+    }
+
+    static ByteBufAllocator newAllocator(String type, boolean preferDirect) {
+        switch (type.trim().toLowerCase()) {
+            case "unpooled":
+                log.info("[Allocator] unpooled, preferDirect: {}", preferDirect);
+                return new UnpooledByteBufAllocator(preferDirect);
+            case "pooled":
+                int pageSize = PooledByteBufAllocator.defaultPageSize();
+                int maxOrder = AllocatorConfig.chunkSizeBytes() > 0
+                    ? maxOrder(AllocatorConfig.chunkSizeBytes(), pageSize) : PooledByteBufAllocator.defaultMaxOrder();
+                int heapArenas = orDefault(AllocatorConfig.heapArenas(), PooledByteBufAllocator.defaultNumHeapArena());
+                int directArenas = orDefault(AllocatorConfig.directArenas(), PooledByteBufAllocator.defaultNumDirectArena());
+                int smallCacheSize = orDefault(AllocatorConfig.smallCacheSize(), PooledByteBufAllocator.defaultSmallCacheSize());
+                int normalCacheSize = orDefault(AllocatorConfig.normalCacheSize(), PooledByteBufAllocator.defaultNormalCacheSize());
+                boolean useCacheForAllThreads = AllocatorConfig.useCacheForAllThreads();
+                log.info("[Allocator] pooled, preferDirect: {}, heapArenas: {}, directArenas: {}, chunkSize: {}, "
+                        + "smallCacheSize: {}, normalCacheSize: {}, useCacheForAllThreads: {}",
+                    preferDirect, heapArenas, directArenas, pageSize << maxOrder, smallCacheSize, normalCacheSize,
+                    useCacheForAllThreads);
+                return new PooledByteBufAllocator(preferDirect, heapArenas, directArenas, pageSize, maxOrder,
+                    smallCacheSize, normalCacheSize, useCacheForAllThreads);
+            default:
+                throw new IllegalArgumentException("Unknown netty.allocator.type: " + type);
+        }
+    }
+
+    /** chunk 大小换算为 Netty 的 maxOrder：chunkSize = pageSize << maxOrder **/
+    static int maxOrder(int chunkSizeBytes, int pageSize) {
+        int order = Integer.numberOfTrailingZeros(chunkSizeBytes) - Integer.numberOfTrailingZeros(pageSize);
+        if (Integer.bitCount(chunkSizeBytes) != 1 || order < 0 || order > 14) {
+            throw new IllegalArgumentException("netty.allocator.chunk-size-bytes 须为页大小 " + pageSize
+                + " 乘以 2 的 0 ~ 14 次幂: " + chunkSizeBytes);
+        }
+        return order;
+    }
+
+    private static int orDefault(int configured, int defaultValue) {
+        return configured > 0 ? configured : defaultValue;
+    }
+
+    private static void registerMetrics(ByteBufAllocator allocator) {
+        NettyMetrics.unregister("allocator.");
+        ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+        NettyMetrics.register("allocator.type", allocator.getClass()::getSimpleName);
+        NettyMetrics.register("allocator.usedDirectMemory", metric::usedDirectMemory);
+        NettyMetrics.register("allocator.usedHeapMemory", metric::usedHeapMemory);
+        NettyMetrics.register("allocator.maxDirectMemory", PlatformDependent::maxDirectMemory);
+        NettyMetrics.register("allocator.leaksDetected", LEAKS::sum);
+        if (allocator instanceof PooledByteBufAllocator) {
+            PooledByteBufAllocator pooled = (PooledByteBufAllocator) allocator;
+            PooledByteBufAllocatorMetric pooledMetric = pooled.metric();
+            NettyMetrics.register("allocator.pinnedDirectMemory", pooled::pinnedDirectMemory);
+            NettyMetrics.register("allocator.chunkSize", pooledMetric::chunkSize);
+            NettyMetrics.register("allocator.threadLocalCaches", pooledMetric::numThreadLocalCaches);
+            NettyMetrics.register("allocator.directArenas", () -> arenas(pooledMetric.directArenas()));
+            NettyMetrics.register("allocator.heapArenas", () -> arenas(pooledMetric.heapArenas()));
+        }
+    }
+
+    /**
+     * 每个 arena 一项。分配先走线程本地缓存，命中时不经过 arena，Netty 不单独统计命中次数；
+     * 这里的 allocations 即缓存未命中、由 arena 分配的次数，与请求量对比可估算缓存命中率
+     */
+    private static List<Map<String, Object>> arenas(List<PoolArenaMetric> arenas) {
+        List<Map<String, Object>> result = new ArrayList<>(arenas.size());
+        for (PoolArenaMetric arena : arenas) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("threadCaches", arena.numThreadCaches());
+            m.put("activeAllocations", arena.numActiveAllocations());
+            m.put("activeBytes", arena.numActiveBytes());
+            m.put("allocations", arena.numAllocations());
+            m.put("smallAllocations", arena.numSmallAllocations());
+            m.put("normalAllocations", arena.numNormalAllocations());
+            m.put("hugeAllocations", arena.numHugeAllocations());
+            m.put("deallocations", arena.numDeallocations());
+            result.add(m);
+        }
+        return result;
+    }
+
+    /**
+     * 按 netty.allocator.leak-detection 设置泄漏检测级别，并让每次检测到的泄漏计数。
+     * 只对之后创建的检测器生效，须在第一个 ByteBuf 创建之前调用（启动类 main 中最先调用），重复调用无效
+     */
+    public static void installLeakDetection() {
+        if (!LEAK_DETECTION_INSTALLED.compareAndSet(false, true)) {
+            return;
+        }
+        String mode = AllocatorConfig.leakDetection();
+        boolean sampled = mode != null && "sampled".equalsIgnoreCase(mode.trim());
+        if (mode != null && !mode.isBlank()) {
+            ResourceLeakDetector.setLevel(sampled
+                ? ResourceLeakDetector.Level.ADVANCED : leakLevel(mode));
+        }
+        int configuredInterval = AllocatorConfig.leakSamplingInterval() > 0
+            ? AllocatorConfig.leakSamplingInterval() : sampled ? SAMPLED_INTERVAL : 0;
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new ResourceLeakDetectorFactory() {
+            @Override
+            public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval, long maxActive) {
+                ResourceLeakDetector<T> detector = new ResourceLeakDetector<>(resource,
+                    configuredInterval > 0 ? configuredInterval : samplingInterval);
+                detector.setLeakListener((resourceType, records) -> LEAKS.increment());
+                return detector;
+            }
+        });
+        log.info("[LeakDetection] level: {}, samplingInterval: {}", ResourceLeakDetector.getLevel(),
+            configuredInterval > 0 ? configuredInterval : "default");
+    }
+
+    static ResourceLeakDetector.Level leakLevel(String mode) {
+        try {
+            return ResourceLeakDetector.Level.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown netty.allocator.leak-detection: " + mode);
+        }
+    }
+
+    static long leaksDetected() {
+        return LEAKS.sum();
+    }
+}
@@ -1,28 +1,59 @@
 package com.gm.graduation.netty.server;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import com.gm.graduation.common.config.LifeCycle;
+import com.gm.graduation.common.utils.AdmissionConfig;
+import com.gm.graduation.common.utils.AuthConfig;
+import com.gm.graduation.common.utils.BusinessExecutorConfig;
+import com.gm.graduation.common.utils.CompressionConfig;
+import com.gm.graduation.common.utils.DrainConfig;
+import com.gm.graduation.common.utils.FlushConsolidationConfig;
+import com.gm.graduation.common.utils.HeartbeatConfig;
 import com.gm.graduation.common.utils.NettyConfig;
-import com.gm.graduation.common.utils.SystemUtil;
+import com.gm.graduation.common.utils.SlowConsumerConfig;
+import com.gm.graduation.common.utils.SocketConfig;
+import com.gm.graduation.common.utils.TransportConfig;
 import com.gm.graduation.common.utils.WssConfig;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.executor.OrderedBusinessExecutor;
 import com.gm.graduation.netty.handler.BusinessHandler;
+import com.gm.graduation.netty.handler.CompressionMetricsHandler;
+import com.gm.graduation.netty.handler.HandshakeAuthHandler;
+import com.gm.graduation.netty.handler.HeartbeatHandler;
+import com.gm.graduation.netty.handler.HeartbeatTimerHandler;
 import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import com.gm.graduation.netty.handler.WebSocketCompressionHandler;
 import com.gm.graduation.netty.handler.WebSocketFrameToMessageDecoder;
+import com.gm.graduation.netty.limit.AdmissionHandler;
+import com.gm.graduation.netty.metrics.NettyMetrics;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.UnixChannelOption;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolConfig;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.ReferenceCountedOpenSslContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
 import static com.gm.graduation.common.constant.LinkConfigConstant.LISTENING_PORT;
@@ -36,10 +67,26 @@ import static com.gm.graduation.common.constant.LinkConfigConstant.LISTENING_POR
 public class NettyServer implements LifeCycle {
 
     private final AtomicBoolean started = new AtomicBoolean(false);
+    /** 平滑下线中，监听 socket 已关闭但服务仍在运行 **/
+    private final AtomicBoolean draining = new AtomicBoolean(false);
 
     private ServerBootstrap serverBootstrap;
+    /** I/O 传输实现：io_uring / epoll / nio **/
+    private ServerTransport transport;
     private EventLoopGroup bossEventLoopGroup;
     private EventLoopGroup workerEventLoopGroup;
+    /** 监听 socket 与所有连接共用的 ByteBuf 分配器 **/
+    private ByteBufAllocator allocator;
+    /** 业务执行器，处理器的阻塞工作在此执行 **/
+    private OrderedBusinessExecutor businessExecutor;
+    /** TLS 握手中的签名、证书计算在此执行，避免大量重连时握手占满 I/O 线程 **/
+    private ExecutorService handshakeExecutor;
+    /** websocket 握手时的 token 校验在此执行，校验要查 Redis **/
+    private ExecutorService authExecutor;
+    /** 监听 socket，开启 SO_REUSEPORT 时同一端口有多个 **/
+    private final List<Channel> serverChannels = new ArrayList<>();
+    /** 所有已接入的连接（含未完成握手的），关闭后自动移除，平滑下线时据此分批关闭 **/
+    private final ChannelGroup connections = new DefaultChannelGroup("netty-connections", GlobalEventExecutor.INSTANCE);
 
     public NettyServer() {
     }
@@ -49,28 +96,72 @@ public class NettyServer implements LifeCycle {
      */
     @Override
     public void init() {
+        // 未在启动类中提前安装时在此安装，此前已创建的 ByteBuf 类型不受影响
+        NettyAllocatorFactory.installLeakDetection();
+        allocator = NettyAllocatorFactory.buildAllocator();
         serverBootstrap = new ServerBootstrap();
-        if (SystemUtil.useEpollMode()) {
-            bossEventLoopGroup = new EpollEventLoopGroup(NettyConfig.bossEventLoopGroupNum,
-                new DefaultThreadFactory("epoll-netty-boss-nio"));
-            workerEventLoopGroup = new EpollEventLoopGroup(NettyConfig.workerEventLoopGroupNum,
-                new DefaultThreadFactory("epoll-netty-worker-nio"));
-        } else {
-            bossEventLoopGroup = new NioEventLoopGroup(NettyConfig.bossEventLoopGroupNum,
-                new DefaultThreadFactory("default-netty-boss-nio"));
-            workerEventLoopGroup = new NioEventLoopGroup(NettyConfig.workerEventLoopGroupNum,
-                new DefaultThreadFactory("default-netty-worker-nio"));
+        transport = ServerTransport.resolve(TransportConfig.transport());
+        // 每个监听 socket 绑定时依次注册到下一个 boss 线程，boss 线程数不少于监听 socket 数
+        bossEventLoopGroup = transport.newEventLoopGroup(Math.max(NettyConfig.bossEventLoopGroupNum, listeners()),
+            transport.configName() + "-netty-boss");
+        workerEventLoopGroup = transport.newEventLoopGroup(NettyConfig.workerEventLoopGroupNum,
+            transport.configName() + "-netty-worker");
+        NettyMetrics.register("transport", transport::configName);
+        log.info("[InitEventLoopGroup] transport: {}, bossEventLoopGroup: {}, workerEventLoopGroup: {}",
+            transport.configName(), bossEventLoopGroup.getClass().getName(), workerEventLoopGroup.getClass().getName());
+        if (BusinessExecutorConfig.enabled()) {
+            businessExecutor = new OrderedBusinessExecutor(BusinessExecutorConfig.lanes(),
+                BusinessExecutorConfig.queueCapacity(), BusinessExecutorConfig.virtualThreads(),
+                BusinessExecutorConfig.threads());
         }
-        log.info("[InitEventLoopGroup] bossEventLoopGroup: {}, workerEventLoopGroup: {}",
-            bossEventLoopGroup.getClass().getName(), workerEventLoopGroup.getClass().getName());
     }
 
     @Override
     public void start() {
         init();
+        final int readerIdleSeconds = HeartbeatConfig.readerIdleSeconds();
+        final int pingIntervalSeconds = HeartbeatConfig.pingIntervalSeconds();
+        final boolean compressionEnabled = CompressionConfig.enabled();
+        final boolean flushConsolidation = FlushConsolidationConfig.enabled();
+        final int explicitFlushAfterFlushes = FlushConsolidationConfig.explicitFlushAfterFlushes();
+        final boolean consolidateWhenNoReadInProgress = FlushConsolidationConfig.consolidateWhenNoReadInProgress();
+        final AdmissionHandler admissionHandler = AdmissionConfig.enabled() ? new AdmissionHandler() : null;
+        if (AuthConfig.enabled()) {
+            // 队列有界，满了之后 execute 抛出 RejectedExecutionException，握手回复 503
+            int authThreads = Math.max(1, AuthConfig.threads());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(authThreads, authThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, AuthConfig.queueCapacity())), new DefaultThreadFactory("netty-auth"));
+            NettyMetrics.register("auth.queued", () -> pool.getQueue().size());
+            authExecutor = pool;
+        }
+        final HandshakeAuthHandler authHandler = authExecutor == null ? null : new HandshakeAuthHandler(authExecutor);
+        // 无状态的编解码器与业务处理器所有连接共用，websocket 配置也只建一份，减少每个连接常驻的对象
+        final WebSocketFrameToMessageDecoder messageDecoder = new WebSocketFrameToMessageDecoder();
+        final MessageToWebSocketFrameEncoder messageEncoder = new MessageToWebSocketFrameEncoder();
+        final BusinessHandler businessHandler = new BusinessHandler(businessExecutor);
+        // true表示checkStartsWith，允许URL带参数(如 /ws?token=xxx)；子协议 im.json / im.binary 由客户端握手时选择，不选则默认 json；
+        // allowExtensions 为 true 才能接收压缩扩展置位的 RSV1；
+        // 不单独校验文本帧的 UTF-8，json 解码时 Jackson 会拒绝非法字节，省掉每个连接一个校验处理器
+        final WebSocketServerProtocolConfig webSocketConfig = WebSocketServerProtocolConfig.newBuilder()
+            .websocketPath("/ws")
+            .subprotocols(WireProtocol.SUBPROTOCOLS)
+            .checkStartsWith(true)
+            .allowExtensions(compressionEnabled)
+            .maxFramePayloadLength(65536)
+            .allowMaskMismatch(false)
+            .withUTF8Validator(false)
+            .build();
         final SslContext sslContext;
         try {
             sslContext = WssConfig.enabled() ? NettySslContextFactory.buildServerSslContext() : null;
+            if (sslContext != null) {
+                NettySslContextFactory.scheduleTicketKeyRotation(sslContext, workerEventLoopGroup);
+            }
+            // Only the OpenSSL engine is built with USE_TASKS, so only it hands work to the executor
+            if (sslContext instanceof ReferenceCountedOpenSslContext && WssConfig.handshakeThreads() > 0) {
+                handshakeExecutor = Executors.newFixedThreadPool(WssConfig.handshakeThreads(),
+                    new DefaultThreadFactory("netty-ssl-handshake"));
+            }
         } catch (Exception e) {
             shutdown();
             throw new IllegalStateException("Netty WSS SSL context 初始化失败", e);
@@ -79,28 +170,56 @@ public class NettyServer implements LifeCycle {
         serverBootstrap
             .group(bossEventLoopGroup, workerEventLoopGroup)
             // 设置服务端 通信类型（基于TCP）
-            .channel(SystemUtil.useEpollMode() ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+            .channel(transport.serverChannelClass())
             // 设置ChannelPipeline，也就是业务职责链，由处理的handler串联，从线程池处理
             .childHandler(new ChannelInitializer<SocketChannel>() {
                 // 添加处理的handler，通常包括 消息编解码、业务处理、也可以有日志、权限、过滤
                 @Override
                 protected void initChannel(SocketChannel ch) throws Exception {
+                    connections.add(ch);
                     if (sslContext != null) {
-                        ch.pipeline().addLast(sslContext.newHandler(ch.alloc()));
+                        ch.pipeline().addLast(handshakeExecutor == null
+                            ? sslContext.newHandler(ch.alloc())
+                            : sslContext.newHandler(ch.alloc(), handshakeExecutor));
+                    }
+                    if (flushConsolidation) {
+                        // 合并 flush：读批次内的多次回写在 channelReadComplete 时统一写出，
+                        // 业务线程回写与广播扇出推迟到 event loop 下一轮统一写出；放在 SSL 之后，合并后再加密，TLS 记录更少
+                        ch.pipeline().addLast(new FlushConsolidationHandler(explicitFlushAfterFlushes, consolidateWhenNoReadInProgress));
+                    }
+                    // 心跳计时：客户端静默满一个 ping 间隔时发 ping（不受服务端下行推送影响），读空闲超时关闭连接；握手阶段的慢连接同样会被关闭
+                    ch.pipeline().addLast(new HeartbeatTimerHandler(pingIntervalSeconds, readerIdleSeconds));
+                    if (admissionHandler != null) {
+                        // 新连接准入：超出全局速率、单 IP 速率或握手中连接数上限时回复 503，不进入 HTTP 解析与 websocket 握手
+                        ch.pipeline().addLast(admissionHandler);
                     }
                     ch.pipeline()
                         // http 编解码器
                         .addLast(new HttpServerCodec())
                         // http消息的多个部分聚合为一个完整的 http 请求
-                        .addLast(new HttpObjectAggregator(65536))
-                        // websocket 协议处理器，true表示checkStartsWith，允许URL带参数(如 /ws?token=xxx)
-                        .addLast(new WebSocketServerProtocolHandler("/ws", null, true, 65536, false, true))
-                        // 解码器
-                        .addLast(new WebSocketFrameToMessageDecoder())
+                        .addLast(new HttpObjectAggregator(65536));
+                    if (authHandler != null) {
+                        // 握手鉴权：校验 /ws?token= 并把用户 id 绑定到连接上，通过后移除
+                        ch.pipeline().addLast(authHandler);
+                    }
+                    if (compressionEnabled) {
+                        ch.pipeline()
+                            // 统计压缩后实际发出的字节
+                            .addLast(CompressionMetricsHandler.INSTANCE)
+                            // permessage-deflate 协商，下行消息按连接选择与大小阈值决定是否压缩
+                            .addLast(new WebSocketCompressionHandler(ch, 65536));
+                    }
+                    ch.pipeline()
+                        // websocket 协议处理器，握手完成后 http 编解码器、聚合器与压缩协商处理器会被移除
+                        .addLast(new WebSocketServerProtocolHandler(webSocketConfig))
+                        // 处理空闲事件，发送 websocket ping 帧
+                        .addLast(HeartbeatHandler.INSTANCE)
+                        // 解码器，文本帧与二进制帧均可
+                        .addLast(messageDecoder)
                         // 编码器
-                        .addLast(new MessageToWebSocketFrameEncoder())
+                        .addLast(messageEncoder)
                         // 自定义业务处理器
-                        .addLast(new BusinessHandler());
+                        .addLast(businessHandler);
                 }
             })
             // bootstrap 还可以设置tcp参数，根据需要可以分别设置主线程池和从线程池参数，来优化性能
@@ -110,27 +229,85 @@ public class NettyServer implements LifeCycle {
             // 该队列长度由SO_BACKLOG参数控制
             // 客户端请求 -> 操作系统SYN队列 -> 完成握手后进入ACCEPT队列（长度由SO_BACKLOG控制）
             //           -> boss线程逐个取出ACCEPT队列中的连接进行后续处理
-            .option(ChannelOption.SO_BACKLOG, 1024)
+            .option(ChannelOption.SO_BACKLOG, SocketConfig.soBacklog())
+            // 分配器按 netty.allocator.* 配置创建，内存占用见 /netty/metrics 的 allocator.*
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .childOption(ChannelOption.ALLOCATOR, allocator)
             // 表示连接保活，相当于心跳机制，默认7200s，TCP协议栈实现，os内核自动发送心跳包
-            .childOption(ChannelOption.SO_KEEPALIVE, true);
+            .childOption(ChannelOption.SO_KEEPALIVE, true)
+            // IM 消息小而频繁，关闭 Nagle 避免攒包带来的延迟
+            .childOption(ChannelOption.TCP_NODELAY, SocketConfig.tcpNoDelay())
+            // 读缓冲自适应，初始值按 IM 小消息取小；所有连接共用一个分配器实例，不再每个连接各建一个
+            .childOption(ChannelOption.RCVBUF_ALLOCATOR, new AdaptiveRecvByteBufAllocator(
+                SocketConfig.recvBufMinBytes(), SocketConfig.recvBufInitialBytes(), SocketConfig.recvBufMaxBytes()))
+            // 写缓冲水位：待发送字节超过高水位时 channel 不可写，下行业务消息按慢消费者策略处理
+            .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                SlowConsumerConfig.lowWaterMarkBytes(), SlowConsumerConfig.highWaterMarkBytes()));
+
+        applyNativeOptions();
 
         try {
             // 绑定端口，启动 select线程，轮询监听channel时间，监听到事件后，交给从线程池处理
-            ChannelFuture future = serverBootstrap.bind(LISTENING_PORT).sync();
+            // 开启 SO_REUSEPORT 时同一端口绑定多次，内核按连接四元组把新连接分散到各监听 socket
+            int listeners = listeners();
+            for (int i = 0; i < listeners; i++) {
+                serverChannels.add(serverBootstrap.bind(LISTENING_PORT).sync().channel());
+            }
             // 启动标志
             this.started.compareAndSet(false, true);
-            log.info("[NettyServer started] 初始化完成，监听端口: {}, protocol: {}",
-                LISTENING_PORT, WssConfig.enabled() ? "wss" : "ws");
-            // 等待服务端口关闭
-            future.channel().closeFuture().addListener(f -> {
-                this.shutdown();
-                log.info("NettyServer 关闭");
-            });
+            log.info("[NettyServer started] 初始化完成，监听端口: {}, transport: {}, listeners: {}, protocol: {}",
+                LISTENING_PORT, transport.configName(), listeners, WssConfig.enabled() ? "wss" : "ws");
+            // 任一监听 socket 关闭即关闭服务；平滑下线时监听 socket 由 drain 主动关闭，服务稍后关闭
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.closeFuture().addListener(f -> {
+                    if (this.isStarted() && !this.draining.get()) {
+                        this.shutdown();
+                        log.info("NettyServer 关闭");
+                    }
+                });
+            }
         } catch (InterruptedException e) {
             log.info("server 初始化异常: {}", e.getMessage());
         }
     }
 
+    /** 监听 socket 数量，只有 epoll / io_uring 支持 SO_REUSEPORT **/
+    private int listeners() {
+        return transport.supportsReusePort() ? Math.max(1, SocketConfig.reusePortListeners()) : 1;
+    }
+
+    /** epoll / io_uring 专有的监听 socket 参数 **/
+    private void applyNativeOptions() {
+        if (!transport.supportsReusePort()) {
+            return;
+        }
+        if (listeners() > 1) {
+            serverBootstrap.option(UnixChannelOption.SO_REUSEPORT, true);
+        }
+        // TCP Fast Open：客户端重连时可在 SYN 中携带数据，省去一个 RTT
+        // TCP_DEFER_ACCEPT：连接上有数据（TLS ClientHello / HTTP 升级请求）到达后才唤醒 boss 线程，空连接不占用 accept
+        transport.applyServerOptions(serverBootstrap, SocketConfig.tcpFastOpen(), SocketConfig.tcpDeferAcceptSeconds());
+    }
+
+    /**
+     * 平滑下线：停止接收新连接，通知客户端错峰重连，在窗口期内分批关闭已有连接，
+     * 最后关闭服务（业务队列中的消息照常执行完）。阻塞直到服务关闭
+     */
+    public void drain() {
+        if (!this.started.get() || !this.draining.compareAndSet(false, true)) {
+            return;
+        }
+        long windowMillis = DrainConfig.windowMillis();
+        if (windowMillis > 0) {
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            log.info("[NettyServer draining] 已停止接收新连接，当前连接数: {}", connections.size());
+            new ConnectionDrainer(windowMillis, Math.max(1, DrainConfig.waves())).drain(connections);
+        }
+        shutdown();
+    }
+
     /**
      * 关闭
      */
@@ -145,7 +322,19 @@ public class NettyServer implements LifeCycle {
         if (workerEventLoopGroup != null) {
             workerEventLoopGroup.shutdownGracefully();
         }
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdownNow();
+        }
+        if (authExecutor != null) {
+            authExecutor.shutdownNow();
+        }
+        // I/O 线程不再接收新消息后，等待业务队列中剩余的消息处理完
+        if (businessExecutor != null) {
+            businessExecutor.shutdown(BusinessExecutorConfig.shutdownTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+        serverChannels.clear();
         this.started.compareAndSet(true, false);
+        this.draining.set(false);
     }
 
     @Override
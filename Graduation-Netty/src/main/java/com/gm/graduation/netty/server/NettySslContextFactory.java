@@ -1,20 +1,41 @@
 package com.gm.graduation.netty.server;
 
 import com.gm.graduation.common.utils.WssConfig;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslContextOption;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionStats;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.net.ssl.KeyManagerFactory;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Builds the server-side SSL context used by the Netty WebSocket pipeline.
+ * Prefers the statically linked BoringSSL provider and falls back to the JDK one;
+ * both keep a server-side session cache so reconnecting clients can resume instead of doing a full handshake.
  */
+@Slf4j
 public class NettySslContextFactory {
 
     public static SslContext buildServerSslContext() throws Exception {
+        return buildServerSslContext(resolveProvider(WssConfig.provider()));
+    }
+
+    public static SslContext buildServerSslContext(SslProvider provider) throws Exception {
         char[] password = WssConfig.keyStorePassword().toCharArray();
         KeyStore keyStore = KeyStore.getInstance(WssConfig.keyStoreType());
 
@@ -25,9 +46,121 @@ public class NettySslContextFactory {
         KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
         keyManagerFactory.init(keyStore, password);
 
-        return SslContextBuilder.forServer(keyManagerFactory)
+        SslContextBuilder builder = SslContextBuilder.forServer(keyManagerFactory)
+            .sslProvider(provider)
             .protocols("TLSv1.3", "TLSv1.2")
-            .build();
+            .sessionCacheSize(WssConfig.sessionCacheSize())
+            .sessionTimeout(WssConfig.sessionTimeoutSeconds());
+        if (provider != SslProvider.JDK) {
+            // Hand signing and certificate work to the handshake executor as delegated tasks, like the JDK engine does
+            builder.option(OpenSslContextOption.USE_TASKS, true);
+        }
+        SslContext sslContext = builder.build();
+
+        if (sslContext.sessionContext() instanceof OpenSslSessionContext sessionContext) {
+            // Netty turns tickets off for OpenSSL contexts until a key is set;
+            // without a configured key, a random one is used until scheduleTicketKeyRotation replaces it
+            String ticketKey = WssConfig.sessionTicketKey();
+            sessionContext.setTicketKeys(ticketKey != null ? parseTicketKey(ticketKey) : randomTicketKey());
+            registerSessionMetrics(sessionContext.stats());
+        }
+        NettyMetrics.register("ssl.provider", provider::name);
+        log.info("[NettySslContext] provider: {}, sessionCacheSize: {}, sessionTimeoutSeconds: {}",
+            provider, WssConfig.sessionCacheSize(), WssConfig.sessionTimeoutSeconds());
+        return sslContext;
+    }
+
+    /**
+     * Rotates the random ticket key of an OpenSSL context on the given scheduler. Each rotation encrypts with a
+     * fresh key and keeps the previous one for decryption only, so a ticket stays usable for at most two intervals.
+     * Does nothing for JDK contexts or when a shared key is configured, which operators rotate themselves.
+     */
+    public static void scheduleTicketKeyRotation(SslContext sslContext, ScheduledExecutorService scheduler) {
+        long intervalSeconds = WssConfig.sessionTicketKeyRotationSeconds();
+        if (!(sslContext.sessionContext() instanceof OpenSslSessionContext sessionContext)
+            || WssConfig.sessionTicketKey() != null || intervalSeconds <= 0) {
+            return;
+        }
+        TicketKeyRotation rotation = new TicketKeyRotation(sessionContext);
+        rotation.run();
+        scheduler.scheduleAtFixedRate(rotation, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        NettyMetrics.register("ssl.ticketKeyRotations", rotation::rotations);
+        log.info("[NettySslContext] session ticket key rotates every {}s", intervalSeconds);
+    }
+
+    static SslProvider resolveProvider(String configured) {
+        switch (configured.trim().toLowerCase()) {
+            case "jdk":
+                return SslProvider.JDK;
+            case "openssl":
+                if (!OpenSsl.isAvailable()) {
+                    throw new IllegalStateException("OpenSSL provider is not available", OpenSsl.unavailabilityCause());
+                }
+                return SslProvider.OPENSSL;
+            case "auto":
+                if (OpenSsl.isAvailable()) {
+                    return SslProvider.OPENSSL;
+                }
+                log.warn("OpenSSL provider is not available, falling back to JDK: {}", String.valueOf(OpenSsl.unavailabilityCause()));
+                return SslProvider.JDK;
+            default:
+                throw new IllegalArgumentException("Unknown netty.ssl.provider: " + configured);
+        }
+    }
+
+    private static OpenSslSessionTicketKey parseTicketKey(String base64) {
+        byte[] key = Base64.getDecoder().decode(base64.trim());
+        if (key.length != OpenSslSessionTicketKey.TICKET_KEY_SIZE) {
+            throw new IllegalArgumentException("netty.ssl.session-ticket-key must decode to "
+                + OpenSslSessionTicketKey.TICKET_KEY_SIZE + " bytes");
+        }
+        return toTicketKey(key);
+    }
+
+    private static OpenSslSessionTicketKey randomTicketKey() {
+        byte[] key = new byte[OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        new SecureRandom().nextBytes(key);
+        return toTicketKey(key);
+    }
+
+    static final class TicketKeyRotation implements Runnable {
+
+        private final OpenSslSessionContext sessionContext;
+        private final AtomicLong rotations = new AtomicLong();
+        private OpenSslSessionTicketKey current;
+
+        TicketKeyRotation(OpenSslSessionContext sessionContext) {
+            this.sessionContext = sessionContext;
+        }
+
+        @Override
+        public void run() {
+            OpenSslSessionTicketKey next = randomTicketKey();
+            if (current == null) {
+                sessionContext.setTicketKeys(next);
+            } else {
+                sessionContext.setTicketKeys(next, current);
+            }
+            current = next;
+            rotations.incrementAndGet();
+        }
+
+        long rotations() {
+            return rotations.get();
+        }
+    }
+
+    private static OpenSslSessionTicketKey toTicketKey(byte[] key) {
+        return new OpenSslSessionTicketKey(Arrays.copyOfRange(key, 0, 16),
+            Arrays.copyOfRange(key, 16, 32), Arrays.copyOfRange(key, 32, 48));
+    }
+
+    private static void registerSessionMetrics(OpenSslSessionStats stats) {
+        NettyMetrics.register("ssl.handshakes", stats::accept);
+        NettyMetrics.register("ssl.handshakesCompleted", stats::acceptGood);
+        NettyMetrics.register("ssl.sessionCacheHits", stats::hits);
+        NettyMetrics.register("ssl.sessionCacheMisses", stats::misses);
+        NettyMetrics.register("ssl.ticketResumptions", stats::ticketKeyResume);
     }
 
     private static InputStream openKeyStore(String keyStorePath) throws Exception {
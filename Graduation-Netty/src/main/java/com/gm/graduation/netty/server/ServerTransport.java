@@ -0,0 +1,177 @@
+package com.gm.graduation.netty.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 服务端 I/O 传输实现。io_uring 把多个 socket 读写合并成一次提交，小帧密集时系统调用更少；
+ * epoll 与 io_uring 是 Linux 原生传输，支持 SO_REUSEPORT、TCP Fast Open 等监听参数，nio 不支持
+ */
+@Slf4j
+public enum ServerTransport {
+
+    IO_URING("io_uring") {
+        @Override
+        public boolean isAvailable() {
+            return IOUring.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return IOUring.unavailabilityCause();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String name) {
+            return new IOUringEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+
+        @Override
+        void applyServerOptions(ServerBootstrap bootstrap, int tcpFastOpen, int tcpDeferAcceptSeconds) {
+            if (tcpFastOpen > 0) {
+                bootstrap.option(IOUringChannelOption.TCP_FASTOPEN, tcpFastOpen);
+            }
+            if (tcpDeferAcceptSeconds > 0) {
+                bootstrap.option(IOUringChannelOption.TCP_DEFER_ACCEPT, tcpDeferAcceptSeconds);
+            }
+        }
+    },
+
+    EPOLL("epoll") {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return Epoll.unavailabilityCause();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String name) {
+            return new EpollEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        void applyServerOptions(ServerBootstrap bootstrap, int tcpFastOpen, int tcpDeferAcceptSeconds) {
+            if (tcpFastOpen > 0) {
+                bootstrap.option(EpollChannelOption.TCP_FASTOPEN, tcpFastOpen);
+            }
+            if (tcpDeferAcceptSeconds > 0) {
+                bootstrap.option(EpollChannelOption.TCP_DEFER_ACCEPT, tcpDeferAcceptSeconds);
+            }
+        }
+    },
+
+    NIO("nio") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, String name) {
+            return new NioEventLoopGroup(threads, new DefaultThreadFactory(name));
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        void applyServerOptions(ServerBootstrap bootstrap, int tcpFastOpen, int tcpDeferAcceptSeconds) {
+            // JDK socket 不提供这些参数
+        }
+    };
+
+    private final String configName;
+
+    ServerTransport(String configName) {
+        this.configName = configName;
+    }
+
+    public String configName() {
+        return configName;
+    }
+
+    public abstract boolean isAvailable();
+
+    abstract Throwable unavailabilityCause();
+
+    public abstract EventLoopGroup newEventLoopGroup(int threads, String name);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    /** 原生传输专有的监听 socket 参数，值为 0 的不设置 **/
+    abstract void applyServerOptions(ServerBootstrap bootstrap, int tcpFastOpen, int tcpDeferAcceptSeconds);
+
+    /** 是否支持 SO_REUSEPORT 多监听 socket **/
+    public boolean supportsReusePort() {
+        return this != NIO;
+    }
+
+    /**
+     * 按配置选择传输实现，不可用时依次回退 io_uring -> epoll -> nio
+     */
+    public static ServerTransport resolve(String configured) {
+        switch (configured.trim().toLowerCase()) {
+            case "io_uring":
+            case "io-uring":
+            case "iouring":
+                return fallbackFrom(IO_URING);
+            case "epoll":
+                return fallbackFrom(EPOLL);
+            case "nio":
+                return NIO;
+            case "auto":
+                // 与原来的选择一致：Linux 上 epoll 可用则用 epoll
+                return EPOLL.isAvailable() ? EPOLL : NIO;
+            default:
+                throw new IllegalArgumentException("Unknown netty.transport: " + configured);
+        }
+    }
+
+    private static ServerTransport fallbackFrom(ServerTransport preferred) {
+        ServerTransport[] order = values();
+        for (int i = preferred.ordinal(); i < order.length; i++) {
+            ServerTransport transport = order[i];
+            if (transport.isAvailable()) {
+                return transport;
+            }
+            log.warn("{} transport is not available, falling back: {}",
+                transport.configName, String.valueOf(transport.unavailabilityCause()));
+        }
+        return NIO;
+    }
+}
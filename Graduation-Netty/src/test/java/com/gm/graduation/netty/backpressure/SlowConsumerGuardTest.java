@@ -0,0 +1,104 @@
+package com.gm.graduation.netty.backpressure;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.common.enums.SlowConsumerPolicyEnum;
+import com.gm.graduation.netty.handler.BusinessHandler;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlowConsumerGuardTest {
+
+    @Test
+    void writableChannel_Admitted() {
+        EmbeddedChannel channel = newChannel();
+
+        assertTrue(SlowConsumerGuard.admit(context(channel), SlowConsumerPolicyEnum.DISCONNECT));
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void drop_UnwritableChannel_RejectedAndKeptOpen() {
+        EmbeddedChannel channel = newChannel();
+        fillBeyondHighWaterMark(channel, 128);
+
+        assertFalse(SlowConsumerGuard.admit(context(channel), SlowConsumerPolicyEnum.DROP));
+        assertTrue(channel.isOpen());
+        // 待发送字节包含写缓冲条目本身的开销
+        assertTrue(SlowConsumerGuard.pendingBytes(channel) >= 128);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void disconnect_UnwritableChannel_Closed() {
+        EmbeddedChannel channel = newChannel();
+        fillBeyondHighWaterMark(channel, 128);
+
+        assertFalse(SlowConsumerGuard.admit(context(channel), SlowConsumerPolicyEnum.DISCONNECT));
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void fetchHistory_ResyncSentOnceWritableAgain() {
+        EmbeddedChannel channel = newChannel();
+        fillBeyondHighWaterMark(channel, 128);
+        ChannelHandlerContext ctx = context(channel);
+
+        assertFalse(SlowConsumerGuard.admit(ctx, SlowConsumerPolicyEnum.FETCH_HISTORY));
+        assertFalse(SlowConsumerGuard.admit(ctx, SlowConsumerPolicyEnum.FETCH_HISTORY));
+        Long since = channel.attr(ChannelAttributes.RESYNC_SINCE).get();
+        assertNotNull(since);
+        assertTrue(channel.isOpen());
+
+        // 写缓冲排空后 channel 恢复可写，业务处理器收到可写事件并下发 resync
+        channel.flush();
+        ((ByteBuf) channel.readOutbound()).release();
+        CompleteMessage resync = assertInstanceOf(CompleteMessage.class, channel.readOutbound());
+        assertEquals(0, resync.getAppId());
+        assertEquals(MessageTypeEnum.LINK_RESYNC.getType(), resync.getMessageType());
+        assertEquals(since, resync.getTimeStamp());
+        assertNull(channel.readOutbound());
+        assertNull(channel.attr(ChannelAttributes.RESYNC_SINCE).get());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void pendingBeyondHardLimit_ClosedRegardlessOfPolicy() {
+        EmbeddedChannel channel = newChannel();
+        fillBeyondHighWaterMark(channel, 5 * 1024 * 1024);
+
+        assertFalse(SlowConsumerGuard.admit(context(channel), SlowConsumerPolicyEnum.DROP));
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(new BusinessHandler());
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(16, 64));
+        return channel;
+    }
+
+    /** 只写不 flush，数据留在写缓冲中 **/
+    private static void fillBeyondHighWaterMark(EmbeddedChannel channel, int bytes) {
+        channel.write(Unpooled.wrappedBuffer(new byte[bytes]));
+        assertFalse(channel.isWritable());
+    }
+
+    private static ChannelHandlerContext context(EmbeddedChannel channel) {
+        return channel.pipeline().context(BusinessHandler.class);
+    }
+}
@@ -0,0 +1,122 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 聊天室广播扇出的单次耗时对比：
+ * perRecipientEncode 为旧路径（每个接收者各自走一遍 Jackson 序列化），
+ * encodeOnceShared 为新路径（序列化一次，接收者共享 retainedDuplicate）。
+ * 运行方式：直接执行 main，或追加 -prof gc 观察分配速率
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChatRoomBroadcastBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    int members;
+
+    private EmbeddedChannel[] channels;
+
+    private CompleteMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        channels = new EmbeddedChannel[members];
+        for (int i = 0; i < members; i++) {
+            channels[i] = new EmbeddedChannel(new MessageToWebSocketFrameEncoder());
+        }
+
+        message = new CompleteMessage();
+        message.setAppId(1);
+        message.setUid(10001L);
+        message.setMessageType(1);
+        message.setToId(1001L);
+        message.setContent("大家好，这是一条用于压测聊天室广播的普通文本消息");
+        message.setTimeStamp(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    public int perRecipientEncode() {
+        int bytes = 0;
+        for (EmbeddedChannel channel : channels) {
+            channel.writeAndFlush(message);
+            bytes += drain(channel);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int encodeOnceShared() throws Exception {
+        int bytes = 0;
+        TextWebSocketFrame frame = encodeTextFrame();
+        try {
+            for (EmbeddedChannel channel : channels) {
+                channel.writeAndFlush(frame.retainedDuplicate());
+                bytes += drain(channel);
+            }
+        } finally {
+            frame.release();
+        }
+        return bytes;
+    }
+
+    private static int drain(EmbeddedChannel channel) {
+        int bytes = 0;
+        Object out;
+        while ((out = channel.readOutbound()) != null) {
+            bytes += ((TextWebSocketFrame) out).content().readableBytes();
+            ReferenceCountUtil.release(out);
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(ChatRoomBroadcastBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    private TextWebSocketFrame encodeTextFrame() throws IOException {
+        PooledMessage pooled = PooledMessage.copyOf(message);
+        try {
+            return MessageToWebSocketFrameEncoder.encodeTextFrame(PooledByteBufAllocator.DEFAULT, pooled);
+        } finally {
+            pooled.recycle();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.gm.graduation.netty.cache.UserChatRoomManager;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+/**
+ * 聊天室成员索引的堆占用对比，装入 rooms * membersPerRoom 条成员关系（userId 连续分配，每个用户只在一个聊天室）：
+ * 旧实现 ConcurrentHashMap<Long, HashSet<Long>>；
+ * 新实现的正向索引（每个聊天室一个 Roaring64Bitmap）；
+ * 新实现整体 UserChatRoomManager（正向索引 + user -> rooms 反向索引，反向索引按用户数计）。
+ * 运行方式：直接执行 main，可传入 rooms membersPerRoom 两个参数
+ */
+public class ChatRoomMembershipFootprint {
+
+    /** 持有引用，避免测量前被回收 **/
+    private static Object retained;
+
+    public static void main(String[] args) {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int membersPerRoom = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        long memberships = (long) rooms * membersPerRoom;
+
+        long before = usedHeap();
+        ConcurrentHashMap<Long, Set<Long>> boxed = new ConcurrentHashMap<>();
+        for (long room = 0; room < rooms; room++) {
+            for (long i = 0; i < membersPerRoom; i++) {
+                boxed.computeIfAbsent(room, k -> new HashSet<>()).add(room * membersPerRoom + i);
+            }
+        }
+        retained = boxed;
+        long boxedBytes = usedHeap() - before;
+        retained = null;
+        boxed = null;
+
+        before = usedHeap();
+        Roaring64Bitmap[] bitmaps = new Roaring64Bitmap[rooms];
+        for (int room = 0; room < rooms; room++) {
+            bitmaps[room] = new Roaring64Bitmap();
+            for (long i = 0; i < membersPerRoom; i++) {
+                bitmaps[room].addLong((long) room * membersPerRoom + i);
+            }
+        }
+        retained = bitmaps;
+        long bitmapBytes = usedHeap() - before;
+        retained = null;
+        bitmaps = null;
+
+        before = usedHeap();
+        for (long room = 0; room < rooms; room++) {
+            for (long i = 0; i < membersPerRoom; i++) {
+                UserChatRoomManager.addChatRoomUser(room, room * membersPerRoom + i);
+            }
+        }
+        long managerBytes = usedHeap() - before;
+
+        System.out.printf("memberships: %,d%n", memberships);
+        System.out.printf("旧 HashSet<Long>           : %,13d bytes, %6.1f bytes/membership%n", boxedBytes, (double) boxedBytes / memberships);
+        System.out.printf("新 正向索引 Roaring64Bitmap : %,13d bytes, %6.1f bytes/membership%n", bitmapBytes, (double) bitmapBytes / memberships);
+        System.out.printf("新 正向 + 反向索引          : %,13d bytes, %6.1f bytes/membership%n", managerBytes, (double) managerBytes / memberships);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
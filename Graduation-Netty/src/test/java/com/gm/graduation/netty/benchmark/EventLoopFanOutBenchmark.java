@@ -0,0 +1,181 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.util.ArrayList;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.broadcast.EventLoopFanOut;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 聊天室广播从业务线程扇出到多个 event loop 的耗时对比（含等待所有 event loop 处理完）：
+ * perChannelWriteAndFlush 为旧路径（每个接收者一次跨线程 writeAndFlush，一次任务提交 + 唤醒），
+ * perEventLoopBatch 为新路径（EventLoopFanOut，每个 event loop 一个任务）。
+ * 接收者为已连接的 LocalChannel，pipeline 头部的 sink 直接释放写出的帧，只衡量分发本身的开销。运行方式：直接执行 main
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventLoopFanOutBenchmark {
+
+    @Param({"1000", "5000"})
+    int members;
+
+    @Param({"8"})
+    int eventLoops;
+
+    private DefaultEventLoopGroup serverGroup;
+
+    private DefaultEventLoopGroup group;
+
+    private List<Channel> channels;
+
+    private List<ChannelHandlerContext> targets;
+
+    private CompleteMessage message;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        serverGroup = new DefaultEventLoopGroup(1);
+        group = new DefaultEventLoopGroup(eventLoops);
+        LocalAddress address = new LocalAddress("fan-out-bench");
+        channels = new ArrayList<>();
+        channels.add(new ServerBootstrap().group(serverGroup).channel(LocalServerChannel.class)
+            .childHandler(new ChannelInitializer<LocalChannel>() {
+                @Override
+                protected void initChannel(LocalChannel ch) {
+                    ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ReferenceCountUtil.release(msg);
+                        }
+                    });
+                }
+            })
+            .bind(address).sync().channel());
+
+        targets = new ArrayList<>(members);
+        Bootstrap client = new Bootstrap().group(group).channel(LocalChannel.class)
+            .handler(new ChannelInitializer<LocalChannel>() {
+                @Override
+                protected void initChannel(LocalChannel ch) {
+                    ch.pipeline().addLast(new WriteSink()).addLast(new ChannelInboundHandlerAdapter());
+                }
+            });
+        for (int i = 0; i < members; i++) {
+            Channel channel = client.connect(address).sync().channel();
+            channels.add(channel);
+            targets.add(channel.pipeline().lastContext());
+        }
+
+        message = new CompleteMessage();
+        message.setAppId(1);
+        message.setUid(10001L);
+        message.setMessageType(1);
+        message.setToId(1001L);
+        message.setContent("大家好，这是一条用于压测聊天室广播的普通文本消息");
+        message.setTimeStamp(System.currentTimeMillis());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Channel channel : channels) {
+            channel.close().sync();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public void perChannelWriteAndFlush() throws Exception {
+        WebSocketFrame frame = encodeTextFrame();
+        try {
+            for (ChannelHandlerContext ctx : targets) {
+                ctx.writeAndFlush(frame.retainedDuplicate(), ctx.voidPromise());
+            }
+        } finally {
+            frame.release();
+        }
+        awaitEventLoops();
+    }
+
+    @Benchmark
+    public int perEventLoopBatch() throws Exception {
+        int submitted = EventLoopFanOut.send(PooledByteBufAllocator.DEFAULT, message, targets);
+        awaitEventLoops();
+        return submitted;
+    }
+
+    /** 每个 event loop 上的任务按提交顺序执行，排一个空任务并等待即可确认之前的写都已处理 **/
+    private void awaitEventLoops() throws Exception {
+        for (EventExecutor executor : group) {
+            ((EventLoop) executor).submit(() -> { }).sync();
+        }
+    }
+
+    /** 吞掉写出的消息，不进入传输层 **/
+    private static final class WriteSink extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(EventLoopFanOutBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    private TextWebSocketFrame encodeTextFrame() throws IOException {
+        PooledMessage pooled = PooledMessage.copyOf(message);
+        try {
+            return MessageToWebSocketFrameEncoder.encodeTextFrame(PooledByteBufAllocator.DEFAULT, pooled);
+        } finally {
+            pooled.recycle();
+        }
+    }
+}
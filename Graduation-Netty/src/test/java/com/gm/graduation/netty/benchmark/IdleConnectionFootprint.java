@@ -0,0 +1,200 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import com.gm.graduation.common.utils.WssConfig;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import com.gm.graduation.netty.server.NettyServer;
+
+import static com.gm.graduation.common.constant.LinkConfigConstant.LISTENING_PORT;
+
+/**
+ * 空闲 websocket 连接的单连接内存占用：本进程启动 NettyServer，另起一个客户端进程建立 N 个连接、完成 websocket 握手后保持空闲，
+ * 对比建连前后服务端进程的堆内存与直接内存。客户端在独立进程中，测得的只有服务端的占用（不含内核 socket 缓冲）。
+ * 测量时关闭准入限制与握手鉴权、调大读空闲超时，避免连接被服务端拒绝或关闭；加 -Dnetty.ssl.enabled=true 时客户端走 TLS。
+ * 单个源地址的临时端口约 2.8 万个，连接数更多时传入 clientAddresses，客户端轮流绑定 127.0.0.1 ~ 127.0.0.N；
+ * 文件描述符上限（ulimit -n）需大于连接数。
+ * 运行方式：直接执行 main，可传入 connections clientAddresses 两个参数，例如 1000000 40
+ */
+public class IdleConnectionFootprint {
+
+    private static final String CLIENT = "client";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && CLIENT.equals(args[0])) {
+            runClient(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Boolean.parseBoolean(args[3]));
+            return;
+        }
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int clientAddresses = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        System.setProperty("netty.admission.enabled", "false");
+        System.setProperty("netty.auth.enabled", "false");
+        System.setProperty("netty.heartbeat.reader-idle-seconds", "3600");
+        System.setProperty("netty.heartbeat.ping-interval-seconds", "3600");
+        boolean tls = WssConfig.enabled();
+
+        NettyServer server = new NettyServer();
+        server.start();
+        try {
+            // 先建一批连接再断开，event loop 的线程缓存、内存池 chunk 等一次性开销发生在基线之前
+            Process warmup = startClient(Math.min(connections, 500), 1, tls);
+            stopClient(warmup);
+            TimeUnit.SECONDS.sleep(2);
+
+            long heapBefore = usedHeap();
+            long pooledBefore = pooledDirect();
+            long jdkBefore = jdkDirect();
+
+            long start = System.nanoTime();
+            Process client = startClient(connections, clientAddresses, tls);
+            double connectSeconds = (System.nanoTime() - start) / 1e9;
+            // 等服务端处理完最后一批握手
+            TimeUnit.SECONDS.sleep(2);
+
+            long heap = usedHeap() - heapBefore;
+            long pooled = pooledDirect() - pooledBefore;
+            long jdk = jdkDirect() - jdkBefore;
+            System.out.printf("connections: %,d (%s), connected in %.1fs%n", connections, tls ? "wss" : "ws", connectSeconds);
+            System.out.printf("heap          : %,15d bytes, %8.1f bytes/connection%n", heap, (double) heap / connections);
+            System.out.printf("pooled direct : %,15d bytes, %8.1f bytes/connection%n", pooled, (double) pooled / connections);
+            System.out.printf("jdk direct    : %,15d bytes, %8.1f bytes/connection%n", jdk, (double) jdk / connections);
+            stopClient(client);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static Process startClient(int connections, int addresses, boolean tls) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-Xmx" + Runtime.getRuntime().maxMemory() / (1024 * 1024) + "m",
+            "-cp", System.getProperty("java.class.path"), IdleConnectionFootprint.class.getName(),
+            CLIENT, String.valueOf(connections), String.valueOf(addresses), String.valueOf(tls))
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        String line = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)).readLine();
+        if (line == null || !line.startsWith("READY")) {
+            process.destroyForcibly();
+            throw new IllegalStateException("客户端建连失败: " + line);
+        }
+        return process;
+    }
+
+    /** 关闭客户端的标准输入，客户端随即退出，连接全部断开 **/
+    private static void stopClient(Process process) throws Exception {
+        process.getOutputStream().close();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private static void runClient(int connections, int addresses, boolean tls) throws Exception {
+        SSLSocketFactory sslFactory = tls ? trustAllSocketFactory() : null;
+        byte[] upgrade = ("GET /ws HTTP/1.1\r\n"
+            + "Host: 127.0.0.1:" + LISTENING_PORT + "\r\n"
+            + "Upgrade: websocket\r\n"
+            + "Connection: Upgrade\r\n"
+            + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+            + "Sec-WebSocket-Version: 13\r\n"
+            + "Sec-WebSocket-Protocol: im.json\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        List<Socket> sockets = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket();
+            socket.bind(new InetSocketAddress("127.0.0." + (1 + i % addresses), 0));
+            socket.connect(new InetSocketAddress("127.0.0.1", LISTENING_PORT));
+            if (sslFactory != null) {
+                socket = sslFactory.createSocket(socket, "127.0.0.1", LISTENING_PORT, true);
+            }
+            socket.getOutputStream().write(upgrade);
+            String status = readResponseHead(socket.getInputStream());
+            if (!status.startsWith("HTTP/1.1 101")) {
+                throw new IllegalStateException("第 " + i + " 个连接握手失败: " + status);
+            }
+            sockets.add(socket);
+        }
+        System.out.println("READY " + sockets.size());
+        System.out.flush();
+        // 父进程关闭标准输入时退出
+        while (System.in.read() != -1) {
+            // 忽略
+        }
+    }
+
+    /** 读到响应头结束，返回状态行 **/
+    private static String readResponseHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            head.append((char) b);
+            if (head.length() >= 4 && head.lastIndexOf("\r\n\r\n") == head.length() - 4) {
+                break;
+            }
+        }
+        int end = head.indexOf("\r\n");
+        return end < 0 ? head.toString() : head.substring(0, end);
+    }
+
+    /** 压测用，信任服务端的自签名证书 **/
+    private static SSLSocketFactory trustAllSocketFactory() throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] {new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        }}, null);
+        return context.getSocketFactory();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long pooledDirect() {
+        return ((Number) NettyMetrics.snapshot().get("allocator.usedDirectMemory")).longValue();
+    }
+
+    private static long jdkDirect() {
+        long used = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                used += pool.getMemoryUsed();
+            }
+        }
+        return used;
+    }
+}
@@ -0,0 +1,135 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.codec.BinaryMessageCodec;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 单条上行消息 解码 -> 处理 -> 编码回复 的分配量对比，处理部分模拟聊天室的进入确认：
+ * completeMessageReply 为旧路径（每次 new CompleteMessage，数字字段装箱），
+ * pooledMessageReply 为新路径（回复取自 Recycler，字段为基本类型，编码后放回对象池）。
+ * 两者的解码与编码代码相同，差异只在回复消息的表示。
+ * 运行方式：直接执行 main，已带 -prof gc，关注 gc.alloc.rate.norm（每次操作分配的字节数）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessagePathAllocationBenchmark {
+
+    @Param({"JSON", "BINARY"})
+    WireProtocol protocol;
+
+    /** 客户端发来的进入聊天室请求 **/
+    private ByteBuf request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        CompleteMessage join = new CompleteMessage();
+        join.setAppId(1);
+        join.setUid(10001L);
+        join.setMessageType(0);
+        join.setToId(9001L);
+        join.setTimeStamp(System.currentTimeMillis());
+
+        request = Unpooled.directBuffer();
+        PooledMessage pooledJoin = PooledMessage.copyOf(join);
+        try {
+            if (protocol == WireProtocol.BINARY) {
+                BinaryMessageCodec.encode(pooledJoin, request);
+            } else {
+                JsonMessageCodec.encode(pooledJoin, request);
+            }
+        } finally {
+            pooledJoin.recycle();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        request.release();
+    }
+
+    @Benchmark
+    public int completeMessageReply() throws Exception {
+        CompleteMessage msg = decode();
+        CompleteMessage response = new CompleteMessage();
+        response.setAppId(msg.getAppId());
+        response.setUid(msg.getUid());
+        response.setMessageType(msg.getMessageType());
+        response.setToId(msg.getToId());
+        response.setContent("成功进入聊天室");
+        response.setTimeStamp(System.currentTimeMillis());
+        // CompleteMessage 与编码器之间的转换，同 MessageToWebSocketFrameEncoder
+        PooledMessage pooled = PooledMessage.copyOf(response);
+        try {
+            return writeOut(MessageToWebSocketFrameEncoder.encodeFrame(PooledByteBufAllocator.DEFAULT, pooled, protocol));
+        } finally {
+            pooled.recycle();
+        }
+    }
+
+    @Benchmark
+    public int pooledMessageReply() throws Exception {
+        CompleteMessage msg = decode();
+        PooledMessage response = PooledMessage.newInstance();
+        try {
+            response.setAppId(msg.getAppId());
+            response.setUid(msg.getUid());
+            response.setMessageType(msg.getMessageType());
+            response.setToId(msg.getToId());
+            response.setContent("成功进入聊天室");
+            response.setTimeStamp(System.currentTimeMillis());
+            return writeOut(MessageToWebSocketFrameEncoder.encodeFrame(PooledByteBufAllocator.DEFAULT, response, protocol));
+        } finally {
+            response.recycle();
+        }
+    }
+
+    private CompleteMessage decode() throws Exception {
+        ByteBuf in = request.duplicate();
+        return protocol == WireProtocol.BINARY ? BinaryMessageCodec.decode(in) : JsonMessageCodec.decode(in);
+    }
+
+    /** 代替写出到 socket：读取长度后释放 **/
+    private static int writeOut(WebSocketFrame frame) {
+        try {
+            return frame.content().readableBytes();
+        } finally {
+            frame.release();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(MessagePathAllocationBenchmark.class.getSimpleName())
+            .addProfiler("gc")
+            .build()).run();
+    }
+}
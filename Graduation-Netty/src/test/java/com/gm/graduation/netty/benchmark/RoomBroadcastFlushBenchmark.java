@@ -0,0 +1,194 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.broadcast.EventLoopFanOut;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 聊天室广播负载下，下行 flush 合并前后的对比。
+ * 服务端与客户端走本机 TCP，业务线程按 burst 条一组连续向聊天室广播，组间停顿 1ms；
+ * 统计到达 socket 的 flush 次数（每次对应一次 write/writev 系统调用）以及客户端收到消息的端到端延迟。
+ * 运行方式：直接执行 main，可传入 members messages burst 三个参数
+ */
+public class RoomBroadcastFlushBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int burst = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        // 第一轮预热，不输出
+        run(false, members, messages / 4, burst, false);
+        run(true, members, messages / 4, burst, false);
+        run(false, members, messages, burst, true);
+        run(true, members, messages, burst, true);
+    }
+
+    private static void run(boolean consolidate, int members, int messages, int burst, boolean print) throws Exception {
+        NioEventLoopGroup serverGroup = new NioEventLoopGroup(2);
+        NioEventLoopGroup clientGroup = new NioEventLoopGroup(2);
+        FlushCounter flushCounter = new FlushCounter();
+        List<ChannelHandlerContext> targets = new ArrayList<>(members);
+        long[] latencies = new long[members * messages];
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        try {
+            Channel server = new ServerBootstrap().group(serverGroup).channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(flushCounter);
+                        if (consolidate) {
+                            ch.pipeline().addLast(new FlushConsolidationHandler(256, true));
+                        }
+                        ch.pipeline().addLast(new FrameEncoder()).addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelActive(ChannelHandlerContext ctx) {
+                                synchronized (targets) {
+                                    targets.add(ctx);
+                                }
+                            }
+                        });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+            Bootstrap client = new Bootstrap().group(clientGroup).channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                            .addLast(new LengthFieldBasedFrameDecoder(1 << 16, 0, 4, 0, 4))
+                            .addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                                    try {
+                                        long sentAt = JsonMessageCodec.decode((ByteBuf) msg).getTimeStamp();
+                                        int i = received.getAndIncrement();
+                                        latencies[i] = System.nanoTime() - sentAt;
+                                        if (i + 1 == latencies.length) {
+                                            done.countDown();
+                                        }
+                                    } finally {
+                                        ReferenceCountUtil.release(msg);
+                                    }
+                                }
+                            });
+                    }
+                });
+            List<Channel> clients = new ArrayList<>(members);
+            for (int i = 0; i < members; i++) {
+                clients.add(client.connect(server.localAddress()).sync().channel());
+            }
+            while (true) {
+                synchronized (targets) {
+                    if (targets.size() == members) {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+
+            CompleteMessage message = new CompleteMessage();
+            message.setAppId(1);
+            message.setUid(10001L);
+            message.setMessageType(1);
+            message.setToId(1001L);
+            message.setContent("大家好，这是一条用于压测聊天室广播的普通文本消息");
+
+            long flushesBefore = flushCounter.flushes.sum();
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                message.setTimeStamp(System.nanoTime());
+                EventLoopFanOut.send(PooledByteBufAllocator.DEFAULT, message, targets);
+                if ((i + 1) % burst == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+            if (!done.await(60, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("超时，仅收到 " + received.get() + " / " + latencies.length);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long flushes = flushCounter.flushes.sum() - flushesBefore;
+
+            if (print) {
+                Arrays.sort(latencies);
+                System.out.printf("%-13s members=%d messages=%d burst=%d: flush(syscall)=%d (%.0f/s, %.2f per delivered msg), p50=%dus p99=%dus max=%dus%n",
+                    consolidate ? "consolidated" : "plain", members, messages, burst,
+                    flushes, flushes / seconds, (double) flushes / latencies.length,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1000);
+            }
+
+            for (Channel channel : clients) {
+                channel.close().sync();
+            }
+            server.close().sync();
+        } finally {
+            clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1000;
+    }
+
+    /** 位于 pipeline 最靠近 socket 的位置，统计真正到达传输层的 flush **/
+    @ChannelHandler.Sharable
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private final LongAdder flushes = new LongAdder();
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            flushes.increment();
+            ctx.flush();
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ctx.write(msg, promise);
+        }
+    }
+
+    /** 用长度前缀代替 WebSocket 帧头，只保留帧内容 **/
+    private static final class FrameEncoder extends MessageToByteEncoder<WebSocketFrame> {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, WebSocketFrame frame, ByteBuf out) {
+            out.writeInt(frame.content().readableBytes());
+            out.writeBytes(frame.content(), frame.content().readerIndex(), frame.content().readableBytes());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+
+import com.gm.graduation.netty.server.NettySslContextFactory;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * TLS 握手吞吐对比：服务端 JDK 与 OpenSSL(BoringSSL) 两种实现，完整握手与会话复用两种情况。
+ * 客户端与服务端 SSLEngine 在同一线程内存中交换数据，委托任务就地执行；客户端固定用 OpenSSL，
+ * 结果为双方开销之和，差异来自服务端。握手后服务端写出一条应用数据（对应建连响应），
+ * BoringSSL 的 TLS 1.3 会话票据随第一条应用数据下发。
+ * 证书默认使用 IM-Bootstrap 下的本地自签证书。运行方式：在 Graduation-Netty 目录下直接执行 main
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TlsHandshakeBenchmark {
+
+    private static final String LOCAL_KEY_STORE = "../IM-Bootstrap/src/main/resources/certs/local-wss.p12";
+
+    @Param({"JDK", "OPENSSL"})
+    SslProvider provider;
+
+    @Param({"false", "true"})
+    boolean resume;
+
+    private SslContext serverContext;
+
+    private SslContext clientContext;
+
+    private final ByteBuffer clientOut = ByteBuffer.allocate(1 << 17);
+    private final ByteBuffer serverOut = ByteBuffer.allocate(1 << 17);
+    private final ByteBuffer appIn = ByteBuffer.allocate(1 << 17);
+    private final ByteBuffer empty = ByteBuffer.allocate(0);
+    private final ByteBuffer response = ByteBuffer.allocate(64);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (System.getProperty("netty.ssl.key-store") == null && new File(LOCAL_KEY_STORE).exists()) {
+            System.setProperty("netty.ssl.key-store", LOCAL_KEY_STORE);
+        }
+        serverContext = NettySslContextFactory.buildServerSslContext(provider);
+        clientContext = SslContextBuilder.forClient()
+            .sslProvider(SslProvider.OPENSSL)
+            .trustManager(InsecureTrustManagerFactory.INSTANCE)
+            .protocols("TLSv1.3", "TLSv1.2")
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReferenceCountUtil.release(serverContext);
+        ReferenceCountUtil.release(clientContext);
+    }
+
+    @Benchmark
+    public boolean handshake() throws Exception {
+        // 带上 peer host/port 的客户端引擎会缓存会话，下次握手时尝试复用
+        SSLEngine client = resume
+            ? clientContext.newEngine(ByteBufAllocator.DEFAULT, "im.local", 9999)
+            : clientContext.newEngine(ByteBufAllocator.DEFAULT);
+        SSLEngine server = serverContext.newEngine(ByteBufAllocator.DEFAULT);
+        try {
+            return handshake(client, server);
+        } finally {
+            ReferenceCountUtil.release(client);
+            ReferenceCountUtil.release(server);
+        }
+    }
+
+    private boolean handshake(SSLEngine client, SSLEngine server) throws SSLException {
+        clientOut.clear();
+        serverOut.clear();
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int round = 0; round < 64; round++) {
+            transfer(client, clientOut, server);
+            transfer(server, serverOut, client);
+            if (done(client) && done(server) && clientOut.position() == 0 && serverOut.position() == 0) {
+                // 服务端写出第一条应用数据，会话票据随之下发，客户端收下后才能复用
+                response.clear();
+                server.wrap(response, serverOut);
+                serverOut.flip();
+                while (serverOut.hasRemaining()) {
+                    appIn.clear();
+                    if (client.unwrap(serverOut, appIn).bytesConsumed() == 0) {
+                        break;
+                    }
+                }
+                serverOut.clear();
+                return true;
+            }
+        }
+        throw new IllegalStateException("handshake did not finish");
+    }
+
+    /** from 产生的握手数据全部交给 to 处理 **/
+    private void transfer(SSLEngine from, ByteBuffer out, SSLEngine to) throws SSLException {
+        SSLEngineResult result;
+        do {
+            result = from.wrap(empty, out);
+            runTasks(from);
+        } while (result.bytesProduced() > 0 && from.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP);
+
+        out.flip();
+        while (out.hasRemaining()) {
+            appIn.clear();
+            result = to.unwrap(out, appIn);
+            runTasks(to);
+            if (result.bytesConsumed() == 0) {
+                break;
+            }
+        }
+        out.compact();
+    }
+
+    private static void runTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private static boolean done(SSLEngine engine) {
+        SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        return status == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING || status == SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(TlsHandshakeBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
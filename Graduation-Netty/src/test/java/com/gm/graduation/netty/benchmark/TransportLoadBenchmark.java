@@ -0,0 +1,197 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.gm.graduation.netty.server.ServerTransport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 小帧密集负载下，服务端三种传输（io_uring / epoll / nio）的对比。
+ * 客户端固定用 nio，走本机 TCP，每个连接保持 window 条在途消息，收到回包立即补发；
+ * 服务端按生产配置合并 flush，每条消息单独回写。统计回包吞吐与端到端延迟，当前内核不支持的传输跳过。
+ * 运行方式：直接执行 main，可传入 connections window frameBytes seconds 四个参数
+ */
+public class TransportLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int frameBytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        for (ServerTransport transport : ServerTransport.values()) {
+            if (!transport.isAvailable()) {
+                System.out.printf("%-9s not available, skipped%n", transport.configName());
+                continue;
+            }
+            // 第一轮预热，不输出
+            run(transport, connections, window, frameBytes, Math.max(1, seconds / 3), false);
+            run(transport, connections, window, frameBytes, seconds, true);
+        }
+    }
+
+    private static void run(ServerTransport transport, int connections, int window, int frameBytes,
+                            int seconds, boolean print) throws Exception {
+        EventLoopGroup serverGroup = transport.newEventLoopGroup(2, transport.configName() + "-bench-server");
+        NioEventLoopGroup clientGroup = new NioEventLoopGroup(2);
+        Recorder recorder = new Recorder();
+
+        try {
+            Channel server = new ServerBootstrap().group(serverGroup).channel(transport.serverChannelClass())
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                            .addLast(new FlushConsolidationHandler(256, true))
+                            .addLast(new LengthFieldPrepender(4))
+                            .addLast(new LengthFieldBasedFrameDecoder(1 << 16, 0, 4, 0, 4))
+                            .addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+            Bootstrap client = new Bootstrap().group(clientGroup).channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                            .addLast(new LengthFieldPrepender(4))
+                            .addLast(new LengthFieldBasedFrameDecoder(1 << 16, 0, 4, 0, 4))
+                            .addLast(new LoadClient(recorder, window, frameBytes));
+                    }
+                });
+            List<Channel> clients = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                clients.add(client.connect(server.localAddress()).sync().channel());
+            }
+
+            // 先跑一秒让连接进入稳态，再开始计数
+            Thread.sleep(1000);
+            recorder.recording = true;
+            long start = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+            recorder.recording = false;
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            recorder.stopped = true;
+
+            if (print) {
+                long[] latencies = recorder.latencies();
+                Arrays.sort(latencies);
+                System.out.printf("%-9s connections=%d window=%d frame=%dB: %.0f msg/s, p50=%dus p99=%dus p999=%dus%n",
+                    transport.configName(), connections, window, frameBytes, recorder.echoes.sum() / elapsed,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+            }
+
+            for (Channel channel : clients) {
+                channel.close().sync();
+            }
+            server.close().sync();
+        } finally {
+            clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1000;
+    }
+
+    /** 计数窗口内的回包数与延迟采样，采样数组写满后只计数 **/
+    private static final class Recorder {
+        private final LongAdder echoes = new LongAdder();
+        private final long[] samples = new long[1 << 22];
+        private final AtomicInteger sampled = new AtomicInteger();
+        private volatile boolean recording;
+        private volatile boolean stopped;
+
+        void record(long latencyNanos) {
+            if (!recording) {
+                return;
+            }
+            echoes.increment();
+            int i = sampled.getAndIncrement();
+            if (i < samples.length) {
+                samples[i] = latencyNanos;
+            }
+        }
+
+        long[] latencies() {
+            return Arrays.copyOf(samples, Math.min(sampled.get(), samples.length));
+        }
+    }
+
+    /** 保持 window 条在途消息，消息前 8 字节为发送时间 **/
+    private static final class LoadClient extends ChannelInboundHandlerAdapter {
+        private final Recorder recorder;
+        private final int window;
+        private final int frameBytes;
+
+        LoadClient(Recorder recorder, int window, int frameBytes) {
+            this.recorder = recorder;
+            this.window = window;
+            this.frameBytes = frameBytes;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            for (int i = 0; i < window; i++) {
+                send(ctx);
+            }
+            ctx.flush();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            try {
+                recorder.record(System.nanoTime() - ((ByteBuf) msg).getLong(((ByteBuf) msg).readerIndex()));
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+            if (!recorder.stopped) {
+                send(ctx);
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        private void send(ChannelHandlerContext ctx) {
+            ByteBuf frame = ctx.alloc().buffer(frameBytes);
+            frame.writeLong(System.nanoTime());
+            frame.writeZero(frameBytes - Long.BYTES);
+            ctx.write(frame);
+        }
+    }
+}
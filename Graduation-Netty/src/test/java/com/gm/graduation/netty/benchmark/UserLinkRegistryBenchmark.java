@@ -0,0 +1,108 @@
+package com.gm.graduation.netty.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.netty.cache.ConcurrentLongObjectMap;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.AttributeKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 在线连接登记处对比：
+ * chm* 为旧实现（ConcurrentHashMap<Long, ?>，断线时 removeIf 全表扫描找 channel），
+ * registry* 为新实现（原始 long 分段 map，断线时从 channel 属性取 userId 直接删除）。
+ * disconnectReconnect 模拟一次断线清理 + 重连登记；lookup 模拟推送时的按 userId 查找（4 线程并发）。
+ * 运行方式：直接执行 main
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class UserLinkRegistryBenchmark {
+
+    private static final AttributeKey<Long> USER_ID = AttributeKey.valueOf("bench.userId");
+
+    @Param({"100000", "1000000"})
+    int sessions;
+
+    /** 会话对象用少量真实 channel 轮流充当，只关心 map 本身的开销 **/
+    private Channel[] channels;
+
+    private ConcurrentHashMap<Long, Channel> chm;
+
+    private ConcurrentLongObjectMap<Channel> registry;
+
+    @Setup
+    public void setUp() {
+        channels = new Channel[1024];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = new EmbeddedChannel();
+        }
+        chm = new ConcurrentHashMap<>();
+        registry = new ConcurrentLongObjectMap<>(256, sessions);
+        for (long userId = 0; userId < sessions; userId++) {
+            chm.put(userId, channelOf(userId));
+            registry.put(userId, channelOf(userId));
+        }
+    }
+
+    @Benchmark
+    public boolean chmDisconnectReconnect() {
+        long userId = ThreadLocalRandom.current().nextLong(sessions);
+        Channel channel = chm.get(userId);
+        // 旧实现只知道 channel，只能遍历整张表
+        boolean removed = chm.entrySet().removeIf(e -> e.getKey() == userId && e.getValue() == channel);
+        chm.put(userId, channel);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean registryDisconnectReconnect() {
+        long userId = ThreadLocalRandom.current().nextLong(sessions);
+        Channel channel = registry.get(userId);
+        channel.attr(USER_ID).set(userId);
+        boolean removed = registry.remove(channel.attr(USER_ID).get(), channel);
+        registry.put(userId, channel);
+        return removed;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Channel chmLookup() {
+        return chm.get(ThreadLocalRandom.current().nextLong(sessions));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Channel registryLookup() {
+        return registry.get(ThreadLocalRandom.current().nextLong(sessions));
+    }
+
+    private Channel channelOf(long userId) {
+        return channels[(int) (userId & (channels.length - 1))];
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(UserLinkRegistryBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
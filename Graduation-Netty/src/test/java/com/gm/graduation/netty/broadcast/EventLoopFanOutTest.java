@@ -0,0 +1,89 @@
+package com.gm.graduation.netty.broadcast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLoopFanOutTest {
+
+    @Test
+    void send_RecipientsOnTwoEventLoops_OneTaskPerEventLoop() throws Exception {
+        int recipients = 6;
+        DefaultEventLoopGroup serverGroup = new DefaultEventLoopGroup(1);
+        DefaultEventLoopGroup group = new DefaultEventLoopGroup(2);
+        CountDownLatch received = new CountDownLatch(recipients);
+        LocalAddress address = new LocalAddress("fan-out-test");
+        List<Channel> channels = new ArrayList<>();
+        try {
+            Channel server = new ServerBootstrap().group(serverGroup).channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    protected void initChannel(LocalChannel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                if (msg instanceof TextWebSocketFrame frame && frame.text().contains("hello")) {
+                                    received.countDown();
+                                }
+                                ReferenceCountUtil.release(msg);
+                            }
+                        });
+                    }
+                })
+                .bind(address).sync().channel();
+            channels.add(server);
+
+            List<ChannelHandlerContext> targets = new ArrayList<>();
+            Bootstrap client = new Bootstrap().group(group).channel(LocalChannel.class)
+                .handler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    protected void initChannel(LocalChannel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+                    }
+                });
+            for (int i = 0; i < recipients; i++) {
+                Channel channel = client.connect(address).sync().channel();
+                channels.add(channel);
+                targets.add(channel.pipeline().firstContext());
+            }
+
+            CompleteMessage msg = new CompleteMessage();
+            msg.setAppId(1);
+            msg.setMessageType(1);
+            msg.setContent("hello");
+            long tasksBefore = (Long) NettyMetrics.snapshot().get("broadcast.eventLoopTasks");
+
+            assertEquals(recipients, EventLoopFanOut.send(PooledByteBufAllocator.DEFAULT, msg, targets));
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(2L, (Long) NettyMetrics.snapshot().get("broadcast.eventLoopTasks") - tasksBefore);
+        } finally {
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gm.graduation.netty.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserChatRoomManagerTest {
+
+    @Test
+    void removeLastUser_RoomEvicted() {
+        assertTrue(UserChatRoomManager.addChatRoomUser(100L, 1L));
+        assertFalse(UserChatRoomManager.addChatRoomUser(100L, 1L));
+        assertEquals(1, UserChatRoomManager.getChatRoomUserCount(100L));
+
+        assertTrue(UserChatRoomManager.removeChatRoomUser(100L, 1L));
+
+        assertEquals(0, UserChatRoomManager.getChatRoomUserCount(100L));
+        assertEquals(0, UserChatRoomManager.getChatRoomUsers(100L).length);
+        assertEquals(0, UserChatRoomManager.getUserChatRooms(1L).length);
+        // 被摘除后再次加入会新建聊天室
+        assertTrue(UserChatRoomManager.addChatRoomUser(100L, 2L));
+        assertTrue(UserChatRoomManager.removeChatRoomUser(100L, 2L));
+    }
+
+    @Test
+    void removeUserFromAllChatRooms_UsesReverseIndex() {
+        UserChatRoomManager.addChatRoomUser(201L, 5L);
+        UserChatRoomManager.addChatRoomUser(202L, 5L);
+        UserChatRoomManager.addChatRoomUser(202L, 6L);
+        assertArrayEquals(new long[]{201L, 202L}, UserChatRoomManager.getUserChatRooms(5L));
+
+        assertEquals(2, UserChatRoomManager.removeUserFromAllChatRooms(5L));
+
+        assertEquals(0, UserChatRoomManager.getChatRoomUserCount(201L));
+        assertArrayEquals(new long[]{6L}, UserChatRoomManager.getChatRoomUsers(202L));
+        assertEquals(0, UserChatRoomManager.getUserChatRooms(5L).length);
+        UserChatRoomManager.removeUserFromAllChatRooms(6L);
+    }
+
+    @Test
+    void concurrentJoinLeaveAndIterate_NoErrorAndConsistentAtEnd() throws Exception {
+        long roomId = 300L;
+        int threads = 4;
+        int usersPerThread = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long base = (long) t * usersPerThread;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (long u = base; u < base + usersPerThread; u++) {
+                    UserChatRoomManager.addChatRoomUser(roomId, u);
+                    if (u % 2 == 0) {
+                        UserChatRoomManager.removeUserFromAllChatRooms(u);
+                    }
+                }
+                return null;
+            }));
+        }
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 200; i++) {
+                UserChatRoomManager.forEachChatRoomUser(roomId, userId -> UserChatRoomManager.getChatRoomUserCount(roomId));
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(threads * usersPerThread / 2, UserChatRoomManager.getChatRoomUserCount(roomId));
+        for (long userId : UserChatRoomManager.getChatRoomUsers(roomId)) {
+            assertEquals(1, userId % 2);
+            UserChatRoomManager.removeUserFromAllChatRooms(userId);
+        }
+        assertEquals(0, UserChatRoomManager.getChatRoomUserCount(roomId));
+    }
+
+    /** 少量用户上反复并发加入、退出与断线清理，结束后每个用户在正向与反向索引中的聊天室必须一致 **/
+    @Test
+    void concurrentJoinLeaveAndDisconnect_IndexesStayConsistent() throws Exception {
+        long[] roomIds = {400L, 401L};
+        long firstUser = 10_000L;
+        int users = 4;
+        int iterations = 200_000;
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < iterations; i++) {
+                UserChatRoomManager.addChatRoomUser(roomIds[i & 1], firstUser + i % users);
+            }
+            return null;
+        }));
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < iterations; i++) {
+                UserChatRoomManager.removeChatRoomUser(roomIds[(i >> 1) & 1], firstUser + i % users);
+            }
+            return null;
+        }));
+        futures.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < iterations / 4; i++) {
+                UserChatRoomManager.removeUserFromAllChatRooms(firstUser + i % users);
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        for (long roomId : roomIds) {
+            Set<Long> members = new HashSet<>();
+            for (long userId : UserChatRoomManager.getChatRoomUsers(roomId)) {
+                members.add(userId);
+            }
+            for (long userId = firstUser; userId < firstUser + users; userId++) {
+                boolean inReverseIndex = false;
+                for (long joined : UserChatRoomManager.getUserChatRooms(userId)) {
+                    inReverseIndex |= joined == roomId;
+                }
+                assertEquals(members.contains(userId), inReverseIndex, "user " + userId + ", room " + roomId);
+            }
+        }
+        for (long userId = firstUser; userId < firstUser + users; userId++) {
+            UserChatRoomManager.removeUserFromAllChatRooms(userId);
+        }
+        for (long roomId : roomIds) {
+            assertEquals(0, UserChatRoomManager.getChatRoomUserCount(roomId));
+        }
+    }
+}
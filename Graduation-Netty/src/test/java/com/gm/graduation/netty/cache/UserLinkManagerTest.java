@@ -0,0 +1,73 @@
+package com.gm.graduation.netty.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserLinkManagerTest {
+
+    @AfterEach
+    void tearDown() {
+        for (long userId : UserLinkManager.getOnlineUserIds()) {
+            UserLinkManager.removeUserChannel(userId);
+        }
+    }
+
+    @Test
+    void removeChannel_UsesChannelAttribute() {
+        ChannelHandlerContext ctx = newCtx();
+        UserLinkManager.addUserChannel(42L, ctx);
+
+        assertEquals(42L, ctx.channel().attr(ChannelAttributes.USER_ID).get());
+        UserLinkManager.removeChannel(ctx);
+
+        assertNull(UserLinkManager.getUserChannelCtx(42L));
+        assertEquals(0, UserLinkManager.getOnlineUserCount());
+    }
+
+    @Test
+    void removeChannel_OldChannelAfterReconnect_KeepNewChannel() {
+        ChannelHandlerContext oldCtx = newCtx();
+        ChannelHandlerContext newCtx = newCtx();
+        UserLinkManager.addUserChannel(7L, oldCtx);
+        UserLinkManager.addUserChannel(7L, newCtx);
+
+        // 旧连接晚于新连接断开，不能把新连接删掉
+        UserLinkManager.removeChannel(oldCtx);
+
+        assertSame(newCtx, UserLinkManager.getUserChannelCtx(7L));
+    }
+
+    @Test
+    void forEachOnlineUser_SnapshotAllowsRemovalDuringIteration() {
+        for (long userId = 1; userId <= 1000; userId++) {
+            UserLinkManager.addUserChannel(userId, newCtx());
+        }
+
+        Set<Long> seen = new HashSet<>();
+        UserLinkManager.forEachOnlineUser((userId, ctx) -> {
+            seen.add(userId);
+            UserLinkManager.removeChannel(ctx);
+        });
+
+        assertEquals(1000, seen.size());
+        assertTrue(seen.contains(1000L));
+        assertEquals(0, UserLinkManager.getOnlineUserCount());
+    }
+
+    private static ChannelHandlerContext newCtx() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        return channel.pipeline().firstContext();
+    }
+}
@@ -0,0 +1,104 @@
+package com.gm.graduation.netty.codec;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import com.gm.graduation.netty.handler.WebSocketFrameToMessageDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryMessageCodecTest {
+
+    @Test
+    void encodeDecode_AllFields_RoundTrip() {
+        CompleteMessage msg = newMessage();
+        msg.setToken("token-abc");
+        msg.setCompression(0);
+        msg.setEncryption(1);
+
+        ByteBuf buf = Unpooled.buffer();
+        encode(msg, buf);
+        CompleteMessage decoded = BinaryMessageCodec.decode(buf);
+
+        assertEquals(msg, decoded);
+        assertEquals(0, buf.readableBytes());
+        buf.release();
+    }
+
+    @Test
+    void encodeDecode_NullFields_StayNull() {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(0);
+        msg.setMessageType(2);
+
+        ByteBuf buf = Unpooled.buffer();
+        encode(msg, buf);
+        // version + presence + appId + messageType
+        assertEquals(4, buf.readableBytes());
+
+        CompleteMessage decoded = BinaryMessageCodec.decode(buf);
+        assertNull(decoded.getUid());
+        assertNull(decoded.getContent());
+        assertEquals(2, decoded.getMessageType());
+        buf.release();
+    }
+
+    @Test
+    void decode_UnknownVersion_Throws() {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{9, 0});
+        assertThrows(CorruptedFrameException.class, () -> BinaryMessageCodec.decode(buf));
+        buf.release();
+    }
+
+    @Test
+    void channel_BinaryProtocol_EncodeBinaryFrameSmallerThanJson() throws Exception {
+        CompleteMessage msg = newMessage();
+
+        EmbeddedChannel channel = new EmbeddedChannel(new WebSocketFrameToMessageDecoder(), new MessageToWebSocketFrameEncoder());
+        channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.BINARY);
+        channel.writeOutbound(msg);
+        BinaryWebSocketFrame binaryFrame = assertInstanceOf(BinaryWebSocketFrame.class, channel.readOutbound());
+
+        PooledMessage pooled = PooledMessage.copyOf(msg);
+        TextWebSocketFrame textFrame = MessageToWebSocketFrameEncoder.encodeTextFrame(channel.alloc(), pooled);
+        pooled.recycle();
+        assertTrue(binaryFrame.content().readableBytes() < textFrame.content().readableBytes());
+        textFrame.release();
+
+        // 入站二进制帧解码回同样的消息
+        channel.writeInbound(binaryFrame);
+        assertEquals(msg, channel.readInbound());
+        channel.finishAndReleaseAll();
+    }
+
+    private static CompleteMessage newMessage() {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(1);
+        msg.setUid(10001L);
+        msg.setMessageType(1);
+        msg.setToId(1001L);
+        msg.setContent("大家好，hello");
+        msg.setTimeStamp(1678886400000L);
+        return msg;
+    }
+
+    private static void encode(CompleteMessage msg, ByteBuf out) {
+        PooledMessage pooled = PooledMessage.copyOf(msg);
+        try {
+            BinaryMessageCodec.encode(pooled, out);
+        } finally {
+            pooled.recycle();
+        }
+    }
+}
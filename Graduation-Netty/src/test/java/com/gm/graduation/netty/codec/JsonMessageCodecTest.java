@@ -0,0 +1,94 @@
+package com.gm.graduation.netty.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.utils.JsonUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonMessageCodecTest {
+
+    @Test
+    void encode_NullFields_Skipped() throws Exception {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(0);
+        msg.setMessageType(2);
+        msg.setContent("pong");
+
+        ByteBuf buf = Unpooled.buffer();
+        encode(msg, buf);
+        String json = buf.toString(StandardCharsets.UTF_8);
+
+        assertEquals("{\"appId\":0,\"messageType\":2,\"content\":\"pong\"}", json);
+        assertFalse(json.contains("token"));
+        buf.release();
+    }
+
+    @Test
+    void encodeDecode_DirectBuffer_RoundTripAndCompatibleWithObjectMapper() throws Exception {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(1);
+        msg.setUid(10001L);
+        msg.setMessageType(1);
+        msg.setToId(1001L);
+        msg.setContent("带 \"引号\" 的中文消息\n");
+        msg.setTimeStamp(1678886400000L);
+
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        encode(msg, buf);
+
+        assertEquals(msg, JsonUtil.getObjectMapper().readValue(buf.toString(StandardCharsets.UTF_8), CompleteMessage.class));
+        assertEquals(msg, JsonMessageCodec.decode(buf));
+        buf.release();
+    }
+
+    @Test
+    void decode_UnknownFieldsAndStringNumbers_Tolerated() throws Exception {
+        String json = "{\"appId\":\"1\",\"uid\":\"42\",\"extra\":{\"a\":[1,2]},\"toId\":null,\"content\":\"hi\"}";
+        ByteBuf buf = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+
+        CompleteMessage decoded = JsonMessageCodec.decode(buf);
+
+        assertEquals(1, decoded.getAppId());
+        assertEquals(42L, decoded.getUid());
+        assertNull(decoded.getToId());
+        assertEquals("hi", decoded.getContent());
+        buf.release();
+    }
+
+    @Test
+    void decode_NonIntegerNumbers_Rejected() {
+        String[] cases = {
+            "{\"appId\":\"abc\"}",
+            "{\"appId\":true}",
+            "{\"appId\":1.5}",
+            "{\"appId\":\"1.5\"}",
+            "{\"appId\":4294967296}",
+            "{\"uid\":\"\"}",
+            "{\"uid\":123456789012345678901234567890}"
+        };
+        for (String json : cases) {
+            ByteBuf buf = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+            assertThrows(CorruptedFrameException.class, () -> JsonMessageCodec.decode(buf), json);
+            buf.release();
+        }
+    }
+
+    private static void encode(CompleteMessage msg, ByteBuf out) throws Exception {
+        PooledMessage pooled = PooledMessage.copyOf(msg);
+        try {
+            JsonMessageCodec.encode(pooled, out);
+        } finally {
+            pooled.recycle();
+        }
+    }
+}
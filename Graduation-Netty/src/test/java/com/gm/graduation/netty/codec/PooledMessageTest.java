@@ -0,0 +1,92 @@
+package com.gm.graduation.netty.codec;
+
+import java.nio.charset.StandardCharsets;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PooledMessageTest {
+
+    @Test
+    void copyOf_SameBytesAsSettersAndRoundTrips() throws Exception {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(1);
+        msg.setUid(10001L);
+        msg.setMessageType(0);
+        msg.setToId(9001L);
+        msg.setContent("成功进入聊天室: 9001");
+        msg.setTimeStamp(1678886400000L);
+
+        PooledMessage pooled = PooledMessage.newInstance();
+        pooled.setAppId(1);
+        pooled.setUid(10001L);
+        pooled.setMessageType(0);
+        pooled.setToId(9001L);
+        pooled.setContent("成功进入聊天室: 9001");
+        pooled.setTimeStamp(1678886400000L);
+        PooledMessage copy = PooledMessage.copyOf(msg);
+
+        ByteBuf expected = Unpooled.buffer();
+        ByteBuf actual = Unpooled.buffer();
+        JsonMessageCodec.encode(copy, expected);
+        JsonMessageCodec.encode(pooled, actual);
+        assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+        assertEquals(msg, JsonMessageCodec.decode(actual));
+
+        expected.clear();
+        actual.clear();
+        BinaryMessageCodec.encode(copy, expected);
+        BinaryMessageCodec.encode(pooled, actual);
+        assertEquals(expected, actual);
+        assertEquals(msg, BinaryMessageCodec.decode(actual));
+
+        assertEquals(msg, pooled.toCompleteMessage());
+        pooled.recycle();
+        copy.recycle();
+        expected.release();
+        actual.release();
+    }
+
+    @Test
+    void recycle_ClearsAllFields() {
+        PooledMessage pooled = PooledMessage.newInstance();
+        pooled.setUid(1L);
+        pooled.setToken("token");
+        pooled.setContent("hello");
+        pooled.recycle();
+
+        PooledMessage reused = PooledMessage.newInstance();
+        assertEquals(new CompleteMessage(), reused.toCompleteMessage());
+        reused.recycle();
+    }
+
+    @Test
+    void encoder_UnsetFieldsOmitted() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new MessageToWebSocketFrameEncoder());
+        PooledMessage pooled = PooledMessage.newInstance();
+        pooled.setAppId(0);
+        pooled.setMessageType(1);
+        pooled.setContent("连接已断开");
+
+        channel.writeOutbound(pooled);
+
+        TextWebSocketFrame frame = assertInstanceOf(TextWebSocketFrame.class, channel.readOutbound());
+        CompleteMessage decoded = JsonMessageCodec.decode(frame.content());
+        assertEquals(0, decoded.getAppId());
+        assertEquals(1, decoded.getMessageType());
+        assertEquals("连接已断开", decoded.getContent());
+        assertNull(decoded.getUid());
+        assertNull(decoded.getToId());
+        assertNull(decoded.getTimeStamp());
+        frame.release();
+    }
+}
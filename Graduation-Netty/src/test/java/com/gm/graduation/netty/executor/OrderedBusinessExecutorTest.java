@@ -0,0 +1,73 @@
+package com.gm.graduation.netty.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderedBusinessExecutorTest {
+
+    @Test
+    void execute_SameKey_KeepsSubmitOrder() throws Exception {
+        OrderedBusinessExecutor executor = new OrderedBusinessExecutor(4, 10000, true, 4);
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        int perKey = 2000;
+        for (int i = 0; i < perKey; i++) {
+            for (long key = 0; key < 8; key++) {
+                int seq = i;
+                long k = key;
+                assertTrue(executor.execute(key, () ->
+                    seen.computeIfAbsent(k, x -> Collections.synchronizedList(new ArrayList<>())).add(seq)));
+            }
+        }
+
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        for (long key = 0; key < 8; key++) {
+            List<Integer> list = seen.get(key);
+            assertEquals(perKey, list.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, list.get(i));
+            }
+        }
+    }
+
+    @Test
+    void execute_QueueFull_RejectedAndCounted() throws Exception {
+        OrderedBusinessExecutor executor = new OrderedBusinessExecutor(1, 1, false, 1);
+        CountDownLatch block = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        assertTrue(executor.execute(1L, () -> {
+            running.countDown();
+            awaitQuietly(block);
+        }));
+        running.await(5, TimeUnit.SECONDS);
+
+        // 第一个任务正在执行，队列容量 1
+        assertTrue(executor.execute(1L, () -> {}));
+        assertFalse(executor.execute(1L, () -> {}));
+        assertEquals(1, executor.queueDepth());
+        assertEquals(1L, NettyMetrics.snapshot().get("business.executor.rejected"));
+
+        block.countDown();
+        assertTrue(executor.shutdown(5, TimeUnit.SECONDS));
+        assertFalse(executor.execute(1L, () -> {}));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
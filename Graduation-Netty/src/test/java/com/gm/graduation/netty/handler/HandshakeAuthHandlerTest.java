@@ -0,0 +1,127 @@
+package com.gm.graduation.netty.handler;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HandshakeAuthHandlerTest {
+
+    @AfterEach
+    void tearDown() {
+        HandshakeAuthHandler.setTokenVerifier(null);
+    }
+
+    @Test
+    void validToken_UserBoundAndRequestForwarded() {
+        HandshakeAuthHandler.setTokenVerifier(token -> "good".equals(token) ? 10001L : null);
+        EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(Runnable::run));
+        FullHttpRequest request = upgrade("/ws?token=good");
+
+        channel.writeInbound(request);
+        channel.runPendingTasks();
+
+        assertEquals(10001L, channel.attr(ChannelAttributes.USER_ID).get());
+        assertSame(request, channel.readInbound());
+        assertNull(channel.pipeline().get(HandshakeAuthHandler.class));
+        assertTrue(channel.config().isAutoRead());
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void invalidToken_Unauthorized() {
+        HandshakeAuthHandler.setTokenVerifier(token -> null);
+        EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(Runnable::run));
+
+        channel.writeInbound(upgrade("/ws?token=forged"));
+        channel.runPendingTasks();
+
+        assertRejected(channel, HttpResponseStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void missingToken_UnauthorizedWithoutVerifying() {
+        HandshakeAuthHandler.setTokenVerifier(token -> {
+            throw new AssertionError("不应调用");
+        });
+        EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(Runnable::run));
+
+        channel.writeInbound(upgrade("/ws?token="));
+
+        assertRejected(channel, HttpResponseStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void verifierError_ServiceUnavailable() {
+        HandshakeAuthHandler.setTokenVerifier(token -> {
+            throw new IllegalStateException("redis down");
+        });
+        EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(Runnable::run));
+
+        channel.writeInbound(upgrade("/ws?token=good"));
+        channel.runPendingTasks();
+
+        assertRejected(channel, HttpResponseStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void verifyQueueFull_ServiceUnavailable() {
+        HandshakeAuthHandler.setTokenVerifier(token -> 10001L);
+        EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(task -> {
+            throw new RejectedExecutionException("queue full");
+        }));
+
+        channel.writeInbound(upgrade("/ws?token=good"));
+
+        assertRejected(channel, HttpResponseStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void eventLoopShutDownDuringVerify_RequestReleased() throws Exception {
+        HandshakeAuthHandler.setTokenVerifier(token -> 10001L);
+        AtomicReference<Runnable> verifyTask = new AtomicReference<>();
+        DefaultEventLoopGroup group = new DefaultEventLoopGroup(1);
+        LocalChannel channel = new LocalChannel();
+        channel.pipeline().addLast(new HandshakeAuthHandler(verifyTask::set));
+        group.register(channel).sync();
+        FullHttpRequest request = upgrade("/ws?token=good");
+
+        channel.eventLoop().submit(() -> channel.pipeline().fireChannelRead(request)).sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        // 校验完成时 I/O 线程已关闭，回调被拒绝
+        verifyTask.get().run();
+
+        assertEquals(0, request.refCnt());
+    }
+
+    private static FullHttpRequest upgrade(String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static void assertRejected(EmbeddedChannel channel, HttpResponseStatus status) {
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(status, response.status());
+        response.release();
+        assertNull(channel.readInbound());
+        assertNull(channel.attr(ChannelAttributes.USER_ID).get());
+        assertFalse(channel.isOpen());
+    }
+}
@@ -0,0 +1,121 @@
+package com.gm.graduation.netty.handler;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.codec.BinaryMessageCodec;
+import com.gm.graduation.netty.codec.JsonMessageCodec;
+import com.gm.graduation.netty.codec.WireProtocol;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeartbeatHandlerTest {
+
+    @Test
+    void pingDue_AfterHandshake_SendPing() {
+        EmbeddedChannel channel = new EmbeddedChannel(HeartbeatHandler.INSTANCE);
+        channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.JSON);
+
+        channel.pipeline().fireUserEventTriggered(HeartbeatTimerHandler.Event.PING_DUE);
+
+        PingWebSocketFrame ping = assertInstanceOf(PingWebSocketFrame.class, channel.readOutbound());
+        ping.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void pingDue_BeforeHandshake_NoPing() {
+        EmbeddedChannel channel = new EmbeddedChannel(HeartbeatHandler.INSTANCE);
+
+        channel.pipeline().fireUserEventTriggered(HeartbeatTimerHandler.Event.PING_DUE);
+
+        assertNull(channel.readOutbound());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void readerIdle_CloseChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(HeartbeatHandler.INSTANCE);
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.READER_IDLE_STATE_EVENT);
+
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void receiveOnlyClient_PingedWhileServerPushes() {
+        EmbeddedChannel channel = heartbeatChannel();
+        int pings = 0;
+        // 服务端持续下行推送 5 分钟，客户端不发业务数据，只按协议回复 pong
+        for (int second = 0; second < 300; second++) {
+            channel.writeOutbound(new TextWebSocketFrame("push"));
+            channel.advanceTimeBy(1, TimeUnit.SECONDS);
+            channel.runScheduledPendingTasks();
+            Object out;
+            while ((out = channel.readOutbound()) != null) {
+                if (out instanceof PingWebSocketFrame) {
+                    pings++;
+                    channel.writeInbound(new PongWebSocketFrame());
+                }
+                ReferenceCountUtil.release(out);
+            }
+        }
+
+        assertTrue(pings >= 4, "pings: " + pings);
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void silentClient_ClosedAfterReaderIdleDespitePushes() {
+        EmbeddedChannel channel = heartbeatChannel();
+        // 客户端不回 pong：下行推送不能让连接保活
+        for (int second = 0; second < 90 && channel.isOpen(); second++) {
+            channel.writeOutbound(new TextWebSocketFrame("push"));
+            channel.advanceTimeBy(1, TimeUnit.SECONDS);
+            channel.runScheduledPendingTasks();
+        }
+
+        assertFalse(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    /** ping 间隔 30 秒，读空闲 90 秒 **/
+    private static EmbeddedChannel heartbeatChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HeartbeatTimerHandler(30, 90), HeartbeatHandler.INSTANCE);
+        channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.JSON);
+        return channel;
+    }
+
+    @Test
+    void pongFrame_PreEncodedAndReusableAfterRelease() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        for (int i = 0; i < 2; i++) {
+            TextWebSocketFrame frame = assertInstanceOf(TextWebSocketFrame.class, HeartbeatHandler.pongFrame(channel));
+            CompleteMessage pong = JsonMessageCodec.decode(frame.content());
+            assertEquals(0, pong.getAppId());
+            assertEquals(2, pong.getMessageType());
+            assertEquals("pong", pong.getContent());
+            frame.release();
+        }
+
+        channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.BINARY);
+        BinaryWebSocketFrame binary = assertInstanceOf(BinaryWebSocketFrame.class, HeartbeatHandler.pongFrame(channel));
+        assertEquals("pong", BinaryMessageCodec.decode(binary.content()).getContent());
+        binary.release();
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,140 @@
+package com.gm.graduation.netty.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSocketCompressionHandlerTest {
+
+    private static final String LONG_TEXT = "{\"content\":\"" + "很长的聊天室消息".repeat(200) + "\"}";
+
+    @Test
+    void notOptedIn_LargeFrameSentAsIs() {
+        EmbeddedChannel channel = negotiatedChannel();
+
+        WebSocketFrame out = writeText(channel, LONG_TEXT);
+
+        assertEquals(0, out.rsv());
+        assertEquals(LONG_TEXT, ((TextWebSocketFrame) out).text());
+        out.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void optedIn_LargeFrameCompressedAndCounted() {
+        EmbeddedChannel channel = negotiatedChannel();
+        channel.attr(ChannelAttributes.COMPRESSION).set(true);
+        long rawBefore = metric("compression.rawBytes");
+        long wireBefore = metric("compression.wireBytes");
+
+        WebSocketFrame out = writeText(channel, LONG_TEXT);
+
+        int rawSize = LONG_TEXT.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue((out.rsv() & WebSocketExtension.RSV1) != 0);
+        assertTrue(out.content().readableBytes() < rawSize / 10);
+        assertEquals(rawSize, metric("compression.rawBytes") - rawBefore);
+        assertEquals(out.content().readableBytes(), metric("compression.wireBytes") - wireBefore);
+        out.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void optedIn_SmallFrameBelowThresholdSentAsIs() {
+        EmbeddedChannel channel = negotiatedChannel();
+        channel.attr(ChannelAttributes.COMPRESSION).set(true);
+
+        WebSocketFrame out = writeText(channel, "{\"content\":\"hi\"}");
+
+        assertEquals(0, out.rsv());
+        out.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void handshake_DeclaresServerNoContextTakeover() {
+        WebSocketServerExtension extension = WebSocketCompressionHandler.handshaker(new EmbeddedChannel(), 65536)
+            .handshakeExtension(new WebSocketExtensionData("permessage-deflate", Collections.emptyMap()));
+
+        Map<String, String> parameters = extension.newReponseData().parameters();
+        assertTrue(parameters.containsKey("server_no_context_takeover"));
+        assertFalse(parameters.containsKey("client_no_context_takeover"));
+    }
+
+    @Test
+    void handshake_AcceptsClientNoContextTakeover() {
+        Map<String, String> offer = new HashMap<>();
+        offer.put("client_no_context_takeover", null);
+        WebSocketServerExtension extension = WebSocketCompressionHandler.handshaker(new EmbeddedChannel(), 65536)
+            .handshakeExtension(new WebSocketExtensionData("permessage-deflate", offer));
+
+        Map<String, String> parameters = extension.newReponseData().parameters();
+        assertTrue(parameters.containsKey("server_no_context_takeover"));
+        assertTrue(parameters.containsKey("client_no_context_takeover"));
+    }
+
+    /** 不保留上下文时，后一条相同的消息不会引用前一条，单独一个新的 Inflater 即可解出 **/
+    @Test
+    void optedIn_EachFrameDecompressesOnItsOwn() throws Exception {
+        EmbeddedChannel channel = negotiatedChannel();
+        channel.attr(ChannelAttributes.COMPRESSION).set(true);
+
+        writeText(channel, LONG_TEXT).release();
+        WebSocketFrame second = writeText(channel, LONG_TEXT);
+
+        assertEquals(LONG_TEXT, inflate(second.content()));
+        second.release();
+        channel.finishAndReleaseAll();
+    }
+
+    /** 模拟握手时客户端带上了 permessage-deflate，装上协商出的编码器 **/
+    private static EmbeddedChannel negotiatedChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        WebSocketServerExtension extension = WebSocketCompressionHandler.handshaker(channel, 65536)
+            .handshakeExtension(new WebSocketExtensionData("permessage-deflate", Collections.emptyMap()));
+        channel.pipeline().addLast(CompressionMetricsHandler.INSTANCE, extension.newExtensionEncoder());
+        return channel;
+    }
+
+    private static WebSocketFrame writeText(EmbeddedChannel channel, String text) {
+        channel.writeOutbound(new TextWebSocketFrame(text));
+        return channel.readOutbound();
+    }
+
+    /** permessage-deflate 去掉了每条消息末尾的 00 00 ff ff，解压前补回 **/
+    private static String inflate(ByteBuf content) throws Exception {
+        byte[] compressed = new byte[content.readableBytes() + 4];
+        content.getBytes(content.readerIndex(), compressed, 0, content.readableBytes());
+        compressed[compressed.length - 2] = (byte) 0xff;
+        compressed[compressed.length - 1] = (byte) 0xff;
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] out = new byte[LONG_TEXT.getBytes(StandardCharsets.UTF_8).length * 2];
+            int length = inflater.inflate(out);
+            return new String(out, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long metric(String name) {
+        return (Long) NettyMetrics.snapshot().get(name);
+    }
+}
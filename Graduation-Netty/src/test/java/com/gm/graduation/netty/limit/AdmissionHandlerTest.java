@@ -0,0 +1,114 @@
+package com.gm.graduation.netty.limit;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionHandlerTest {
+
+    private static final InetSocketAddress CLIENT_A = new InetSocketAddress("10.0.0.1", 50000);
+    private static final InetSocketAddress CLIENT_B = new InetSocketAddress("10.0.0.2", 50000);
+
+    @Test
+    void perIpLimit_OtherIpStillAdmitted() {
+        AdmissionHandler handler = new AdmissionHandler(1000, 1000, 1, 2, 100, 2, 1000);
+
+        assertEquals(0, handler.admit(CLIENT_A));
+        assertEquals(0, handler.admit(CLIENT_A));
+        assertTrue(handler.admit(CLIENT_A) >= 2);
+        assertEquals(0, handler.admit(CLIENT_B));
+    }
+
+    @Test
+    void globalLimit_RejectsAnyIp() {
+        AdmissionHandler handler = new AdmissionHandler(1, 1, 0, 0, 100, 2, 1000);
+
+        assertEquals(0, handler.admit(CLIENT_A));
+        assertTrue(handler.admit(CLIENT_B) >= 2);
+    }
+
+    @Test
+    void admitted_HandlerRemovedUntilHandshakeCompleted() {
+        AdmissionHandler handler = new AdmissionHandler(1000, 1000, 0, 0, 1, 2, 1000);
+        EmbeddedChannel first = new EmbeddedChannel(handler);
+
+        assertNull(first.pipeline().get(AdmissionHandler.class));
+        assertEquals(1, handler.pendingHandshakes());
+        // 握手中连接数已达上限
+        EmbeddedChannel second = new EmbeddedChannel(handler);
+        assertSame(handler, second.pipeline().get(AdmissionHandler.class));
+
+        AdmissionHandler.handshakeCompleted(first);
+        AdmissionHandler.handshakeCompleted(first);
+        assertEquals(0, handler.pendingHandshakes());
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    void closedBeforeHandshake_ReleasesPendingSlot() {
+        AdmissionHandler handler = new AdmissionHandler(1000, 1000, 0, 0, 10, 2, 1000);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        assertEquals(1, handler.pendingHandshakes());
+
+        channel.close();
+
+        assertEquals(0, handler.pendingHandshakes());
+    }
+
+    @Test
+    void globalReject_RefundsIpTokenAndPendingSlot() {
+        AdmissionHandler handler = new AdmissionHandler(1, 1, 1, 1, 100, 2, 1000);
+
+        assertEquals(0, handler.admit(CLIENT_A));
+        assertTrue(handler.admit(CLIENT_B) >= 2);
+
+        // B 被全局限流拒绝，它的单 IP 令牌已退还：B 的桶仍是满的
+        assertEquals(0, handler.ipBucket(CLIENT_B).nanosUntilAvailable());
+        assertEquals(1, handler.pendingHandshakes());
+    }
+
+    @Test
+    void rejectedSilentClient_ClosedAfterTimeout() {
+        AdmissionHandler handler = new AdmissionHandler(1000, 1000, 0, 0, 0, 3, 1000);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        assertTrue(channel.isOpen());
+
+        channel.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        ByteBuf response = channel.readOutbound();
+        assertTrue(response.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 503 Service Unavailable\r\n"));
+        response.release();
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void rejected_RequestAnswered503ThenClosed() {
+        AdmissionHandler handler = new AdmissionHandler(1000, 1000, 0, 0, 0, 3, 1000);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeInbound(Unpooled.copiedBuffer("GET /ws HTTP/1.1\r\n\r\n", StandardCharsets.US_ASCII));
+
+        ByteBuf response = channel.readOutbound();
+        String text = response.toString(StandardCharsets.US_ASCII);
+        response.release();
+        assertTrue(text.startsWith("HTTP/1.1 503 Service Unavailable\r\n"));
+        int retryAfter = Integer.parseInt(text.replaceAll("(?s).*Retry-After: (\\d+).*", "$1"));
+        assertTrue(retryAfter >= 3 && retryAfter <= 6);
+        assertFalse(channel.isOpen());
+    }
+}
@@ -0,0 +1,113 @@
+package com.gm.graduation.netty.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用默认配置：聊天室文本 10 条/秒、突发 20 条；10 秒内超限 20 次断开。
+ * 按用户保存的状态是全局的，各测试使用不同的 userId
+ * 令牌桶在首次使用时按真实时间创建，测试时间取 1 秒之后，保证桶创建时已满，不受执行快慢影响
+ */
+class InboundRateLimiterTest {
+
+    @Test
+    void chatRoomText_BurstThenThrottled() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_TEXT, now));
+        }
+        assertFalse(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_TEXT, now));
+        // 各消息类型的令牌桶相互独立
+        assertTrue(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.PRIVATE_CHAT_TEXT, now));
+        // 100ms 后补充一个令牌
+        assertTrue(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_TEXT, now + TimeUnit.MILLISECONDS.toNanos(100)));
+        assertTrue(channel.isOpen());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void linkMessages_NotLimited() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.LINK_HEARTBEAT, now));
+        }
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void repeatedViolations_Disconnect() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        // 文件消息突发 2 条，之后每次都超限
+        for (int i = 0; i < 2; i++) {
+            assertTrue(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_FILE, now));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertFalse(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_FILE, now));
+            assertTrue(channel.isOpen());
+        }
+        assertFalse(InboundRateLimiter.tryAcquire(ctx, MessageTypeEnum.CHAT_ROOM_FILE, now));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void reconnect_KeepsViolationsOfUser() {
+        long userId = 18_001L;
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        EmbeddedChannel first = authenticatedChannel(userId);
+        ChannelHandlerContext firstCtx = first.pipeline().firstContext();
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(InboundRateLimiter.tryAcquire(firstCtx, MessageTypeEnum.CHAT_ROOM_FILE, now));
+        }
+        for (int i = 0; i < 21; i++) {
+            assertFalse(InboundRateLimiter.tryAcquire(firstCtx, MessageTypeEnum.CHAT_ROOM_FILE, now));
+        }
+        assertFalse(first.isOpen());
+
+        // 重连后沿用同一用户的令牌桶与超限计数，再次超限立即断开
+        EmbeddedChannel second = authenticatedChannel(userId);
+        assertFalse(InboundRateLimiter.tryAcquire(second.pipeline().firstContext(), MessageTypeEnum.CHAT_ROOM_FILE, now));
+        assertFalse(second.isOpen());
+    }
+
+    @Test
+    void idleUser_Evicted() {
+        long userId = 18_002L;
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        EmbeddedChannel channel = authenticatedChannel(userId);
+        assertTrue(InboundRateLimiter.tryAcquire(channel.pipeline().firstContext(), MessageTypeEnum.CHAT_ROOM_TEXT, now));
+        assertTrue(InboundRateLimiter.isTracked(userId));
+
+        // 一分钟后令牌桶早已回满，下一次清理时移除
+        EmbeddedChannel other = authenticatedChannel(18_003L);
+        assertTrue(InboundRateLimiter.tryAcquire(other.pipeline().firstContext(), MessageTypeEnum.CHAT_ROOM_TEXT,
+            now + TimeUnit.MINUTES.toNanos(1)));
+        assertFalse(InboundRateLimiter.isTracked(userId));
+        channel.finishAndReleaseAll();
+        other.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel authenticatedChannel(long userId) {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        channel.attr(ChannelAttributes.USER_ID).set(userId);
+        return channel;
+    }
+}
@@ -0,0 +1,51 @@
+package com.gm.graduation.netty.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void fullBucket_AllowsBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(10, 5);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(now));
+        }
+        assertFalse(bucket.tryAcquire(now));
+        assertEquals(100 * MS, bucket.nanosUntilAvailable(now));
+    }
+
+    @Test
+    void refill_OneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        long now = System.nanoTime();
+
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now + 99 * MS));
+        assertTrue(bucket.tryAcquire(now + 100 * MS));
+        assertFalse(bucket.tryAcquire(now + 100 * MS));
+    }
+
+    @Test
+    void longIdle_RefillCappedAtBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.isIdle(now));
+
+        long later = now + TimeUnit.SECONDS.toNanos(60);
+        assertTrue(bucket.isIdle(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+}
@@ -0,0 +1,122 @@
+package com.gm.graduation.netty.processor;
+
+import com.gm.graduation.common.api.IChatRoomMessageService;
+import com.gm.graduation.common.domain.ChatRoomMessage;
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.cache.UserChatRoomManager;
+import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.handler.BusinessHandler;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import com.gm.graduation.netty.handler.MessageToWebSocketFrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ChatRoomProcessorTest {
+
+    private static final long ROOM_ID = 9001L;
+
+    private IChatRoomMessageService mockMessageService;
+    private EmbeddedChannel sender;
+    private EmbeddedChannel receiverA;
+    private EmbeddedChannel receiverB;
+
+    @BeforeEach
+    void setUp() {
+        mockMessageService = Mockito.mock(IChatRoomMessageService.class);
+        ChatRoomProcessor.setChatRoomMessageService(mockMessageService);
+
+        sender = newChannel();
+        receiverA = newChannel();
+        receiverB = newChannel();
+        join(1L, sender);
+        join(2L, receiverA);
+        join(3L, receiverB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (long userId = 1L; userId <= 3L; userId++) {
+            UserChatRoomManager.removeChatRoomUser(ROOM_ID, userId);
+            UserLinkManager.removeUserChannel(userId);
+        }
+        sender.finishAndReleaseAll();
+        receiverA.finishAndReleaseAll();
+        receiverB.finishAndReleaseAll();
+        ChatRoomProcessor.setChatRoomMessageService(null);
+    }
+
+    @Test
+    void sendChatRoomMessage_EncodeOnceAndShareBytes() {
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(1);
+        msg.setUid(1L);
+        msg.setMessageType(1);
+        msg.setToId(ROOM_ID);
+        msg.setContent("hello room");
+
+        ProcessorRegistry.lookup(1, 1).invoke(ctxOf(sender), msg);
+
+        verify(mockMessageService, times(1)).saveMessage(any(ChatRoomMessage.class));
+        // 发送者不接收自己的消息
+        assertNull(sender.readOutbound());
+
+        TextWebSocketFrame frameA = receiverA.readOutbound();
+        TextWebSocketFrame frameB = receiverB.readOutbound();
+        assertTrue(frameA.text().contains("hello room"));
+        assertEquals(frameA.text(), frameB.text());
+
+        // 两个接收者共享同一块底层内存，全部释放后引用计数归零
+        ByteBuf shared = frameA.content().unwrap();
+        assertSame(shared, frameB.content().unwrap());
+        frameA.release();
+        frameB.release();
+        assertEquals(0, shared.refCnt());
+    }
+
+    @Test
+    void joinAfterDisconnect_MembershipRolledBack() {
+        long roomId = ROOM_ID + 1;
+        EmbeddedChannel channel = newChannel();
+        channel.attr(ChannelAttributes.USER_ID).set(4L);
+        ChannelHandlerContext ctx = ctxOf(channel);
+        channel.close();
+
+        CompleteMessage msg = new CompleteMessage();
+        msg.setAppId(1);
+        msg.setMessageType(0);
+        msg.setToId(roomId);
+        ProcessorRegistry.lookup(1, 0).invoke(ctx, msg);
+
+        assertEquals(0, UserChatRoomManager.getChatRoomUserCount(roomId));
+        assertEquals(0, UserChatRoomManager.getUserChatRooms(4L).length);
+        assertNull(UserLinkManager.getUserChannelCtx(4L));
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(new MessageToWebSocketFrameEncoder(), new BusinessHandler());
+    }
+
+    private static ChannelHandlerContext ctxOf(EmbeddedChannel channel) {
+        return channel.pipeline().context(BusinessHandler.class);
+    }
+
+    private static void join(long userId, EmbeddedChannel channel) {
+        UserChatRoomManager.addChatRoomUser(ROOM_ID, userId);
+        UserLinkManager.addUserChannel(userId, ctxOf(channel));
+    }
+}
@@ -4,8 +4,11 @@ import com.gm.graduation.common.api.IPrivateMessageService;
 import com.gm.graduation.common.domain.CompleteMessage;
 import com.gm.graduation.common.domain.PrivateMessage;
 import com.gm.graduation.netty.cache.UserLinkManager;
+import com.gm.graduation.netty.codec.PooledMessage;
+import com.gm.graduation.netty.handler.ChannelAttributes;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,7 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -43,12 +46,11 @@ class PrivateChatProcessorTest {
     void process_ReceiverOffline_SaveAsUnread() {
         // Arrange
         CompleteMessage msg = new CompleteMessage();
-        msg.setUid(1L);
         msg.setToId(2L);
         msg.setContent("Hello Offline");
 
         // Act
-        PrivateChatProcessor.getInstance().process(mockCtx, msg);
+        PrivateChatProcessor.getInstance().handlePrivateMessage(senderCtx(1L), msg);
 
         // Assert
         ArgumentCaptor<PrivateMessage> captor = ArgumentCaptor.forClass(PrivateMessage.class);
@@ -65,18 +67,20 @@ class PrivateChatProcessorTest {
     void process_ReceiverOnline_SaveAsReadAndPush() {
         // Arrange
         CompleteMessage msg = new CompleteMessage();
-        msg.setUid(1L);
+        // 消息中伪造的 uid 被忽略，发送者取握手时绑定在连接上的用户
+        msg.setUid(99L);
         msg.setToId(2L);
         msg.setContent("Hello Online");
         msg.setAppId(2);
         msg.setMessageType(1);
 
-        // 模拟接收者在线
+        // 模拟接收者在线且写缓冲未积压
         when(mockChannel.isActive()).thenReturn(true);
+        when(mockChannel.isWritable()).thenReturn(true);
         UserLinkManager.addUserChannel(2L, mockCtx);
 
         // Act
-        PrivateChatProcessor.getInstance().process(Mockito.mock(ChannelHandlerContext.class), msg);
+        PrivateChatProcessor.getInstance().handlePrivateMessage(senderCtx(1L), msg);
 
         // Assert
         // 1. 验证落库
@@ -90,29 +94,37 @@ class PrivateChatProcessorTest {
         assertEquals(1, savedMessage.getIsRead()); // 在线已读
 
         // 2. 验证实时推送
-        ArgumentCaptor<CompleteMessage> pushCaptor = ArgumentCaptor.forClass(CompleteMessage.class);
+        ArgumentCaptor<PooledMessage> pushCaptor = ArgumentCaptor.forClass(PooledMessage.class);
         verify(mockCtx, times(1)).writeAndFlush(pushCaptor.capture());
 
-        CompleteMessage pushedMsg = pushCaptor.getValue();
+        PooledMessage pushedMsg = pushCaptor.getValue();
         assertEquals(2, pushedMsg.getAppId());
         assertEquals(1L, pushedMsg.getUid());
         assertEquals(2L, pushedMsg.getToId());
         assertEquals("Hello Online", pushedMsg.getContent());
-        assertNotNull(pushedMsg.getTimeStamp());
+        assertTrue(pushedMsg.getTimeStamp() > 0);
     }
 
     @Test
     void process_IncompleteMessage_DoNothing() {
         // Arrange
         CompleteMessage msg = new CompleteMessage();
-        msg.setUid(1L);
         // 没有设置 toId 和 content
 
         // Act
-        PrivateChatProcessor.getInstance().process(mockCtx, msg);
+        PrivateChatProcessor.getInstance().handlePrivateMessage(senderCtx(1L), msg);
 
         // Assert
         verify(mockMessageService, never()).saveMessage(any());
         verify(mockCtx, never()).writeAndFlush(any());
     }
-}
\ No newline at end of file
+
+    /** 发送方连接，握手鉴权后 channel 上绑定了用户 id **/
+    private static ChannelHandlerContext senderCtx(long userId) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.attr(ChannelAttributes.USER_ID).set(userId);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        when(ctx.channel()).thenReturn(channel);
+        return ctx;
+    }
+}
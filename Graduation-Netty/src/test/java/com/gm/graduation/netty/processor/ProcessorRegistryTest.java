@@ -0,0 +1,62 @@
+package com.gm.graduation.netty.processor;
+
+import java.util.Map;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.common.enums.MessageTypeEnum;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ProcessorRegistryTest {
+
+    @Test
+    void lookup_ClientMessageTypesRegistered_ServerPushesNot() {
+        for (MessageTypeEnum type : MessageTypeEnum.values()) {
+            RegisteredHandler handler = ProcessorRegistry.lookup(type.getApp().getApp(), type.getType());
+            if (type == MessageTypeEnum.LINK_RESYNC || type == MessageTypeEnum.LINK_RECONNECT) {
+                assertNull(handler, type.name());
+            } else {
+                assertSame(type, handler.type());
+            }
+        }
+    }
+
+    @Test
+    void lookup_UnknownOrMissing_Null() {
+        assertNull(ProcessorRegistry.lookup(null, 1));
+        assertNull(ProcessorRegistry.lookup(1, null));
+        assertNull(ProcessorRegistry.lookup(-1, 0));
+        assertNull(ProcessorRegistry.lookup(99, 0));
+        assertNull(ProcessorRegistry.lookup(1, 99));
+        assertNull(ProcessorRegistry.lookup(2, 0));
+    }
+
+    @Test
+    void invoke_CountsInvocations() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        CompleteMessage heartbeat = new CompleteMessage();
+        heartbeat.setAppId(0);
+        heartbeat.setMessageType(2);
+        long before = invocations("processor.LINK_HEARTBEAT");
+
+        ProcessorRegistry.lookup(0, 2).invoke(channel.pipeline().firstContext(), heartbeat);
+
+        TextWebSocketFrame pong = assertInstanceOf(TextWebSocketFrame.class, channel.readOutbound());
+        pong.release();
+        assertEquals(before + 1, invocations("processor.LINK_HEARTBEAT"));
+        channel.finishAndReleaseAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long invocations(String metric) {
+        return (Long) ((Map<String, Object>) NettyMetrics.snapshot().get(metric)).get("invocations");
+    }
+}
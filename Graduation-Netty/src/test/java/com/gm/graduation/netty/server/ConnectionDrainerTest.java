@@ -0,0 +1,119 @@
+package com.gm.graduation.netty.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gm.graduation.common.domain.CompleteMessage;
+import com.gm.graduation.netty.codec.WireProtocol;
+import com.gm.graduation.netty.handler.ChannelAttributes;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionDrainerTest {
+
+    /** 假时钟：等待即把时间推到超时点，不真正睡眠 **/
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Long> waits = new ArrayList<>();
+    private final ConnectionDrainer.Waiter fakeWaiter = (allClosed, timeoutNanos) -> {
+        waits.add(timeoutNanos);
+        nanos.addAndGet(timeoutNanos);
+        return allClosed.getCount() == 0;
+    };
+
+    @Test
+    void drain_ReconnectDelaysSpreadAcrossWaves_AllClosedAfterWindow() {
+        List<EmbeddedChannel> channels = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            EmbeddedChannel channel = new EmbeddedChannel();
+            channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.JSON);
+            channels.add(channel);
+        }
+
+        new ConnectionDrainer(300, 3, nanos::get, fakeWaiter).drain(new ArrayList<Channel>(channels));
+
+        assertEquals(List.of(100 * MS, 100 * MS, 100 * MS), waits);
+        int[] perWave = new int[3];
+        for (EmbeddedChannel channel : channels) {
+            CompleteMessage reconnect = assertInstanceOf(CompleteMessage.class, channel.readOutbound());
+            assertEquals(0, reconnect.getAppId());
+            assertEquals(4, reconnect.getMessageType());
+            long delay = Long.parseLong(reconnect.getContent());
+            assertTrue(delay >= 0 && delay < 300);
+            perWave[(int) (delay / 100)]++;
+
+            CloseWebSocketFrame close = assertInstanceOf(CloseWebSocketFrame.class, channel.readOutbound());
+            assertEquals(WebSocketCloseStatus.ENDPOINT_UNAVAILABLE.code(), close.statusCode());
+            close.release();
+            assertFalse(channel.isOpen());
+        }
+        assertEquals(2, perWave[0]);
+        assertEquals(2, perWave[1]);
+        assertEquals(2, perWave[2]);
+    }
+
+    @Test
+    void drain_BeforeHandshake_ClosedWithoutMessages() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        new ConnectionDrainer(10, 1, nanos::get, fakeWaiter).drain(List.of(channel));
+
+        assertNull(channel.readOutbound());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void drain_NoConnections_ReturnsWithoutWaiting() {
+        new ConnectionDrainer(20_000, 10, nanos::get, fakeWaiter).drain(List.of());
+
+        assertTrue(waits.isEmpty());
+    }
+
+    @Test
+    void drain_ClientsReconnectEarly_StopsWaiting() {
+        List<EmbeddedChannel> channels = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            EmbeddedChannel channel = new EmbeddedChannel();
+            channel.attr(ChannelAttributes.WIRE_PROTOCOL).set(WireProtocol.JSON);
+            channels.add(channel);
+        }
+        // 第一批等待期间所有客户端收到通知后自行断开
+        ConnectionDrainer.Waiter waiter = (allClosed, timeoutNanos) -> {
+            waits.add(timeoutNanos);
+            channels.forEach(EmbeddedChannel::close);
+            return allClosed.getCount() == 0;
+        };
+
+        new ConnectionDrainer(20_000, 4, nanos::get, waiter).drain(new ArrayList<Channel>(channels));
+
+        assertEquals(1, waits.size());
+        channels.forEach(EmbeddedChannel::finishAndReleaseAll);
+    }
+
+    @Test
+    void drain_Interrupted_ClosesRemainingWavesImmediately() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ConnectionDrainer.Waiter waiter = (allClosed, timeoutNanos) -> {
+            waits.add(timeoutNanos);
+            throw new InterruptedException();
+        };
+
+        new ConnectionDrainer(20_000, 4, nanos::get, waiter).drain(List.of(channel));
+
+        assertTrue(Thread.interrupted());
+        assertEquals(1, waits.size());
+        assertFalse(channel.isOpen());
+    }
+}
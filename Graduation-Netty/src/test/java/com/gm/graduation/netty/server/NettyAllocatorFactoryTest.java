@@ -0,0 +1,73 @@
+package com.gm.graduation.netty.server;
+
+import java.util.List;
+import java.util.Map;
+
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NettyAllocatorFactoryTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("netty.allocator.type");
+        System.clearProperty("netty.allocator.chunk-size-bytes");
+        System.clearProperty("netty.allocator.direct-arenas");
+        NettyMetrics.unregister("allocator.");
+    }
+
+    @Test
+    void maxOrder_ChunkSizeMustBePageSizeTimesPowerOfTwo() {
+        assertEquals(9, NettyAllocatorFactory.maxOrder(4 * 1024 * 1024, 8192));
+        assertEquals(0, NettyAllocatorFactory.maxOrder(8192, 8192));
+        assertThrows(IllegalArgumentException.class, () -> NettyAllocatorFactory.maxOrder(3 * 8192, 8192));
+        assertThrows(IllegalArgumentException.class, () -> NettyAllocatorFactory.maxOrder(4096, 8192));
+        assertThrows(IllegalArgumentException.class, () -> NettyAllocatorFactory.maxOrder(8192 << 15, 8192));
+    }
+
+    @Test
+    void pooled_ConfiguredChunkSizeAndArenasPublished() {
+        System.setProperty("netty.allocator.chunk-size-bytes", String.valueOf(1024 * 1024));
+        System.setProperty("netty.allocator.direct-arenas", "3");
+
+        ByteBufAllocator allocator = NettyAllocatorFactory.buildAllocator();
+        assertInstanceOf(PooledByteBufAllocator.class, allocator);
+        ByteBuf buf = allocator.directBuffer(256);
+
+        Map<String, Object> metrics = NettyMetrics.snapshot();
+        assertEquals(1024 * 1024, metrics.get("allocator.chunkSize"));
+        List<?> arenas = (List<?>) metrics.get("allocator.directArenas");
+        assertEquals(3, arenas.size());
+        long active = arenas.stream().mapToLong(a -> (Long) ((Map<?, ?>) a).get("activeAllocations")).sum();
+        assertTrue(active >= 1 || (Long) metrics.get("allocator.usedDirectMemory") > 0);
+        buf.release();
+    }
+
+    @Test
+    void unpooled_UsedMemoryPublished() {
+        System.setProperty("netty.allocator.type", "unpooled");
+
+        ByteBufAllocator allocator = NettyAllocatorFactory.buildAllocator();
+        assertInstanceOf(UnpooledByteBufAllocator.class, allocator);
+        ByteBuf buf = allocator.heapBuffer(1024);
+        assertTrue((Long) NettyMetrics.snapshot().get("allocator.usedHeapMemory") >= 1024);
+        buf.release();
+        assertEquals(0L, NettyMetrics.snapshot().get("allocator.usedHeapMemory"));
+        assertTrue(NettyMetrics.snapshot().containsKey("allocator.leaksDetected"));
+    }
+
+    @Test
+    void unknownType_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> NettyAllocatorFactory.newAllocator("arena", true));
+    }
+}
@@ -1,5 +1,6 @@
 package com.gm.imbootstrap;
 
+import com.gm.graduation.netty.server.NettyAllocatorFactory;
 import com.gm.graduation.netty.server.NettyServer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -8,6 +9,7 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.DependsOn;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -15,11 +17,15 @@ import java.util.concurrent.CompletableFuture;
 @SpringBootApplication
 @MapperScan("com.gm.imbootstrap.mapper")
 @ComponentScan({"com.gm.imbootstrap", "com.gm.graduation"})
+// 依赖写后缓冲：容器关闭时先停 Netty（分批断开连接、排空业务队列），再由缓冲把剩余消息落库
+@DependsOn("messageWriteBehindBuffer")
 public class ImBootstrapApplication {
 
     private NettyServer nettyServer;
 
     public static void main(String[] args) {
+        // 泄漏检测须在第一个 ByteBuf 创建前安装，Redis 客户端等组件在容器启动时就会创建
+        NettyAllocatorFactory.installLeakDetection();
         SpringApplication.run(ImBootstrapApplication.class, args);
     }
 
@@ -42,7 +48,8 @@ public class ImBootstrapApplication {
     public void stopNettyServer() {
         if (nettyServer != null && nettyServer.isStarted()) {
             log.info("正在关闭Netty服务器...");
-            nettyServer.shutdown();
+            // 滚动发布时平滑下线，客户端按通知错峰重连到其它节点
+            nettyServer.drain();
             log.info("Netty服务器已关闭");
         }
     }
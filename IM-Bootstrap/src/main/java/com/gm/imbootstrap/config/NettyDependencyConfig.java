@@ -2,6 +2,8 @@ package com.gm.imbootstrap.config;
 
 import com.gm.graduation.common.api.IChatRoomMessageService;
 import com.gm.graduation.common.api.IPrivateMessageService;
+import com.gm.graduation.common.api.ITokenVerifier;
+import com.gm.graduation.netty.handler.HandshakeAuthHandler;
 import com.gm.graduation.netty.processor.ChatRoomProcessor;
 import com.gm.graduation.netty.processor.PrivateChatProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,9 +20,13 @@ public class NettyDependencyConfig {
     @Autowired
     private IChatRoomMessageService chatRoomMessageService;
 
+    @Autowired
+    private ITokenVerifier tokenVerifier;
+
     @PostConstruct
     public void init() {
         PrivateChatProcessor.setPrivateMessageService(privateMessageService);
         ChatRoomProcessor.setChatRoomMessageService(chatRoomMessageService);
+        HandshakeAuthHandler.setTokenVerifier(tokenVerifier);
     }
 }
@@ -0,0 +1,27 @@
+package com.gm.imbootstrap.controller;
+
+import java.util.Map;
+import com.gm.imbootstrap.dto.ApiResponse;
+import com.gm.imbootstrap.service.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Token 校验运行指标Controller
+ */
+@RestController
+@RequestMapping("/auth")
+public class AuthMetricsController {
+
+    @Autowired
+    private TokenService tokenService;
+
+    /** 查看已校验Token缓存的指标快照（条目数、命中与未命中次数） */
+    @GetMapping("/metrics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> metrics() {
+        return ResponseEntity.ok(ApiResponse.success("获取成功", tokenService.tokenCacheStats()));
+    }
+}
@@ -0,0 +1,23 @@
+package com.gm.imbootstrap.controller;
+
+import java.util.Map;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import com.gm.imbootstrap.dto.ApiResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Netty 长连接层运行指标Controller
+ */
+@RestController
+@RequestMapping("/netty")
+public class NettyMetricsController {
+
+    /** 查看当前指标快照（业务队列深度、排队耗时等） */
+    @GetMapping("/metrics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> metrics() {
+        return ResponseEntity.ok(ApiResponse.success("获取成功", NettyMetrics.snapshot()));
+    }
+}
@@ -62,20 +62,18 @@ public class TokenValidationInterceptor implements HandlerInterceptor {
             return false;
         }
 
-        // 验证Token
-        if (!tokenService.validateToken(token)) {
+        // 验证Token并获取用户ID，一次校验
+        Long userId = tokenService.getUserIdFromToken(token);
+        if (userId == null) {
             log.warn("Token验证失败: path={}, token={}", requestPath, token.substring(0, Math.min(token.length(), 20)) + "...");
             sendUnauthorizedResponse(response, "访问凭证无效或已过期");
             return false;
         }
 
         // 将用户ID添加到请求属性中，供后续使用
-        Long userId = tokenService.getUserIdFromToken(token);
-        if (userId != null) {
-            request.setAttribute("currentUserId", userId);
-            request.setAttribute("currentToken", token);
-            log.debug("Token验证成功: userId={}, path={}", userId, requestPath);
-        }
+        request.setAttribute("currentUserId", userId);
+        request.setAttribute("currentToken", token);
+        log.debug("Token验证成功: userId={}, path={}", userId, requestPath);
 
         return true;
     }
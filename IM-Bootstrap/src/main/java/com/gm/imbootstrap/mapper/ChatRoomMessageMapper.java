@@ -1,9 +1,21 @@
 package com.gm.imbootstrap.mapper;
 
+import java.util.List;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gm.graduation.common.domain.ChatRoomMessage;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 @Mapper
 public interface ChatRoomMessageMapper extends BaseMapper<ChatRoomMessage> {
+
+    /** 多行插入，一条语句一次提交 */
+    @Insert("<script>"
+        + "INSERT INTO graduation_chatroom_message (room_id, sender_id, content, create_time) VALUES "
+        + "<foreach collection='list' item='m' separator=','>"
+        + "(#{m.roomId}, #{m.senderId}, #{m.content}, #{m.createTime})"
+        + "</foreach>"
+        + "</script>")
+    int insertBatch(@Param("list") List<ChatRoomMessage> messages);
 }
@@ -1,9 +1,21 @@
 package com.gm.imbootstrap.mapper;
 
+import java.util.List;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gm.graduation.common.domain.PrivateMessage;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 
 @Mapper
 public interface PrivateMessageMapper extends BaseMapper<PrivateMessage> {
+
+    /** 多行插入，一条语句一次提交 */
+    @Insert("<script>"
+        + "INSERT INTO graduation_private_message (sender_id, receiver_id, content, is_read, create_time) VALUES "
+        + "<foreach collection='list' item='m' separator=','>"
+        + "(#{m.senderId}, #{m.receiverId}, #{m.content}, #{m.isRead}, #{m.createTime})"
+        + "</foreach>"
+        + "</script>")
+    int insertBatch(@Param("list") List<PrivateMessage> messages);
 }
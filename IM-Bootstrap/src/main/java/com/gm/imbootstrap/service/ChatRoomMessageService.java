@@ -19,12 +19,16 @@ public class ChatRoomMessageService implements IChatRoomMessageService {
     @Autowired
     private MessageCryptoService messageCryptoService;
 
+    @Autowired
+    private MessageWriteBehindBuffer messageWriteBehindBuffer;
+
     @Override
     public void saveMessage(ChatRoomMessage message) {
         if (message != null) {
             String aad = buildAad(message.getRoomId(), message.getSenderId());
             message.setContent(messageCryptoService.encrypt(message.getContent(), aad));
-            chatRoomMessageMapper.insert(message);
+            // 加密后交给写后缓冲批量落库
+            messageWriteBehindBuffer.addChatRoomMessage(message);
         }
     }
 
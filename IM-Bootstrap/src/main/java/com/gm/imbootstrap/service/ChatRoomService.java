@@ -118,8 +118,7 @@ public class ChatRoomService {
             throw new IllegalArgumentException("roomId不能为空");
         }
         // 调用Netty模块的本地缓存获取人数
-        java.util.Set<Long> userSet = com.gm.graduation.netty.cache.UserChatRoomManager.getChatRoomUserSet(roomId);
-        return userSet == null ? 0 : userSet.size();
+        return com.gm.graduation.netty.cache.UserChatRoomManager.getChatRoomUserCount(roomId);
     }
 }
 
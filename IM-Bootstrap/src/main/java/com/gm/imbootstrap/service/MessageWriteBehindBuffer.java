@@ -0,0 +1,79 @@
+package com.gm.imbootstrap.service;
+
+import com.gm.graduation.common.domain.ChatRoomMessage;
+import com.gm.graduation.common.domain.PrivateMessage;
+import com.gm.graduation.netty.metrics.NettyMetrics;
+import com.gm.imbootstrap.mapper.ChatRoomMessageMapper;
+import com.gm.imbootstrap.mapper.PrivateMessageMapper;
+import com.gm.imbootstrap.util.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天消息写后缓冲：私聊与聊天室消息先入队，再按批次多行插入（group commit）
+ */
+@Slf4j
+@Component
+public class MessageWriteBehindBuffer {
+
+    @Autowired
+    private PrivateMessageMapper privateMessageMapper;
+
+    @Autowired
+    private ChatRoomMessageMapper chatRoomMessageMapper;
+
+    @Value("${app.persistence.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.persistence.write-behind.flush-interval-ms:50}")
+    private long flushIntervalMillis;
+
+    @Value("${app.persistence.write-behind.capacity:20000}")
+    private int capacity;
+
+    @Value("${app.persistence.write-behind.offer-timeout-ms:1000}")
+    private long offerTimeoutMillis;
+
+    private WriteBehindBuffer<PrivateMessage> privateMessages;
+
+    private WriteBehindBuffer<ChatRoomMessage> chatRoomMessages;
+
+    @PostConstruct
+    public void init() {
+        privateMessages = new WriteBehindBuffer<>("private-message", batchSize, flushIntervalMillis, capacity,
+            offerTimeoutMillis, privateMessageMapper::insertBatch);
+        chatRoomMessages = new WriteBehindBuffer<>("chatroom-message", batchSize, flushIntervalMillis, capacity,
+            offerTimeoutMillis, chatRoomMessageMapper::insertBatch);
+        registerMetrics("persistence.private.", privateMessages);
+        registerMetrics("persistence.chatroom.", chatRoomMessages);
+        log.info("消息写后缓冲已启动: batchSize={}, flushIntervalMs={}, capacity={}", batchSize, flushIntervalMillis, capacity);
+    }
+
+    public void addPrivateMessage(PrivateMessage message) {
+        privateMessages.add(message);
+    }
+
+    public void addChatRoomMessage(ChatRoomMessage message) {
+        chatRoomMessages.add(message);
+    }
+
+    /** 关闭时把已接收的消息全部落库 **/
+    @PreDestroy
+    public void shutdown() {
+        privateMessages.close();
+        chatRoomMessages.close();
+        NettyMetrics.unregister("persistence.");
+    }
+
+    private static void registerMetrics(String prefix, WriteBehindBuffer<?> buffer) {
+        NettyMetrics.register(prefix + "pending", buffer::pending);
+        NettyMetrics.register(prefix + "writtenRows", buffer::writtenRows);
+        NettyMetrics.register(prefix + "writtenBatches", buffer::writtenBatches);
+        NettyMetrics.register(prefix + "failedRows", buffer::failedRows);
+        NettyMetrics.register(prefix + "overflowRows", buffer::overflowRows);
+    }
+}
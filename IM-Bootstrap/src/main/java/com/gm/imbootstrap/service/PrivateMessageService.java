@@ -19,12 +19,16 @@ public class PrivateMessageService implements IPrivateMessageService {
     @Autowired
     private MessageCryptoService messageCryptoService;
 
+    @Autowired
+    private MessageWriteBehindBuffer messageWriteBehindBuffer;
+
     @Override
     public void saveMessage(PrivateMessage message) {
         if (message != null) {
             String aad = buildAad(message.getSenderId(), message.getReceiverId());
             message.setContent(messageCryptoService.encrypt(message.getContent(), aad));
-            privateMessageMapper.insert(message);
+            // 加密后交给写后缓冲批量落库
+            messageWriteBehindBuffer.addPrivateMessage(message);
         }
     }
 
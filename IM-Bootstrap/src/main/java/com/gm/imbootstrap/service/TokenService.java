@@ -1,11 +1,21 @@
 package com.gm.imbootstrap.service;
 
+import com.gm.graduation.common.api.ITokenVerifier;
+import com.gm.imbootstrap.service.token.TokenStore;
 import com.gm.imbootstrap.util.JwtUtil;
+import com.gm.imbootstrap.util.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -15,20 +25,48 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 @Service
-public class TokenService {
+public class TokenService implements ITokenVerifier {
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    /** userId <-> token 双向映射，由 app.security.token-store 选择 Redis 或进程内实现 **/
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private TokenStore tokenStore;
 
-    private static final String TOKEN_PREFIX = "user:token:";
-    private static final String USER_PREFIX = "token:user:";
     private static final long TOKEN_EXPIRE_TIME = 7; // 7天
 
+    @Value("${app.security.token-cache.max-size:100000}")
+    private long tokenCacheMaxSize;
+
+    /** 缓存条目的最长有效期：失效通知丢失（如订阅重连期间）时，被登出的Token最多再被接受这么久 **/
+    @Value("${app.security.token-cache.max-ttl-ms:60000}")
+    private long tokenCacheMaxTtlMillis;
+
+    /** 已校验通过的Token，认证请求命中时不再解析JWT、不访问Token存储 **/
+    private VerifiedTokenCache verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        verifiedTokens = new VerifiedTokenCache(tokenCacheMaxSize);
+        // 任一节点替换或删除Token后，各节点移除本地缓存
+        tokenStore.onInvalidate(verifiedTokens::invalidate);
+    }
+
+    /**
+     * 已校验Token缓存的运行指标：条目数、命中与未命中次数
+     * @return 指标快照
+     */
+    public Map<String, Object> tokenCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", verifiedTokens.size());
+        stats.put("hits", verifiedTokens.hits());
+        stats.put("misses", verifiedTokens.misses());
+        return stats;
+    }
+
     /**
-     * 生成并存储Token
+     * 生成并存储Token，用户之前的Token随之失效
      * @param userId 用户ID
      * @param username 用户名
      * @return Token
@@ -38,8 +76,12 @@ public class TokenService {
             // 生成JWT Token
             String token = jwtUtil.generateToken(userId, username);
             
-            // 存储到Redis
-            storeTokenToRedis(userId, token);
+            // 存储Token，替换旧Token
+            String replaced = tokenStore.save(userId, token, TimeUnit.DAYS.toMillis(TOKEN_EXPIRE_TIME));
+            if (replaced != null) {
+                verifiedTokens.invalidate(replaced);
+                log.warn("用户 {} 重复登录，旧会话已下线", userId);
+            }
             
             log.info("为用户 {} 生成Token成功", userId);
             return token;
@@ -50,92 +92,88 @@ public class TokenService {
     }
 
     /**
-     * 将Token存储到Redis
-     * @param userId 用户ID
+     * 验证Token是否有效
      * @param token Token
+     * @return 是否有效
      */
-    private void storeTokenToRedis(Long userId, String token) {
-        String userTokenKey = TOKEN_PREFIX + userId;
-        String tokenUserKey = USER_PREFIX + token;
-        
-        // 存储 user:token:{userId} -> token
-        redisTemplate.opsForValue().set(userTokenKey, token, TOKEN_EXPIRE_TIME, TimeUnit.DAYS);
-        
-        // 存储 token:user:{token} -> userId (用于快速验证)
-        redisTemplate.opsForValue().set(tokenUserKey, userId, TOKEN_EXPIRE_TIME, TimeUnit.DAYS);
-        
-        log.debug("Token已存储到Redis: userId={}", userId);
+    public boolean validateToken(String token) {
+        return getUserIdFromToken(token) != null;
     }
 
     /**
-     * 验证Token是否有效
+     * 获取Token对应的用户ID，同时完成校验：先查本地缓存，未命中时解析一次JWT（格式、签名、过期时间）
+     * 并确认Token仍在存储中且用户一致，通过后缓存一段时间（不超过Token过期时间与缓存有效期上限）
      * @param token Token
-     * @return 是否有效
+     * @return 用户ID，Token无效或无法完成校验时返回null
      */
-    public boolean validateToken(String token) {
-        if (token == null || token.trim().isEmpty()) {
-            return false;
-        }
-
+    public Long getUserIdFromToken(String token) {
         try {
-            // 首先验证JWT格式和签名
-            if (!jwtUtil.isValidTokenFormat(token)) {
-                log.warn("Token格式无效");
-                return false;
-            }
-
-            // 检查Token是否过期
-            if (jwtUtil.isTokenExpired(token)) {
-                log.warn("Token已过期");
-                removeTokenFromRedis(token);
-                return false;
-            }
-
-            // 检查Token是否在Redis中存在
-            String tokenUserKey = USER_PREFIX + token;
-            Object userIdObj = redisTemplate.opsForValue().get(tokenUserKey);
-            Long userId = null;
-            if (userIdObj instanceof Number) {
-                userId = ((Number) userIdObj).longValue();
-            }
-
-            if (userId == null) {
-                log.warn("Token在Redis中不存在或已过期");
-                return false;
-            }
-
-            // 验证JWT中的用户ID与Redis中的是否一致
-            Long jwtUserId = jwtUtil.getUserIdFromToken(token);
-            if (!userId.equals(jwtUserId)) {
-                log.warn("Token中的用户ID与Redis中的不匹配");
-                removeTokenFromRedis(token);
-                return false;
-            }
-
-            log.debug("Token验证成功: userId={}", userId);
-            return true;
+            return resolveUserId(token);
         } catch (Exception e) {
             log.error("Token验证失败: {}", e.getMessage(), e);
-            return false;
+            return null;
         }
     }
 
     /**
-     * 获取Token对应的用户ID
+     * websocket 握手时由 Netty 调用，校验签名、过期时间并确认 Token 仍在存储中。
+     * 存储访问失败时异常直接抛出，握手回复 503，不把存储故障当作 Token 无效
      * @param token Token
-     * @return 用户ID
+     * @return 用户ID，无效时返回 null
      */
-    public Long getUserIdFromToken(String token) {
-        if (!validateToken(token)) {
+    @Override
+    public Long verify(String token) {
+        return resolveUserId(token);
+    }
+
+    /**
+     * 校验Token并返回用户ID，Token无效时返回null，存储访问失败时抛出异常
+     */
+    private Long resolveUserId(String token) {
+        if (token == null || token.trim().isEmpty()) {
             return null;
         }
 
+        Long cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
         try {
-            return jwtUtil.getUserIdFromToken(token);
-        } catch (Exception e) {
-            log.error("从Token获取用户ID失败: {}", e.getMessage(), e);
+            claims = jwtUtil.parseClaims(token);
+        } catch (ExpiredJwtException e) {
+            log.warn("Token已过期");
+            removeToken(token);
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Token格式无效: {}", e.getMessage());
+            return null;
+        }
+
+        // 检查Token是否仍在存储中（未登出、未被新登录替换）；查询期间收到的失效通知由 generation 识别
+        long generation = verifiedTokens.generation();
+        Long userId = tokenStore.getUserId(token);
+        if (userId == null) {
+            log.warn("Token不存在或已过期");
             return null;
         }
+
+        // 验证JWT中的用户ID与存储中的是否一致
+        Long jwtUserId = claims.get("userId", Long.class);
+        if (!userId.equals(jwtUserId)) {
+            log.warn("Token中的用户ID与存储中的不匹配");
+            removeToken(token);
+            return null;
+        }
+
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            long ttlMillis = Math.min(expiration.getTime() - System.currentTimeMillis(), tokenCacheMaxTtlMillis);
+            verifiedTokens.put(token, userId, ttlMillis, generation);
+        }
+        log.debug("Token验证成功: userId={}", userId);
+        return userId;
     }
 
     /**
@@ -145,8 +183,7 @@ public class TokenService {
      */
     public String getUserToken(Long userId) {
         try {
-            String userTokenKey = TOKEN_PREFIX + userId;
-            return (String) redisTemplate.opsForValue().get(userTokenKey);
+            return tokenStore.getToken(userId);
         } catch (Exception e) {
             log.error("获取用户Token失败: userId={}, error={}", userId, e.getMessage(), e);
             return null;
@@ -161,12 +198,12 @@ public class TokenService {
     public String refreshToken(String oldToken) {
         try {
             // 验证旧Token
-            if (!validateToken(oldToken)) {
+            Long userId = getUserIdFromToken(oldToken);
+            if (userId == null) {
                 throw new IllegalArgumentException("旧Token无效");
             }
 
             // 获取用户信息
-            Long userId = jwtUtil.getUserIdFromToken(oldToken);
             String username = jwtUtil.getUsernameFromToken(oldToken);
 
             if (userId == null || username == null) {
@@ -174,7 +211,7 @@ public class TokenService {
             }
 
             // 删除旧Token
-            removeTokenFromRedis(oldToken);
+            removeToken(oldToken);
 
             // 生成新Token
             String newToken = generateAndStoreToken(userId, username);
@@ -193,9 +230,9 @@ public class TokenService {
      */
     public void logout(Long userId) {
         try {
-            String userToken = getUserToken(userId);
+            String userToken = tokenStore.removeByUser(userId);
             if (userToken != null) {
-                removeTokenFromRedis(userToken);
+                verifiedTokens.invalidate(userToken);
                 log.info("用户 {} 登出成功，Token已清理", userId);
             } else {
                 log.warn("用户 {} 登出时未找到对应Token", userId);
@@ -207,48 +244,19 @@ public class TokenService {
     }
 
     /**
-     * 从Redis中删除Token
+     * 删除Token，其它节点经存储的失效通知移除本地缓存
      * @param token Token
      */
-    private void removeTokenFromRedis(String token) {
+    private void removeToken(String token) {
+        verifiedTokens.invalidate(token);
         try {
-            // 获取用户ID
-            String tokenUserKey = USER_PREFIX + token;
-            Object userIdObj = redisTemplate.opsForValue().get(tokenUserKey);
-            Long userId = null;
-            if (userIdObj instanceof Number) {
-                userId = ((Number) userIdObj).longValue();
-            } else if (userIdObj instanceof String) {
-                try {
-                    userId = Long.parseLong((String) userIdObj);
-                } catch (NumberFormatException e) {
-                    log.error("无法将Redis中的值转换为Long: {}", userIdObj);
-                }
-            }
-
-            // 删除两个键
-            if (userId != null) {
-                String userTokenKey = TOKEN_PREFIX + userId;
-                redisTemplate.delete(userTokenKey);
-            }
-            redisTemplate.delete(tokenUserKey);
-            
-            log.debug("Token已从Redis中删除: userId={}", userId);
+            Long userId = tokenStore.remove(token);
+            log.debug("Token已删除: userId={}", userId);
         } catch (Exception e) {
-            log.error("从Redis删除Token失败: {}", e.getMessage(), e);
+            log.error("删除Token失败: {}", e.getMessage(), e);
         }
     }
 
-    /**
-     * 检查用户是否已登录
-     * @param userId 用户ID
-     * @return 是否已登录
-     */
-    public boolean isUserLoggedIn(Long userId) {
-        String token = getUserToken(userId);
-        return token != null && validateToken(token);
-    }
-
     /**
      * 强制用户下线（清理所有Token）
      * @param userId 用户ID
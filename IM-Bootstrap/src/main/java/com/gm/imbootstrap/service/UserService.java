@@ -127,16 +127,10 @@ public class UserService {
             throw new Exception("密码错误");
         }
 
-        // 5. 检查是否已经登录（可选：强制下线旧会话）
-        if (tokenService.isUserLoggedIn(user.getUserId())) {
-            log.warn("用户 {} 重复登录，将强制下线旧会话", user.getUserId());
-            tokenService.forceLogout(user.getUserId());
-        }
-
-        // 6. 生成Token
+        // 5. 生成Token，已登录时旧会话的Token同时失效（强制下线旧会话）
         String token = tokenService.generateAndStoreToken(user.getUserId(), user.getUsername());
 
-        // 7. 返回登录结果
+        // 6. 返回登录结果
         log.info("用户登录成功: userId={}, username={}", user.getUserId(), username);
         return new LoginResult(user, token);
     }
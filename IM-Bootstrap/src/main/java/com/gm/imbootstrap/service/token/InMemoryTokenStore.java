@@ -0,0 +1,134 @@
+package com.gm.imbootstrap.service.token;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author: xexgm
+ * desc: 进程内的 Token 存储，用于单节点部署与不依赖 Redis 的测试。两个方向的映射共用同一个会话对象，
+ * 按会话的有效期各自过期；双键的修改在同一把锁内完成。数据不持久化，进程重启后所有用户需重新登录
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.security.token-store", havingValue = "memory")
+public class InMemoryTokenStore implements TokenStore {
+
+    private final Cache<String, Session> byToken;
+    private final Cache<Long, Session> byUser;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryTokenStore() {
+        this(Ticker.systemTicker());
+        log.info("Token存储: memory");
+    }
+
+    InMemoryTokenStore(Ticker ticker) {
+        this.byToken = Caffeine.newBuilder().expireAfter(new SessionExpiry<String>()).ticker(ticker).build();
+        this.byUser = Caffeine.newBuilder().expireAfter(new SessionExpiry<Long>()).ticker(ticker).build();
+    }
+
+    @Override
+    public String save(long userId, String token, long ttlMillis) {
+        Session session = new Session(userId, token, TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        Session old;
+        synchronized (this) {
+            old = byUser.getIfPresent(userId);
+            byUser.put(userId, session);
+            byToken.put(token, session);
+            if (old != null && !old.token.equals(token)) {
+                byToken.invalidate(old.token);
+            } else {
+                old = null;
+            }
+        }
+        if (old == null) {
+            return null;
+        }
+        notifyListeners(old.token);
+        return old.token;
+    }
+
+    @Override
+    public Long getUserId(String token) {
+        Session session = byToken.getIfPresent(token);
+        return session == null ? null : session.userId;
+    }
+
+    @Override
+    public String getToken(long userId) {
+        Session session = byUser.getIfPresent(userId);
+        return session == null ? null : session.token;
+    }
+
+    @Override
+    public Long remove(String token) {
+        Session session;
+        synchronized (this) {
+            session = byToken.asMap().remove(token);
+            if (session != null) {
+                byUser.asMap().remove(session.userId, session);
+            }
+        }
+        notifyListeners(token);
+        return session == null ? null : session.userId;
+    }
+
+    @Override
+    public String removeByUser(long userId) {
+        Session session;
+        synchronized (this) {
+            session = byUser.asMap().remove(userId);
+            if (session != null) {
+                byToken.invalidate(session.token);
+            }
+        }
+        if (session == null) {
+            return null;
+        }
+        notifyListeners(session.token);
+        return session.token;
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(String token) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(token);
+        }
+    }
+
+    private record Session(long userId, String token, long ttlNanos) {
+    }
+
+    /** 条目在会话的有效期后过期，覆盖写入时重新计时，读取不延长 **/
+    private static class SessionExpiry<K> implements Expiry<K, Session> {
+
+        @Override
+        public long expireAfterCreate(K key, Session session, long currentTime) {
+            return session.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Session session, long currentTime, long currentDuration) {
+            return session.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(K key, Session session, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.gm.imbootstrap.service.token;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author: xexgm
+ * desc: Redis 中的 Token 存储。键值都是纯字符串（StringRedisTemplate），不带类型信息；
+ * 双键的写入、删除与失效通知（PUBLISH）放在一个 Lua 脚本里，一次往返且原子执行。
+ * 脚本中按读到的值拼出另一个方向的键，要求两个方向的键在同一个 Redis 实例上（不支持 Redis Cluster 分片）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.security.token-store", havingValue = "redis", matchIfMissing = true)
+public class RedisTokenStore implements TokenStore {
+
+    private static final String USER_TOKEN_PREFIX = "user:token:";
+    private static final String TOKEN_USER_PREFIX = "token:user:";
+    /** Token失效通知频道，消息体为Token **/
+    static final String INVALIDATION_CHANNEL = "im:token:invalidate";
+
+    /**
+     * 旧版本以 Jackson 序列化写入的 Token 带有引号，读出时去掉，兼容升级前签发、尚未过期的 Token
+     */
+    private static final String UNQUOTE = "local function unquote(v) "
+        + "if v and string.sub(v, 1, 1) == '\"' then return string.sub(v, 2, -2) end return v end ";
+
+    /** KEYS: user:token:{userId}, token:user:{token}；ARGV: token, userId, ttlMillis **/
+    private static final RedisScript<String> SAVE = new DefaultRedisScript<>(UNQUOTE
+        + "local old = unquote(redis.call('GET', KEYS[1])) "
+        + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3]) "
+        + "redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3]) "
+        + "if old and old ~= ARGV[1] then "
+        + "  redis.call('DEL', '" + TOKEN_USER_PREFIX + "' .. old) "
+        + "  redis.call('PUBLISH', '" + INVALIDATION_CHANNEL + "', old) "
+        + "  return old "
+        + "end "
+        + "return false", String.class);
+
+    /** KEYS: token:user:{token}；ARGV: token **/
+    private static final RedisScript<String> REMOVE = new DefaultRedisScript<>(UNQUOTE
+        + "local userId = redis.call('GET', KEYS[1]) "
+        + "redis.call('DEL', KEYS[1]) "
+        + "redis.call('PUBLISH', '" + INVALIDATION_CHANNEL + "', ARGV[1]) "
+        + "if userId then "
+        + "  local userKey = '" + USER_TOKEN_PREFIX + "' .. userId "
+        + "  if unquote(redis.call('GET', userKey)) == ARGV[1] then redis.call('DEL', userKey) end "
+        + "end "
+        + "return userId", String.class);
+
+    /** KEYS: user:token:{userId} **/
+    private static final RedisScript<String> REMOVE_BY_USER = new DefaultRedisScript<>(UNQUOTE
+        + "local token = unquote(redis.call('GET', KEYS[1])) "
+        + "if not token then return false end "
+        + "redis.call('DEL', KEYS[1], '" + TOKEN_USER_PREFIX + "' .. token) "
+        + "redis.call('PUBLISH', '" + INVALIDATION_CHANNEL + "', token) "
+        + "return token", String.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @PostConstruct
+    public void init() {
+        log.info("Token存储: redis");
+    }
+
+    @Override
+    public String save(long userId, String token, long ttlMillis) {
+        return stringRedisTemplate.execute(SAVE, List.of(USER_TOKEN_PREFIX + userId, TOKEN_USER_PREFIX + token),
+            token, String.valueOf(userId), String.valueOf(ttlMillis));
+    }
+
+    @Override
+    public Long getUserId(String token) {
+        return parseUserId(stringRedisTemplate.opsForValue().get(TOKEN_USER_PREFIX + token));
+    }
+
+    @Override
+    public String getToken(long userId) {
+        return unquote(stringRedisTemplate.opsForValue().get(USER_TOKEN_PREFIX + userId));
+    }
+
+    @Override
+    public Long remove(String token) {
+        return parseUserId(stringRedisTemplate.execute(REMOVE, List.of(TOKEN_USER_PREFIX + token), token));
+    }
+
+    @Override
+    public String removeByUser(long userId) {
+        return stringRedisTemplate.execute(REMOVE_BY_USER, List.of(USER_TOKEN_PREFIX + userId));
+    }
+
+    @Override
+    public void onInvalidate(Consumer<String> listener) {
+        redisMessageListenerContainer.addMessageListener(
+            (message, pattern) -> listener.accept(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    private static Long parseUserId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.error("无法将Redis中的值转换为Long: {}", value);
+            return null;
+        }
+    }
+
+    private static String unquote(String value) {
+        return value != null && value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+            ? value.substring(1, value.length() - 1) : value;
+    }
+}
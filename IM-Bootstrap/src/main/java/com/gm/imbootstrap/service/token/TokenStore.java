@@ -0,0 +1,40 @@
+package com.gm.imbootstrap.service.token;
+
+import java.util.function.Consumer;
+
+/**
+ * @author: xexgm
+ * desc: 登录 Token 的存储，维护 userId -> token 与 token -> userId 两个方向的映射，两者同时写入、同时删除。
+ * 每个用户只保留一个 Token，保存新 Token 时旧 Token 随之失效。
+ * 由 app.security.token-store 选择实现：redis（默认，多节点共享）/ memory（单节点部署与测试，不需要 Redis）
+ */
+public interface TokenStore {
+
+    /**
+     * 保存用户的 Token，替换该用户之前的 Token
+     * @param ttlMillis 有效期，到期后两个方向的映射都被移除
+     * @return 被替换的旧 Token，没有时返回 null
+     */
+    String save(long userId, String token, long ttlMillis);
+
+    /** @return Token 对应的用户ID，不存在或已过期时返回 null **/
+    Long getUserId(String token);
+
+    /** @return 用户当前的 Token，不存在或已过期时返回 null **/
+    String getToken(long userId);
+
+    /**
+     * 删除 Token；该 Token 仍是用户当前的 Token 时，用户方向的映射一并删除
+     * @return Token 所属的用户ID，不存在时返回 null
+     */
+    Long remove(String token);
+
+    /**
+     * 删除用户当前的 Token
+     * @return 被删除的 Token，不存在时返回 null
+     */
+    String removeByUser(long userId);
+
+    /** 登记 Token 失效回调：任一节点替换或删除 Token 后，各节点以该 Token 回调，用于清理本地缓存 **/
+    void onInvalidate(Consumer<String> listener);
+}
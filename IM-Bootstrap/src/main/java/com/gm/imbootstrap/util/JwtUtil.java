@@ -2,6 +2,7 @@ package com.gm.imbootstrap.util;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -26,11 +27,23 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private Long jwtExpiration;
 
+    /** 签名密钥与解析器只建一次，JwtParser 线程安全 **/
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     /**
      * 获取签名密钥
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     /**
@@ -110,17 +123,24 @@ public class JwtUtil {
         }
     }
 
+    /**
+     * 解析并校验Token：一次解析同时校验格式、签名与过期时间
+     * @param token JWT Token
+     * @return Claims
+     * @throws ExpiredJwtException Token已过期
+     * @throws JwtException 格式或签名无效
+     */
+    public Claims parseClaims(String token) {
+        return jwtParser.parseClaimsJws(token).getBody();
+    }
+
     /**
      * 从Token中获取声明
      * @param token JWT Token
      * @return Claims
      */
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     /**
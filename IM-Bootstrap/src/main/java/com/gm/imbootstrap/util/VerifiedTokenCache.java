@@ -0,0 +1,95 @@
+package com.gm.imbootstrap.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * @author: xexgm
+ * desc: 已校验通过的 token -> userId 本地缓存。条目数有上限，超出时按访问频率淘汰；
+ * 每个条目在调用方给定的有效期后失效，登出、刷新时由调用方显式移除（跨节点经 Redis 频道通知）。
+ * 查询存储与写入缓存之间可能收到失效通知：调用方查询前取 generation()，写入时带上，期间有过失效则不缓存
+ */
+public class VerifiedTokenCache {
+
+    private final Cache<String, Entry> cache;
+    /** 每次失效加一，不区分 token：失效期间写入的条目一律丢弃，代价只是少缓存几次 **/
+    private final AtomicLong generation = new AtomicLong();
+
+    public VerifiedTokenCache(long maxSize) {
+        this(maxSize, Ticker.systemTicker());
+    }
+
+    VerifiedTokenCache(long maxSize, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String token, Entry entry, long currentTime) {
+                    return entry.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, Entry entry, long currentTime, long currentDuration) {
+                    return entry.ttlNanos;
+                }
+
+                @Override
+                public long expireAfterRead(String token, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .ticker(ticker)
+            .recordStats()
+            .build();
+    }
+
+    /** @return 缓存的用户ID，未命中或已过期时返回 null **/
+    public Long get(String token) {
+        Entry entry = cache.getIfPresent(token);
+        return entry == null ? null : entry.userId;
+    }
+
+    /** 查询存储之前取当前代数，写入时传给 put **/
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 缓存校验结果，ttlMillis 不大于 0 时不缓存；generation 之后有过失效时不缓存。
+     * 先写入再检查代数，与 invalidate 先加代数再移除配合，任何交错下被失效的 token 都不会留在缓存中
+     */
+    public void put(String token, long userId, long ttlMillis, long generation) {
+        if (ttlMillis <= 0 || this.generation.get() != generation) {
+            return;
+        }
+        cache.put(token, new Entry(userId, TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        if (this.generation.get() != generation) {
+            cache.invalidate(token);
+        }
+    }
+
+    public void invalidate(String token) {
+        generation.incrementAndGet();
+        cache.invalidate(token);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long hits() {
+        return cache.stats().hitCount();
+    }
+
+    public long misses() {
+        return cache.stats().missCount();
+    }
+
+    private record Entry(long userId, long ttlNanos) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.gm.imbootstrap.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author: xexgm
+ * desc: 写后缓冲。调用方把行放进有界队列后立即返回，后台线程攒够 batchSize 行或等满 flushInterval 后批量写出。
+ * 队列满时调用方阻塞等待（反压），超时仍放不进去则在调用线程上同步写出（计入 overflowRows）；
+ * 关闭后新加入的行同样同步写出，保证已接收的行不丢。
+ */
+@Slf4j
+public class WriteBehindBuffer<T> {
+
+    /** 后台线程单次等待的上限，决定 close 最迟多久能被感知 **/
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final String name;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Consumer<List<T>> batchWriter;
+    private final BlockingQueue<T> queue;
+    private final Thread flusher;
+
+    /** 读锁：加入行；写锁：关闭。保证关闭之后不会再有行进入队列 **/
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed = false;
+
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder overflowRows = new LongAdder();
+
+    public WriteBehindBuffer(String name, int batchSize, long flushIntervalMillis, int capacity,
+                             long offerTimeoutMillis, Consumer<List<T>> batchWriter) {
+        if (batchSize <= 0 || capacity <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("batchSize、capacity、flushInterval 必须大于 0");
+        }
+        this.name = name;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.batchWriter = batchWriter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flusher = new Thread(this::runFlushLoop, "write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 加入一行，队列满时最多阻塞 offerTimeoutMillis，仍放不进去时在调用线程上同步写出
+     */
+    public void add(T row) {
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                if (queue.offer(row, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                overflowRows.increment();
+                log.warn("写后缓冲 {} 已满，等待 {}ms 后仍无法入队，改为同步写入", name, offerTimeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            overflowRows.increment();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        // 已关闭或队列已满：直接同步写出
+        write(List.of(row));
+    }
+
+    /** 停止接收新行，等待后台线程把队列中的行全部写出 **/
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 后台线程被中断等异常退出时，在当前线程兜底写完
+        List<T> rest = new ArrayList<>();
+        while (queue.drainTo(rest, batchSize) > 0) {
+            write(rest);
+            rest.clear();
+        }
+        log.info("写后缓冲 {} 已关闭, 累计写入 {} 行 / {} 批, 失败 {} 行", name, writtenRows.sum(), writtenBatches.sum(), failedRows.sum());
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    public long writtenRows() {
+        return writtenRows.sum();
+    }
+
+    public long writtenBatches() {
+        return writtenBatches.sum();
+    }
+
+    public long failedRows() {
+        return failedRows.sum();
+    }
+
+    /** 队列满时在调用线程上同步写出的行数 **/
+    public long overflowRows() {
+        return overflowRows.sum();
+    }
+
+    private void runFlushLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                T first = queue.poll(MAX_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 从第一行到达开始计时，够 batchSize 行或到期即写出
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || closed) {
+                        break;
+                    }
+                    T next = queue.poll(Math.min(remaining, MAX_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 已取出的行交给 close 兜底前先写掉
+            write(batch);
+        }
+    }
+
+    /** 批量写失败时逐行重试，只丢弃数据库确实拒绝的行 **/
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchWriter.accept(batch);
+            writtenRows.add(batch.size());
+            writtenBatches.increment();
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                failedRows.increment();
+                log.error("写后缓冲 {} 写入失败，丢弃 1 行: {}", name, batch.get(0), e);
+                return;
+            }
+            log.warn("写后缓冲 {} 批量写入 {} 行失败，改为逐行写入: {}", name, batch.size(), e.getMessage());
+            for (T row : batch) {
+                write(List.of(row));
+            }
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.gm.imbootstrap;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.security.token-store=memory")
 class ImBootstrapApplicationTests {
 
     @Test
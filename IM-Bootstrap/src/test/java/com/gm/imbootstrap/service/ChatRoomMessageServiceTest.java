@@ -13,6 +13,7 @@ import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -29,6 +30,9 @@ class ChatRoomMessageServiceTest {
     @Mock
     private MessageCryptoService messageCryptoService;
 
+    @Mock
+    private MessageWriteBehindBuffer messageWriteBehindBuffer;
+
     @Test
     void saveMessage_ValidMessage_EncryptBeforeInsert() {
         ChatRoomMessage message = new ChatRoomMessage();
@@ -37,11 +41,11 @@ class ChatRoomMessageServiceTest {
         message.setContent("hello room");
 
         when(messageCryptoService.encrypt("hello room", "chatroom:10:1")).thenReturn("encrypted-room-content");
-        when(chatRoomMessageMapper.insert(any(ChatRoomMessage.class))).thenReturn(1);
 
         chatRoomMessageService.saveMessage(message);
 
-        verify(chatRoomMessageMapper, times(1)).insert(message);
+        verify(messageWriteBehindBuffer, times(1)).addChatRoomMessage(message);
+        verify(chatRoomMessageMapper, never()).insert(any(ChatRoomMessage.class));
         assertEquals("encrypted-room-content", message.getContent());
     }
 
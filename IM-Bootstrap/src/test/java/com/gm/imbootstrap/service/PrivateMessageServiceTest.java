@@ -28,6 +28,9 @@ class PrivateMessageServiceTest {
     @Mock
     private MessageCryptoService messageCryptoService;
 
+    @Mock
+    private MessageWriteBehindBuffer messageWriteBehindBuffer;
+
     @Test
     void saveMessage_ValidMessage_Success() {
         // Arrange
@@ -37,13 +40,13 @@ class PrivateMessageServiceTest {
         message.setContent("Hello");
         
         when(messageCryptoService.encrypt("Hello", "private:1:2")).thenReturn("encrypted-content");
-        when(privateMessageMapper.insert(any(PrivateMessage.class))).thenReturn(1);
 
         // Act
         privateMessageService.saveMessage(message);
 
         // Assert
-        verify(privateMessageMapper, times(1)).insert(message);
+        verify(messageWriteBehindBuffer, times(1)).addPrivateMessage(message);
+        verify(privateMessageMapper, never()).insert(any(PrivateMessage.class));
         assertEquals("encrypted-content", message.getContent());
     }
 
@@ -53,7 +56,7 @@ class PrivateMessageServiceTest {
         privateMessageService.saveMessage(null);
 
         // Assert
-        verify(privateMessageMapper, never()).insert(any(PrivateMessage.class));
+        verify(messageWriteBehindBuffer, never()).addPrivateMessage(any(PrivateMessage.class));
     }
 
     @Test
@@ -0,0 +1,146 @@
+package com.gm.imbootstrap.service;
+
+import com.gm.graduation.netty.handler.HandshakeAuthHandler;
+import com.gm.imbootstrap.service.token.InMemoryTokenStore;
+import com.gm.imbootstrap.util.JwtUtil;
+import com.gm.imbootstrap.util.VerifiedTokenCache;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenServiceTest {
+
+    @InjectMocks
+    private TokenService tokenService;
+
+    @Spy
+    private JwtUtil jwtUtil = newJwtUtil();
+
+    @Spy
+    private InMemoryTokenStore tokenStore = new InMemoryTokenStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tokenService, "tokenCacheMaxSize", 1000L);
+        ReflectionTestUtils.setField(tokenService, "tokenCacheMaxTtlMillis", 60_000L);
+        tokenService.init();
+    }
+
+    @Test
+    void getUserIdFromToken_SecondCallServedFromCache() {
+        String token = tokenService.generateAndStoreToken(7L, "alice");
+
+        assertEquals(7L, tokenService.getUserIdFromToken(token));
+        assertEquals(7L, tokenService.getUserIdFromToken(token));
+
+        // JWT 只解析一次，存储只查一次
+        verify(jwtUtil, times(1)).parseClaims(token);
+        verify(tokenStore, times(1)).getUserId(anyString());
+        assertEquals(Map.of("size", 1L, "hits", 1L, "misses", 1L), tokenService.tokenCacheStats());
+    }
+
+    @Test
+    void invalidation_EvictsCachedToken() {
+        String token = tokenService.generateAndStoreToken(7L, "alice");
+        assertEquals(7L, tokenService.getUserIdFromToken(token));
+
+        // 其它节点登出，经存储的失效通知
+        tokenStore.remove(token);
+
+        assertNull(tokenService.getUserIdFromToken(token));
+    }
+
+    @Test
+    void invalidationDuringStoreLookup_NotCached() {
+        String token = tokenService.generateAndStoreToken(7L, "alice");
+        VerifiedTokenCache cache = (VerifiedTokenCache) ReflectionTestUtils.getField(tokenService, "verifiedTokens");
+        // 读到存储中的用户之后、写入缓存之前，其它节点登出的通知到达
+        doAnswer(invocation -> {
+            Object userId = invocation.callRealMethod();
+            cache.invalidate(token);
+            return userId;
+        }).when(tokenStore).getUserId(token);
+
+        assertEquals(7L, tokenService.getUserIdFromToken(token));
+
+        assertNull(cache.get(token));
+    }
+
+    @Test
+    void login_ReplacesPreviousSession() {
+        String first = tokenService.generateAndStoreToken(7L, "alice");
+        assertEquals(7L, tokenService.getUserIdFromToken(first));
+
+        // 签发时间精确到秒，同一秒内相同内容的 JWT 完全一致，第二次登录换个用户名以得到不同的 Token
+        String second = tokenService.generateAndStoreToken(7L, "alice.b");
+
+        assertNull(tokenService.getUserIdFromToken(first));
+        assertEquals(7L, tokenService.getUserIdFromToken(second));
+    }
+
+    @Test
+    void logout_RemovesToken() {
+        String token = tokenService.generateAndStoreToken(7L, "alice");
+
+        tokenService.logout(7L);
+
+        assertNull(tokenService.getUserToken(7L));
+        assertNull(tokenService.getUserIdFromToken(token));
+    }
+
+    @Test
+    void forgedToken_RejectedWithoutStoreLookup() {
+        assertNull(tokenService.getUserIdFromToken("not.a.jwt"));
+
+        verify(tokenStore, never()).getUserId(anyString());
+    }
+
+    @Test
+    void storeFailure_HandshakeServiceUnavailable() {
+        String token = tokenService.generateAndStoreToken(7L, "alice");
+        doThrow(new IllegalStateException("redis down")).when(tokenStore).getUserId(token);
+        HandshakeAuthHandler.setTokenVerifier(tokenService);
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new HandshakeAuthHandler(Runnable::run));
+
+            channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/ws?token=" + token));
+            channel.runPendingTasks();
+
+            // 存储故障不能当作 Token 无效（401 会让客户端重新登录）
+            FullHttpResponse response = channel.readOutbound();
+            assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, response.status());
+            response.release();
+            channel.finishAndReleaseAll();
+        } finally {
+            HandshakeAuthHandler.setTokenVerifier(null);
+        }
+        // HTTP 接口的校验仍按无效处理
+        assertNull(tokenService.getUserIdFromToken(token));
+    }
+
+    private static JwtUtil newJwtUtil() {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "jwtSecret", "test-secret-0123456789abcdefghijklmnopqrstuvwxyz");
+        ReflectionTestUtils.setField(util, "jwtExpiration", 3_600_000L);
+        util.init();
+        return util;
+    }
+}
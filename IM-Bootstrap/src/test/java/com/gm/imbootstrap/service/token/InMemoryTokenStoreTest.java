@@ -0,0 +1,66 @@
+package com.gm.imbootstrap.service.token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemoryTokenStoreTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final InMemoryTokenStore store = new InMemoryTokenStore(nanos::get);
+    private final List<String> invalidated = new ArrayList<>();
+
+    InMemoryTokenStoreTest() {
+        store.onInvalidate(invalidated::add);
+    }
+
+    @Test
+    void save_ReplacesPreviousToken() {
+        assertNull(store.save(1L, "first", 60_000));
+        assertEquals("first", store.save(1L, "second", 60_000));
+
+        assertNull(store.getUserId("first"));
+        assertEquals(1L, store.getUserId("second"));
+        assertEquals("second", store.getToken(1L));
+        assertEquals(List.of("first"), invalidated);
+    }
+
+    @Test
+    void remove_StaleTokenKeepsCurrentSession() {
+        store.save(1L, "first", 60_000);
+        store.save(1L, "second", 60_000);
+
+        assertNull(store.remove("first"));
+        assertEquals("second", store.getToken(1L));
+
+        assertEquals(1L, store.remove("second"));
+        assertNull(store.getToken(1L));
+        assertNull(store.getUserId("second"));
+    }
+
+    @Test
+    void removeByUser_RemovesBothDirections() {
+        store.save(1L, "token", 60_000);
+
+        assertEquals("token", store.removeByUser(1L));
+        assertNull(store.getUserId("token"));
+        assertNull(store.removeByUser(1L));
+        assertEquals(List.of("token"), invalidated);
+    }
+
+    @Test
+    void session_ExpiresAfterTtl() {
+        store.save(1L, "token", 1000);
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertNull(store.getUserId("token"));
+        assertNull(store.getToken(1L));
+    }
+}
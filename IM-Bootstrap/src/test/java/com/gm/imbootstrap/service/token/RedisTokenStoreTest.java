@@ -0,0 +1,99 @@
+package com.gm.imbootstrap.service.token;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 不连 Redis，只校验传给 Lua 脚本的 KEYS / ARGV 与脚本中的约定一致，以及旧版带引号值的兼容
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisTokenStoreTest {
+
+    @InjectMocks
+    private RedisTokenStore store;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void save_PassesBothKeysAndTokenUserIdTtl() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("user:token:1", "token:user:new")),
+            eq("new"), eq("1"), eq("60000"))).thenReturn("old");
+
+        assertEquals("old", store.save(1L, "new", 60_000));
+
+        ArgumentCaptor<RedisScript<String>> script = ArgumentCaptor.forClass(RedisScript.class);
+        verify(stringRedisTemplate).execute(script.capture(), any(List.class), eq("new"), eq("1"), eq("60000"));
+        String source = script.getValue().getScriptAsString();
+        assertTrue(source.contains("redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])"));
+        assertTrue(source.contains("redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void remove_PassesTokenKeyAndParsesUserId() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("token:user:tok")), eq("tok")))
+            .thenReturn("7");
+
+        assertEquals(7L, store.remove("tok"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void remove_UnknownTokenReturnsNull() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("token:user:gone")), eq("gone")))
+            .thenReturn(null);
+
+        assertNull(store.remove("gone"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void removeByUser_PassesUserKeyOnly() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("user:token:7")))).thenReturn("tok");
+
+        assertEquals("tok", store.removeByUser(7L));
+    }
+
+    @Test
+    void getToken_StripsQuotesWrittenByOldSerializer() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("user:token:1")).thenReturn("\"legacy\"");
+        when(valueOperations.get("user:token:2")).thenReturn("plain");
+
+        assertEquals("legacy", store.getToken(1L));
+        assertEquals("plain", store.getToken(2L));
+        assertNull(store.getToken(3L));
+    }
+
+    @Test
+    void getUserId_ParsesPlainValueAndRejectsGarbage() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("token:user:tok")).thenReturn("42");
+        when(valueOperations.get("token:user:bad")).thenReturn("abc");
+
+        assertEquals(42L, store.getUserId("tok"));
+        assertNull(store.getUserId("bad"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.gm.imbootstrap.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VerifiedTokenCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100, nanos::get);
+
+    @Test
+    void entry_ExpiresWithToken() {
+        cache.put("short", 1L, 1000, cache.generation());
+        cache.put("long", 2L, 60_000, cache.generation());
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertNull(cache.get("short"));
+        assertEquals(2L, cache.get("long"));
+    }
+
+    @Test
+    void invalidate_RemovesEntry() {
+        cache.put("token", 1L, 60_000, cache.generation());
+        cache.invalidate("token");
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void invalidatedDuringLookup_NotCached() {
+        long generation = cache.generation();
+        // 查询存储期间收到失效通知
+        cache.invalidate("token");
+        cache.put("token", 1L, 60_000, generation);
+
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void expiredToken_NotCached() {
+        cache.put("token", 1L, 0, cache.generation());
+
+        assertNull(cache.get("token"));
+    }
+}
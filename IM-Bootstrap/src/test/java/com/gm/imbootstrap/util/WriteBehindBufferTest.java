@@ -0,0 +1,114 @@
+package com.gm.imbootstrap.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindBufferTest {
+
+    @Test
+    void add_BatchSizeReached_FlushedAsOneBatch() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 5, 10_000, 100, 1000, batch -> {
+            batches.add(new ArrayList<>(batch));
+            flushed.countDown();
+        });
+
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i);
+        }
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2, 3, 4), batches.get(0));
+        buffer.close();
+    }
+
+    @Test
+    void add_FlushIntervalReached_PartialBatchFlushed() throws Exception {
+        CountDownLatch flushed = new CountDownLatch(1);
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 100, 20, 100, 1000, batch -> flushed.countDown());
+
+        buffer.add(1);
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        buffer.close();
+    }
+
+    @Test
+    void close_PendingRows_AllWrittenInOrder() {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 64, 10_000, 10_000, 1000, written::addAll);
+
+        for (int i = 0; i < 1000; i++) {
+            buffer.add(i);
+        }
+        buffer.close();
+        // 关闭后加入的行同步写出
+        buffer.add(1000);
+
+        assertEquals(1001, written.size());
+        for (int i = 0; i <= 1000; i++) {
+            assertEquals(i, written.get(i));
+        }
+    }
+
+    @Test
+    void write_BatchFails_RetriedRowByRowAndOnlyBadRowDropped() {
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10, 10_000, 100, 1000, batch -> {
+            if (batch.contains(3)) {
+                throw new IllegalStateException("bad row");
+            }
+            written.addAll(batch);
+        });
+
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i);
+        }
+        buffer.close();
+
+        assertEquals(List.of(0, 1, 2, 4), written);
+        assertEquals(1, buffer.failedRows());
+    }
+
+    @Test
+    void add_BufferFull_BlocksThenWritesSynchronously() throws Exception {
+        CountDownLatch block = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 1, 10_000, 1, 50, batch -> {
+            if (batch.contains(1)) {
+                writing.countDown();
+                try {
+                    block.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            written.addAll(batch);
+        });
+
+        buffer.add(1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        // 后台线程卡在写库，队列容量 1
+        buffer.add(2);
+        buffer.add(3);
+
+        // 第 3 行等待超时后在调用线程上写出，不丢
+        assertEquals(List.of(3), written);
+        assertEquals(1, buffer.overflowRows());
+
+        block.countDown();
+        buffer.close();
+        assertEquals(3, buffer.writtenRows());
+    }
+}